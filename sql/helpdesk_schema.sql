@@ -74,8 +74,9 @@ CREATE TABLE TicketConversations (
     ticket_id INT NOT NULL,
     message_text TEXT NOT NULL,
     sent_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-    is_sender_agent BOOLEAN NOT FALSE,
+    is_sender_agent BOOLEAN NOT NULL DEFAULT FALSE,
     sender_id INT NOT NULL, -- can be customer_id or agent_id depending on is_sender_agent
+    search_scope VARCHAR(40) NOT NULL DEFAULT '', -- e.g. 'category_3 status_open'; kept in step with the ticket by TicketDAO
     FOREIGN KEY (ticket_id) REFERENCES Tickets(ticket_id) ON DELETE CASCADE
 );
 
@@ -83,7 +84,7 @@ CREATE TABLE TicketConversations (
 CREATE TABLE TicketHistory (
     history_id INT PRIMARY KEY AUTO_INCREMENT,
     ticket_id INT NOT NULL,
-    changed_by INT NOT NULL, -- agent_id who made the change
+    changed_by INT, -- agent_id who made the change; NULL for customers and the system
     changed_field_name VARCHAR(50) NOT NULL,
     old_value_id INT,
     new_value_id INT,
@@ -112,6 +113,8 @@ CREATE TABLE AgentMetrics (
 );
 
 -- Category Metrics table (for category-wise analytics)
+-- Maintained incrementally when tickets are closed; HelpDeskService.rebuildCategoryMetrics()
+-- recomputes it from Tickets
 CREATE TABLE CategoryMetrics (
     category_id INT PRIMARY KEY,
     total_resolution_time BIGINT DEFAULT 0, -- in minutes
@@ -119,6 +122,99 @@ CREATE TABLE CategoryMetrics (
     FOREIGN KEY (category_id) REFERENCES TicketCategories(category_id) ON DELETE CASCADE
 );
 
+-- Daily ticket volume per category (for volume reports)
+-- Maintained as tickets are created, resolved and closed; HelpDeskService.rebuildDailyVolume()
+-- recomputes the created and closed counts from Tickets. Each day and category is split into
+-- shards by ticket_id % 8 so concurrent writers do not contend on one row; reports sum them
+CREATE TABLE TicketDailyVolume (
+    volume_date DATE NOT NULL,
+    category_id INT NOT NULL,
+    shard TINYINT NOT NULL DEFAULT 0,
+    created_count INT NOT NULL DEFAULT 0,
+    resolved_count INT NOT NULL DEFAULT 0,
+    closed_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (volume_date, category_id, shard),
+    FOREIGN KEY (category_id) REFERENCES TicketCategories(category_id) ON DELETE CASCADE
+);
+
+-- How far each SLA check has swept a category, as a (created_at, ticket_id) keyset position;
+-- SlaMonitor only looks at tickets past the watermark
+CREATE TABLE SlaWatermarks (
+    category_id INT NOT NULL,
+    sla_check VARCHAR(32) NOT NULL,
+    watermark_created_at DATETIME NOT NULL,
+    watermark_ticket_id INT NOT NULL,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (category_id, sla_check),
+    FOREIGN KEY (category_id) REFERENCES TicketCategories(category_id) ON DELETE CASCADE
+);
+
+-- Ticket lifecycle events, written in the same transaction as the change; OutboxRelay
+-- delivers them to downstream sinks in event_id order
+CREATE TABLE OutboxEvents (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ticket_id INT NOT NULL,
+    event_type VARCHAR(32) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Last event each relay has delivered
+CREATE TABLE OutboxWatermarks (
+    relay_name VARCHAR(64) PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Indexes for keyset pagination (sort key, id)
+CREATE INDEX idx_customers_name ON Customers (name, customer_id);
+CREATE INDEX idx_agents_name ON Agents (name, agent_id);
+CREATE INDEX idx_tickets_created ON Tickets (created_at, ticket_id);
+CREATE INDEX idx_conversations_ticket_sent ON TicketConversations (ticket_id, sent_at, message_id);
+CREATE INDEX idx_history_ticket_changed ON TicketHistory (ticket_id, changed_at, history_id);
+
+-- Full-text search over conversation messages (TicketDAO.searchConversations).
+-- search_scope words let a category or status filter narrow the full-text match itself
+CREATE FULLTEXT INDEX idx_conversations_text ON TicketConversations (message_text, search_scope);
+
+-- Inbox lists, ordered by priority then age; a page reads its rows by primary key.
+-- idx_tickets_inbox with agent_id IS NULL is also the dispatchers' work queue, which reads category_id from it.
+-- Only open tickets are escalated, so idx_tickets_escalated stays the size of the open backlog
+CREATE INDEX idx_tickets_inbox ON Tickets (agent_id, status_id, priority_id DESC, created_at, ticket_id, category_id);
+CREATE INDEX idx_tickets_unassigned ON Tickets (category_id, agent_id, status_id, priority_id DESC, created_at, ticket_id);
+CREATE INDEX idx_tickets_escalated ON Tickets (is_escalated, priority_id DESC, created_at, ticket_id);
+
+-- SLA sweeps: range of created_at within a category, covering every column SlaMonitor reads
+CREATE INDEX idx_tickets_sla ON Tickets (category_id, created_at, ticket_id, status_id, agent_id,
+                                         priority_id, customer_id, is_escalated);
+
+-- Covering indexes for lookups and reports
+CREATE INDEX idx_tickets_customer ON Tickets (customer_id, created_at);
+CREATE INDEX idx_tickets_created_category ON Tickets (created_at, category_id);
+CREATE INDEX idx_tickets_closed ON Tickets (closed_at, category_id, created_at);
+CREATE INDEX idx_agent_skills_category ON AgentSkills (skill_category_id, agent_id);
+
+-- Applied schema versions; upgrades live in sql/migrations
+CREATE TABLE SchemaVersion (
+    version INT PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    applied_at DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO SchemaVersion (version, description) VALUES
+(1, 'Baseline schema'),
+(2, 'Production indexes'),
+(3, 'Backfill CategoryMetrics'),
+(4, 'TicketDailyVolume rollup'),
+(5, 'Inbox indexes'),
+(6, 'SLA watermarks'),
+(7, 'Conversation full-text index'),
+(8, 'Ticket history audit trail'),
+(9, 'Ticket event outbox'),
+(10, 'Shard TicketDailyVolume rows'),
+(11, 'Trim inbox indexes'),
+(12, 'Conversation search scope');
+
 -- Insert default data
 INSERT INTO TicketStatuses (status_name) VALUES 
 ('Open'), ('In Progress'), ('Resolved'), ('Closed');
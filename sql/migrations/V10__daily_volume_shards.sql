@@ -0,0 +1,12 @@
+-- V10: split each TicketDailyVolume day and category into shards picked by ticket_id % 8,
+-- so concurrent creates, resolves and closes in one category stop updating the same row.
+-- Existing rows become shard 0; the reports sum over shards.
+
+USE helpdesk_platform;
+
+ALTER TABLE TicketDailyVolume
+    ADD COLUMN shard TINYINT NOT NULL DEFAULT 0 AFTER category_id,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (volume_date, category_id, shard);
+
+INSERT INTO SchemaVersion (version, description) VALUES (10, 'Shard TicketDailyVolume rows');
\ No newline at end of file
@@ -0,0 +1,19 @@
+-- V11: resolving or closing a ticket now clears is_escalated, so idx_tickets_escalated only
+-- holds the open backlog instead of every ticket ever escalated.
+-- The inbox indexes keep just their sort keys (plus category_id, which the dispatch queue reads).
+-- Each one used to carry 8 columns, so every escalation, assignment and status change rewrote
+-- wide entries in all three. A page of pageSize rows now costs pageSize + 1 primary key lookups.
+
+USE helpdesk_platform;
+
+UPDATE Tickets SET is_escalated = FALSE WHERE is_escalated = TRUE AND status_id IN (3, 4);
+
+ALTER TABLE Tickets
+    DROP INDEX idx_tickets_inbox,
+    DROP INDEX idx_tickets_unassigned,
+    DROP INDEX idx_tickets_escalated,
+    ADD INDEX idx_tickets_inbox (agent_id, status_id, priority_id DESC, created_at, ticket_id, category_id),
+    ADD INDEX idx_tickets_unassigned (category_id, agent_id, status_id, priority_id DESC, created_at, ticket_id),
+    ADD INDEX idx_tickets_escalated (is_escalated, priority_id DESC, created_at, ticket_id);
+
+INSERT INTO SchemaVersion (version, description) VALUES (11, 'Trim inbox indexes');
\ No newline at end of file
@@ -0,0 +1,20 @@
+-- V12: conversation search filtered by category or status matched every message containing the
+-- words and only then joined Tickets to drop the rest, so a common word cost the same full-text
+-- scan whatever the filter. Each message now also indexes scope words for its ticket's category
+-- and open/finished state, which the search adds to its full-text query.
+-- The filter now narrows the full-text match itself, so the join no longer reads messages it then drops.
+
+USE helpdesk_platform;
+
+ALTER TABLE TicketConversations
+    ADD COLUMN search_scope VARCHAR(40) NOT NULL DEFAULT '';
+
+UPDATE TicketConversations tc
+JOIN Tickets t ON t.ticket_id = tc.ticket_id
+SET tc.search_scope = CONCAT('category_', t.category_id, IF(t.status_id IN (1, 2), ' status_open', ' status_done'));
+
+ALTER TABLE TicketConversations
+    DROP INDEX idx_conversations_text,
+    ADD FULLTEXT INDEX idx_conversations_text (message_text, search_scope);
+
+INSERT INTO SchemaVersion (version, description) VALUES (12, 'Conversation search scope');
\ No newline at end of file
@@ -0,0 +1,31 @@
+-- V2: production index set
+-- Upgrades a database created from the version 1 schema; fresh installs get
+-- these indexes from helpdesk_schema.sql and do not need to run this file.
+
+USE helpdesk_platform;
+
+CREATE TABLE IF NOT EXISTS SchemaVersion (
+    version INT PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    applied_at DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT IGNORE INTO SchemaVersion (version, description) VALUES (1, 'Baseline schema');
+
+-- Keyset pagination (sort key, id)
+CREATE INDEX idx_customers_name ON Customers (name, customer_id);
+CREATE INDEX idx_agents_name ON Agents (name, agent_id);
+CREATE INDEX idx_tickets_created ON Tickets (created_at, ticket_id);
+CREATE INDEX idx_conversations_ticket_sent ON TicketConversations (ticket_id, sent_at, message_id);
+
+-- Work queue for dispatchers: open, unassigned tickets by priority then age
+CREATE INDEX idx_tickets_queue ON Tickets (status_id, agent_id, priority_id DESC, created_at, ticket_id, category_id);
+
+-- Covering indexes for lookups and reports
+CREATE INDEX idx_tickets_customer ON Tickets (customer_id, created_at);
+CREATE INDEX idx_tickets_agent_status ON Tickets (agent_id, status_id);
+CREATE INDEX idx_tickets_created_category ON Tickets (created_at, category_id);
+CREATE INDEX idx_tickets_closed ON Tickets (closed_at, category_id, created_at);
+CREATE INDEX idx_agent_skills_category ON AgentSkills (skill_category_id, agent_id);
+
+INSERT INTO SchemaVersion (version, description) VALUES (2, 'Production indexes');
\ No newline at end of file
@@ -0,0 +1,13 @@
+-- V3: CategoryMetrics is now maintained when tickets are closed and read by the
+-- category report. Fill it from the tickets closed before the upgrade.
+
+USE helpdesk_platform;
+
+DELETE FROM CategoryMetrics;
+
+INSERT INTO CategoryMetrics (category_id, total_resolution_time, total_resolutions)
+SELECT category_id, SUM(TIMESTAMPDIFF(MINUTE, created_at, closed_at)), COUNT(*)
+FROM Tickets WHERE closed_at IS NOT NULL
+GROUP BY category_id;
+
+INSERT INTO SchemaVersion (version, description) VALUES (3, 'Backfill CategoryMetrics');
\ No newline at end of file
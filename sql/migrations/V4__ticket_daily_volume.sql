@@ -0,0 +1,27 @@
+-- V4: daily ticket volume rollup, read by the volume reports and maintained as
+-- tickets are created, resolved and closed. Created and closed counts are
+-- backfilled from Tickets; past resolutions were never timestamped and start at 0.
+
+USE helpdesk_platform;
+
+CREATE TABLE TicketDailyVolume (
+    volume_date DATE NOT NULL,
+    category_id INT NOT NULL,
+    created_count INT NOT NULL DEFAULT 0,
+    resolved_count INT NOT NULL DEFAULT 0,
+    closed_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (volume_date, category_id),
+    FOREIGN KEY (category_id) REFERENCES TicketCategories(category_id) ON DELETE CASCADE
+);
+
+INSERT INTO TicketDailyVolume (volume_date, category_id, created_count)
+SELECT DATE(created_at), category_id, COUNT(*) FROM Tickets
+GROUP BY DATE(created_at), category_id;
+
+INSERT INTO TicketDailyVolume (volume_date, category_id, closed_count)
+SELECT DATE(closed_at), category_id, COUNT(*) FROM Tickets
+WHERE closed_at IS NOT NULL
+GROUP BY DATE(closed_at), category_id
+ON DUPLICATE KEY UPDATE closed_count = VALUES(closed_count);
+
+INSERT INTO SchemaVersion (version, description) VALUES (4, 'TicketDailyVolume rollup');
\ No newline at end of file
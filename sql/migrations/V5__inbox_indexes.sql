@@ -0,0 +1,17 @@
+-- V5: covering indexes for the agent inbox, unassigned and escalated lists.
+-- idx_tickets_inbox starts with (agent_id, status_id), so it replaces idx_tickets_agent_status,
+-- and with agent_id IS NULL it serves the dispatch queue, replacing idx_tickets_queue.
+
+USE helpdesk_platform;
+
+CREATE INDEX idx_tickets_inbox ON Tickets (agent_id, status_id, priority_id DESC, created_at, ticket_id,
+                                           category_id, customer_id, is_escalated);
+CREATE INDEX idx_tickets_unassigned ON Tickets (category_id, agent_id, status_id, priority_id DESC, created_at,
+                                                ticket_id, customer_id, is_escalated);
+CREATE INDEX idx_tickets_escalated ON Tickets (is_escalated, priority_id DESC, created_at, ticket_id,
+                                               status_id, agent_id, category_id, customer_id);
+
+DROP INDEX idx_tickets_agent_status ON Tickets;
+DROP INDEX idx_tickets_queue ON Tickets;
+
+INSERT INTO SchemaVersion (version, description) VALUES (5, 'Inbox indexes');
\ No newline at end of file
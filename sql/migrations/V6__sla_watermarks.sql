@@ -0,0 +1,18 @@
+-- V6: SLA sweep watermarks and the index the sweeps scan.
+
+USE helpdesk_platform;
+
+CREATE TABLE SlaWatermarks (
+    category_id INT NOT NULL,
+    sla_check VARCHAR(32) NOT NULL,
+    watermark_created_at DATETIME NOT NULL,
+    watermark_ticket_id INT NOT NULL,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (category_id, sla_check),
+    FOREIGN KEY (category_id) REFERENCES TicketCategories(category_id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_tickets_sla ON Tickets (category_id, created_at, ticket_id, status_id, agent_id,
+                                         priority_id, customer_id, is_escalated);
+
+INSERT INTO SchemaVersion (version, description) VALUES (6, 'SLA watermarks');
\ No newline at end of file
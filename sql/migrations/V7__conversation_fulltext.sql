@@ -0,0 +1,8 @@
+-- V7: full-text index for searching conversation messages.
+-- Building it reads every message once; on a large table run it in a quiet period.
+
+USE helpdesk_platform;
+
+CREATE FULLTEXT INDEX idx_conversations_text ON TicketConversations (message_text);
+
+INSERT INTO SchemaVersion (version, description) VALUES (7, 'Conversation full-text index');
\ No newline at end of file
@@ -0,0 +1,10 @@
+-- V8: ticket history audit trail. changed_by becomes optional (changes made by customers,
+-- dispatchers and SLA escalation have no agent) and history is paged per ticket in time order.
+
+USE helpdesk_platform;
+
+ALTER TABLE TicketHistory MODIFY changed_by INT NULL;
+
+CREATE INDEX idx_history_ticket_changed ON TicketHistory (ticket_id, changed_at, history_id);
+
+INSERT INTO SchemaVersion (version, description) VALUES (8, 'Ticket history audit trail');
\ No newline at end of file
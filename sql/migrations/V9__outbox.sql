@@ -0,0 +1,22 @@
+-- V9: transactional outbox for ticket lifecycle events and the relays' delivery watermarks.
+
+USE helpdesk_platform;
+
+-- Ticket lifecycle events, written in the same transaction as the change; OutboxRelay
+-- delivers them to downstream sinks in event_id order
+CREATE TABLE OutboxEvents (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ticket_id INT NOT NULL,
+    event_type VARCHAR(32) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Last event each relay has delivered
+CREATE TABLE OutboxWatermarks (
+    relay_name VARCHAR(64) PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+INSERT INTO SchemaVersion (version, description) VALUES (9, 'Ticket event outbox');
\ No newline at end of file
@@ -0,0 +1,270 @@
+package com.helpdesk.benchmark;
+
+import com.helpdesk.dao.AgentDAO;
+import com.helpdesk.db.DatabaseConnection;
+import com.helpdesk.model.NewTicket;
+import com.helpdesk.service.HelpDeskService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Shared benchmark state: a seeded database of the requested size.
+ *
+ * Seeding is incremental, so a database that already holds enough tickets is reused as is
+ * and a larger scale only inserts the difference. Point the run at a dedicated database with
+ * -jvmArgsAppend "-Dhelpdesk.db.url=jdbc:mysql://localhost:3306/helpdesk_bench?..."; the schema
+ * must already be loaded there.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+    private static final int CUSTOMERS = 1000;
+    private static final int AGENTS = 50;
+    private static final int CATEGORIES = 4;
+    private static final int PRIORITIES = 4;
+    private static final int SEED_CHUNK = 5000;
+    private static final int HISTORY_DAYS = 365;
+    private static final int OPEN_TICKET_SAMPLE = 100000;
+    
+    /**
+     * Number of tickets to seed, e.g. -p tickets=10000,1000000,10000000
+     */
+    @Param({"10000"})
+    public int tickets;
+    
+    HelpDeskService service;
+    int[] customerIds;
+    int[] agentIds;
+    int minTicketId;
+    int maxTicketId;
+    int[] openTicketIds;
+    
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        service = new HelpDeskService();
+        Random random = new Random(42);
+        
+        seedCustomers();
+        seedAgents();
+        customerIds = loadIds("SELECT customer_id FROM Customers");
+        agentIds = loadIds("SELECT agent_id FROM Agents");
+        seedTickets(random);
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(ticket_id), MAX(ticket_id) FROM Tickets")) {
+            rs.next();
+            minTicketId = rs.getInt(1);
+            maxTicketId = rs.getInt(2);
+        }
+        // Assignment benchmarks only touch these, and reopenTickets() puts them back after each iteration
+        openTicketIds = loadIds("SELECT ticket_id FROM Tickets WHERE status_id = 1 AND agent_id IS NULL " +
+                                "ORDER BY ticket_id LIMIT " + OPEN_TICKET_SAMPLE);
+        if (openTicketIds.length == 0) {
+            throw new IllegalStateException("No open, unassigned tickets to benchmark assignment with");
+        }
+        System.out.println("Benchmark data: " + customerIds.length + " customers, " + agentIds.length +
+                           " agents, tickets " + minTicketId + ".." + maxTicketId +
+                           ", " + openTicketIds.length + " open tickets for assignment");
+    }
+    
+    /**
+     * Return the sampled open tickets to Open and unassigned, so every iteration and fork
+     * assigns from the same starting state
+     */
+    @TearDown(Level.Iteration)
+    public void reopenTickets() throws SQLException {
+        HelpDeskService.flushTicketHistory();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < openTicketIds.length; from += SEED_CHUNK) {
+                int[] chunk = Arrays.copyOfRange(openTicketIds, from, Math.min(from + SEED_CHUNK, openTicketIds.length));
+                String sql = "UPDATE Tickets SET agent_id = NULL, assigned_at = NULL, status_id = 1 " +
+                            "WHERE ticket_id IN (" + placeholders(chunk.length) + ") " +
+                            "AND (agent_id IS NOT NULL OR status_id <> 1)";
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.length; i++) {
+                        pstmt.setInt(i + 1, chunk[i]);
+                    }
+                    pstmt.executeUpdate();
+                }
+            }
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        HelpDeskService.flushAgentMetrics();
+        HelpDeskService.flushTicketHistory();
+        DatabaseConnection.closeConnection();
+    }
+    
+    int randomTicketId() {
+        return ThreadLocalRandom.current().nextInt(minTicketId, maxTicketId + 1);
+    }
+    
+    int randomOpenTicketId() {
+        return openTicketIds[ThreadLocalRandom.current().nextInt(openTicketIds.length)];
+    }
+    
+    int randomCustomerId() {
+        return customerIds[ThreadLocalRandom.current().nextInt(customerIds.length)];
+    }
+    
+    int randomAgentId() {
+        return agentIds[ThreadLocalRandom.current().nextInt(agentIds.length)];
+    }
+    
+    private void seedCustomers() throws SQLException {
+        long existing = count("SELECT COUNT(*) FROM Customers");
+        for (long i = existing; i < CUSTOMERS; i++) {
+            service.registerCustomer("Bench Customer " + i, "bench-customer-" + i + "-" + System.nanoTime() + "@example.com");
+        }
+    }
+    
+    private void seedAgents() throws SQLException {
+        long existing = count("SELECT COUNT(*) FROM Agents");
+        for (long i = existing; i < AGENTS; i++) {
+            int agentId = service.registerAgent("Bench Agent " + i, "bench-agent-" + i + "-" + System.nanoTime() + "@company.com",
+                                                null, null);
+            for (int categoryId = 1; categoryId <= CATEGORIES; categoryId++) {
+                service.addSkillToAgent(agentId, categoryId);
+            }
+        }
+    }
+    
+    /**
+     * Top up Tickets to the requested count through the bulk path, then spread creation
+     * dates over the last year and close roughly half so the reports have work to do.
+     * Backdating bypasses the service: it counts the assignments in AgentMetrics itself,
+     * and the date-keyed rollups are rebuilt afterwards.
+     */
+    private void seedTickets(Random random) throws SQLException {
+        long missing = tickets - count("SELECT COUNT(*) FROM Tickets");
+        if (missing <= 0) {
+            return;
+        }
+        while (missing > 0) {
+            int size = (int) Math.min(SEED_CHUNK, missing);
+            List<NewTicket> chunk = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                chunk.add(new NewTicket(customerIds[random.nextInt(customerIds.length)],
+                                        1 + random.nextInt(CATEGORIES), 1 + random.nextInt(PRIORITIES),
+                                        "Benchmark ticket message"));
+            }
+            backdate(service.createTicketsWithMessages(chunk).getTicketIds(), random);
+            missing -= size;
+        }
+        service.rebuildCategoryMetrics();
+        service.rebuildDailyVolume();
+    }
+    
+    /**
+     * Move a chunk of new tickets and their first messages into the past and close about half,
+     * as if each closed ticket had been assigned to an agent and closed without a resolution.
+     * The tickets and the agents' assignment counts change in one transaction.
+     */
+    private void backdate(int[] ticketIds, Random random) throws SQLException {
+        String sql = "UPDATE Tickets SET created_at = ?, agent_id = ?, assigned_at = ?, status_id = ?, closed_at = ? " +
+                    "WHERE ticket_id = ?";
+        String messageSql = "UPDATE TicketConversations SET sent_at = ? WHERE ticket_id = ?";
+        long now = System.currentTimeMillis();
+        Map<Integer, Integer> assignmentsByAgent = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                 PreparedStatement messagePstmt = conn.prepareStatement(messageSql)) {
+                
+                addBackdates(pstmt, messagePstmt, ticketIds, random, now, assignmentsByAgent);
+                pstmt.executeBatch();
+                messagePstmt.executeBatch();
+                AgentDAO agentDAO = new AgentDAO();
+                for (Map.Entry<Integer, Integer> entry : assignmentsByAgent.entrySet()) {
+                    agentDAO.updateAgentMetricsOnAssignment(conn, entry.getKey(), entry.getValue());
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    private void addBackdates(PreparedStatement pstmt, PreparedStatement messagePstmt, int[] ticketIds, Random random,
+                              long now, Map<Integer, Integer> assignmentsByAgent) throws SQLException {
+        for (int ticketId : ticketIds) {
+            if (ticketId == 0) {
+                continue;
+            }
+            long createdAt = now - (long) random.nextInt(HISTORY_DAYS * 24 * 60) * 60 * 1000;
+            boolean closed = random.nextBoolean();
+            pstmt.setTimestamp(1, new Timestamp(createdAt));
+            if (closed) {
+                int agentId = agentIds[random.nextInt(agentIds.length)];
+                assignmentsByAgent.merge(agentId, 1, Integer::sum);
+                pstmt.setInt(2, agentId);
+                pstmt.setTimestamp(3, new Timestamp(createdAt + 15 * 60 * 1000));
+                pstmt.setInt(4, 4);
+                pstmt.setTimestamp(5, new Timestamp(createdAt + (30 + random.nextInt(2880)) * 60 * 1000L));
+            } else {
+                pstmt.setNull(2, Types.INTEGER);
+                pstmt.setNull(3, Types.TIMESTAMP);
+                pstmt.setInt(4, 1);
+                pstmt.setNull(5, Types.TIMESTAMP);
+            }
+            pstmt.setInt(6, ticketId);
+            pstmt.addBatch();
+            messagePstmt.setTimestamp(1, new Timestamp(createdAt));
+            messagePstmt.setInt(2, ticketId);
+            messagePstmt.addBatch();
+        }
+    }
+    
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+    
+    private long count(String sql) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    private int[] loadIds(String sql) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
\ No newline at end of file
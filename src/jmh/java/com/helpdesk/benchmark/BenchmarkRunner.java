@@ -0,0 +1,124 @@
+package com.helpdesk.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Runs the JMH benchmarks and compares them with a saved baseline.
+ *
+ * Accepts the usual JMH command line. With -Dbench.baseline=file the throughput and p99
+ * latency of every benchmark are compared to the file, and the process exits with status 1
+ * if any throughput drops or any p99 rises by more than -Dbench.tolerance (default 0.10).
+ * If the file does not exist yet the results are written to it as the new baseline.
+ */
+public class BenchmarkRunner {
+    private static final double DEFAULT_TOLERANCE = 0.10;
+    
+    public static void main(String[] args) throws Exception {
+        Options options = new CommandLineOptions(args);
+        Collection<RunResult> results = new Runner(options).run();
+        
+        String baselinePath = System.getProperty("bench.baseline");
+        if (baselinePath == null) {
+            return;
+        }
+        
+        Map<String, Double> current = summarize(results);
+        File baselineFile = new File(baselinePath);
+        if (!baselineFile.exists()) {
+            save(current, baselineFile);
+            System.out.println("Saved new benchmark baseline to " + baselineFile);
+            return;
+        }
+        
+        double tolerance = Double.parseDouble(System.getProperty("bench.tolerance", String.valueOf(DEFAULT_TOLERANCE)));
+        if (!compare(load(baselineFile), current, tolerance)) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * One entry per benchmark and parameter set: "name[params]:thrpt" (ops/time) and "name[params]:p99" (time/op)
+     */
+    private static Map<String, Double> summarize(Collection<RunResult> results) {
+        Map<String, Double> summary = new TreeMap<>();
+        for (RunResult run : results) {
+            String key = run.getParams().getBenchmark() + paramsOf(run);
+            Result<?> primary = run.getPrimaryResult();
+            Mode mode = run.getParams().getMode();
+            if (mode == Mode.Throughput) {
+                summary.put(key + ":thrpt", primary.getScore());
+            } else if (mode == Mode.SampleTime) {
+                summary.put(key + ":p99", primary.getStatistics().getPercentile(99.0));
+            }
+        }
+        return summary;
+    }
+    
+    private static String paramsOf(RunResult run) {
+        StringBuilder params = new StringBuilder();
+        for (String name : run.getParams().getParamsKeys()) {
+            params.append(params.length() == 0 ? "[" : ",").append(name).append('=').append(run.getParams().getParam(name));
+        }
+        return params.length() == 0 ? "" : params.append(']').toString();
+    }
+    
+    private static boolean compare(Map<String, Double> baseline, Map<String, Double> current, double tolerance) {
+        boolean passed = true;
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            Double before = baseline.get(entry.getKey());
+            if (before == null || before == 0) {
+                continue;
+            }
+            double after = entry.getValue();
+            // Throughput regresses by dropping, latency by rising
+            double change = entry.getKey().endsWith(":thrpt") ? (before - after) / before : (after - before) / before;
+            String line = String.format("%-90s %12.3f -> %12.3f (%+.1f%%)", entry.getKey(), before, after,
+                                        (after - before) * 100 / before);
+            if (change > tolerance) {
+                System.out.println("REGRESSION " + line);
+                passed = false;
+            } else {
+                System.out.println("ok         " + line);
+            }
+        }
+        return passed;
+    }
+    
+    private static void save(Map<String, Double> summary, File file) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Double> entry : summary.entrySet()) {
+            properties.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        try (Writer writer = new FileWriter(file)) {
+            properties.store(writer, "JMH baseline: throughput in ops/time unit, p99 in time unit per op");
+        }
+    }
+    
+    private static Map<String, Double> load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(file)) {
+            properties.load(reader);
+        }
+        Map<String, Double> summary = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            summary.put(key, Double.parseDouble(properties.getProperty(key)));
+        }
+        return summary;
+    }
+}
\ No newline at end of file
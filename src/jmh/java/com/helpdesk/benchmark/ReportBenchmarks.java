@@ -0,0 +1,41 @@
+package com.helpdesk.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reporting query benchmarks; single-threaded since reports are not on the request path
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ReportBenchmarks {
+    
+    @Benchmark
+    public List<Object[]> categoryPerformanceReport(BenchmarkData data) throws SQLException {
+        return data.service.getCategoryPerformanceReport();
+    }
+    
+    @Benchmark
+    public List<Object[]> monthlyVolumeReport(BenchmarkData data) throws SQLException {
+        LocalDate today = LocalDate.now();
+        return data.service.getMonthlyVolumeReport(today.getYear(), today.getMonthValue());
+    }
+    
+    @Benchmark
+    public List<Object[]> topPerformingAgents(BenchmarkData data) throws SQLException {
+        return data.service.getTopPerformingAgents();
+    }
+}
\ No newline at end of file
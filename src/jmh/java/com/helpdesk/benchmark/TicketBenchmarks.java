@@ -0,0 +1,55 @@
+package com.helpdesk.benchmark;
+
+import com.helpdesk.model.TicketConversation;
+import com.helpdesk.service.HelpDeskService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-path benchmarks: ticket creation, lookups and assignment.
+ * Throughput and sampled latency (p99) are both reported.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(4)
+public class TicketBenchmarks {
+    
+    @Benchmark
+    public int createTicketWithMessage(BenchmarkData data) throws SQLException {
+        int categoryId = 1 + ThreadLocalRandom.current().nextInt(4);
+        int priorityId = 1 + ThreadLocalRandom.current().nextInt(4);
+        return data.service.createTicketWithMessage(data.randomCustomerId(), categoryId, priorityId, "Benchmark message");
+    }
+    
+    @Benchmark
+    public HelpDeskService.TicketDetails getFullTicketDetails(BenchmarkData data) throws SQLException {
+        return data.service.getFullTicketDetails(data.randomTicketId());
+    }
+    
+    @Benchmark
+    public List<TicketConversation> getConversationHistory(BenchmarkData data) throws SQLException {
+        return data.service.getTicketConversation(data.randomTicketId());
+    }
+    
+    /**
+     * Assigns or reassigns tickets that were open at setup; BenchmarkData reopens them after each iteration
+     */
+    @Benchmark
+    public boolean assignTicketToAgent(BenchmarkData data) throws SQLException {
+        return data.service.assignTicketToAgent(data.randomOpenTicketId(), data.randomAgentId());
+    }
+}
\ No newline at end of file
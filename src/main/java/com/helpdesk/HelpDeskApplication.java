@@ -31,6 +31,12 @@ public class HelpDeskApplication {
             System.err.println("Database error: " + e.getMessage());
             e.printStackTrace();
         } finally {
+            try {
+                HelpDeskService.flushAgentMetrics();
+            } catch (SQLException e) {
+                System.err.println("Could not write pending agent metrics: " + e.getMessage());
+            }
+            HelpDeskService.flushTicketHistory();
             DatabaseConnection.closeConnection();
             scanner.close();
         }
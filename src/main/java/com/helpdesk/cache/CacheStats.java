@@ -0,0 +1,71 @@
+package com.helpdesk.cache;
+
+/**
+ * Point-in-time counters of an EntityCache
+ */
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final int size;
+    
+    public CacheStats(long hits, long misses, long evictions, long expirations, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.size = size;
+    }
+    
+    /**
+     * Combine the counters of two caches (e.g. the by-ID and by-email caches of one entity)
+     */
+    public CacheStats plus(CacheStats other) {
+        return new CacheStats(hits + other.hits, misses + other.misses, evictions + other.evictions,
+                expirations + other.expirations, size + other.size);
+    }
+    
+    // Getters
+    public long getHits() {
+        return hits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+    /**
+     * Entries dropped because the cache was full
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+    
+    /**
+     * Entries dropped because their TTL had passed
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+    
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", expirations=" + expirations +
+                ", size=" + size +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.helpdesk.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Size-bounded LRU cache with a per-entry time to live.
+ *
+ * Readers that load a value from the database should take generation() before
+ * the query and store the result with put(key, value, generation). If any
+ * invalidation happened in between, the put is dropped, so a slow reader cannot
+ * put back a row that a concurrent update has just invalidated.
+ *
+ * A cache built with an index function also keeps its keys grouped by a second key taken from
+ * each value (e.g. the entity ID of an email-keyed cache), so invalidateIndexed() drops every
+ * entry of one entity without scanning the cache.
+ */
+public class EntityCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final Function<? super V, ?> indexKeyOf;
+    private final Map<Object, Set<K>> keysByIndex = new HashMap<>();
+    
+    private long generation = 0;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    public EntityCache(int maxSize, long ttl, TimeUnit unit) {
+        this(maxSize, ttl, unit, null, System::nanoTime);
+    }
+    
+    /**
+     * A cache whose entries can also be invalidated by indexKeyOf(value)
+     */
+    public EntityCache(int maxSize, long ttl, TimeUnit unit, Function<? super V, ?> indexKeyOf) {
+        this(maxSize, ttl, unit, indexKeyOf, System::nanoTime);
+    }
+    
+    EntityCache(int maxSize, long ttl, TimeUnit unit, Function<? super V, ?> indexKeyOf, LongSupplier clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.clock = clock;
+        this.indexKeyOf = indexKeyOf;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions.increment();
+                    unindex(eldest.getKey(), eldest.getValue().value);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Get a cached value, or null on a miss or if the entry has expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (clock.getAsLong() - entry.expiresAt > 0) {
+            entries.remove(key);
+            unindex(key, entry.value);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+    
+    /**
+     * Current invalidation generation, to pass to put() after loading a value
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+    
+    /**
+     * Cache a value loaded at the given generation; ignored if an invalidation happened since
+     */
+    public synchronized void put(K key, V value, long loadedAtGeneration) {
+        if (value != null && loadedAtGeneration == generation) {
+            Entry<V> previous = entries.put(key, new Entry<>(value, clock.getAsLong() + ttlNanos));
+            if (previous != null) {
+                unindex(key, previous.value);
+            }
+            if (indexKeyOf != null) {
+                keysByIndex.computeIfAbsent(indexKeyOf.apply(value), k -> new HashSet<>()).add(key);
+            }
+        }
+    }
+    
+    public synchronized void invalidate(K key) {
+        generation++;
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            unindex(key, removed.value);
+        }
+    }
+    
+    /**
+     * Invalidate every entry whose value has the given index key (e.g. all keys that map to one entity ID)
+     */
+    public synchronized void invalidateIndexed(Object indexKey) {
+        if (indexKeyOf == null) {
+            throw new IllegalStateException("Cache has no index");
+        }
+        generation++;
+        Set<K> keys = keysByIndex.remove(indexKey);
+        if (keys != null) {
+            for (K key : keys) {
+                entries.remove(key);
+            }
+        }
+    }
+    
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        keysByIndex.clear();
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    private void unindex(K key, V value) {
+        if (indexKeyOf == null) {
+            return;
+        }
+        Object indexKey = indexKeyOf.apply(value);
+        Set<K> keys = keysByIndex.get(indexKey);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByIndex.remove(indexKey);
+        }
+    }
+    
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size());
+    }
+    
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.helpdesk.cache;
+
+/**
+ * Immutable snapshot of the reference tables (TicketStatuses, TicketPriorities, TicketCategories).
+ * Values are stored in arrays indexed directly by ID, so lookups are a bounds check and an array read.
+ */
+public final class ReferenceData {
+    private final String[] statusNames;
+    private final String[] priorityNames;
+    private final String[] categoryNames;
+    private final long[] maxResponseMinutes;
+    private final long[] maxResolutionMinutes;
+    
+    public ReferenceData(String[] statusNames, String[] priorityNames, String[] categoryNames,
+                         long[] maxResponseMinutes, long[] maxResolutionMinutes) {
+        this.statusNames = statusNames.clone();
+        this.priorityNames = priorityNames.clone();
+        this.categoryNames = categoryNames.clone();
+        this.maxResponseMinutes = maxResponseMinutes.clone();
+        this.maxResolutionMinutes = maxResolutionMinutes.clone();
+    }
+    
+    /**
+     * Status name, or null if the ID is unknown
+     */
+    public String getStatusName(int statusId) {
+        return lookup(statusNames, statusId);
+    }
+    
+    /**
+     * Priority name, or null if the ID is unknown
+     */
+    public String getPriorityName(int priorityId) {
+        return lookup(priorityNames, priorityId);
+    }
+    
+    /**
+     * Category name, or null if the ID is unknown
+     */
+    public String getCategoryName(int categoryId) {
+        return lookup(categoryNames, categoryId);
+    }
+    
+    public boolean hasCategory(int categoryId) {
+        return getCategoryName(categoryId) != null;
+    }
+    
+    /**
+     * SLA response target in minutes, or -1 if the category is unknown
+     */
+    public long getMaxResponseMinutes(int categoryId) {
+        return hasCategory(categoryId) ? maxResponseMinutes[categoryId] : -1;
+    }
+    
+    /**
+     * SLA resolution target in minutes, or -1 if the category is unknown
+     */
+    public long getMaxResolutionMinutes(int categoryId) {
+        return hasCategory(categoryId) ? maxResolutionMinutes[categoryId] : -1;
+    }
+    
+    /**
+     * Highest category ID + 1; category IDs are in [1, getCategoryIdLimit())
+     */
+    public int getCategoryIdLimit() {
+        return categoryNames.length;
+    }
+    
+    private static String lookup(String[] names, int id) {
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.helpdesk.cache;
+
+import com.helpdesk.dao.ReferenceDataDAO;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide read-through cache of the reference tables.
+ *
+ * The tables are loaded once on first use and then served from an immutable
+ * ReferenceData snapshot. Call refresh() after changing a reference table; a
+ * lookup of an ID missing from the snapshot also triggers a reload, at most
+ * once per MIN_RELOAD_INTERVAL_MILLIS.
+ *
+ * DAOs take the snapshot with get(conn) before running a query and hand it to
+ * their row mappers, so mapping a row never borrows a second connection. For the
+ * same reason a miss during mapping reloads in the background rather than waiting.
+ */
+public class ReferenceDataCache {
+    private static final Logger LOG = Logger.getLogger(ReferenceDataCache.class.getName());
+    private static final long MIN_RELOAD_INTERVAL_MILLIS = 1000;
+    
+    private static final ReferenceDataDAO referenceDataDAO = new ReferenceDataDAO();
+    private static final ExecutorService reloader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "reference-data-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicBoolean reloadPending = new AtomicBoolean();
+    
+    private static volatile ReferenceData current = null;
+    private static volatile long loadedAt = 0;
+    
+    private ReferenceDataCache() {}
+    
+    /**
+     * Get the current snapshot, loading it on first use. Borrows a connection, so callers
+     * that already hold one use get(conn).
+     */
+    public static ReferenceData get() throws SQLException {
+        ReferenceData data = current;
+        if (data == null) {
+            synchronized (ReferenceDataCache.class) {
+                if (current == null) {
+                    refresh();
+                }
+                data = current;
+            }
+        }
+        return data;
+    }
+    
+    /**
+     * Get the current snapshot, loading it on the caller's connection on first use
+     */
+    public static ReferenceData get(Connection conn) throws SQLException {
+        ReferenceData data = current;
+        if (data == null) {
+            synchronized (ReferenceDataCache.class) {
+                if (current == null) {
+                    install(referenceDataDAO.loadReferenceData(conn));
+                }
+                data = current;
+            }
+        }
+        return data;
+    }
+    
+    /**
+     * Reload all reference tables and swap in the new snapshot
+     */
+    public static synchronized void refresh() throws SQLException {
+        install(referenceDataDAO.loadReferenceData());
+    }
+    
+    /**
+     * Status name, or null if the ID is in neither the given snapshot nor the current one
+     */
+    public static String getStatusName(ReferenceData data, int statusId) {
+        return lookup(data, snapshot -> snapshot.getStatusName(statusId));
+    }
+    
+    /**
+     * Priority name, or null if the ID is in neither the given snapshot nor the current one
+     */
+    public static String getPriorityName(ReferenceData data, int priorityId) {
+        return lookup(data, snapshot -> snapshot.getPriorityName(priorityId));
+    }
+    
+    /**
+     * Category name, or null if the ID is in neither the given snapshot nor the current one
+     */
+    public static String getCategoryName(ReferenceData data, int categoryId) {
+        return lookup(data, snapshot -> snapshot.getCategoryName(categoryId));
+    }
+    
+    private static synchronized void install(ReferenceData data) {
+        current = data;
+        loadedAt = System.currentTimeMillis();
+    }
+    
+    private static String lookup(ReferenceData data, Function<ReferenceData, String> name) {
+        String value = name.apply(data);
+        if (value != null) {
+            return value;
+        }
+        ReferenceData latest = current;
+        value = latest == null || latest == data ? null : name.apply(latest);
+        if (value == null) {
+            reloadLater();
+        }
+        return value;
+    }
+    
+    /**
+     * Reload on the cache's own thread after a lookup missed, unless the snapshot was loaded very recently
+     */
+    private static void reloadLater() {
+        if (System.currentTimeMillis() - loadedAt < MIN_RELOAD_INTERVAL_MILLIS || !reloadPending.compareAndSet(false, true)) {
+            return;
+        }
+        reloader.execute(() -> {
+            try {
+                refresh();
+            } catch (SQLException e) {
+                LOG.warning("Reference data reload failed: " + e.getMessage());
+            } finally {
+                reloadPending.set(false);
+            }
+        });
+    }
+}
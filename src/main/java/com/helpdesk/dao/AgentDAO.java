@@ -1,22 +1,61 @@
 package com.helpdesk.dao;
 
+import com.helpdesk.cache.CacheStats;
+import com.helpdesk.cache.EntityCache;
 import com.helpdesk.db.DatabaseConnection;
 import com.helpdesk.model.Agent;
+import com.helpdesk.model.AgentMetricsDelta;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Data Access Object for Agent operations
  */
 public class AgentDAO {
+    private static final int CACHE_MAX_SIZE = 2000;
+    private static final long CACHE_TTL_MINUTES = 5;
+    
+    // Shared by all DAO instances so every caller sees the same invalidations
+    private static final EntityCache<Integer, Agent> agentsById =
+            new EntityCache<>(CACHE_MAX_SIZE, CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+    private static final EntityCache<String, Agent> agentsByEmail =
+            new EntityCache<>(CACHE_MAX_SIZE, CACHE_TTL_MINUTES, TimeUnit.MINUTES, Agent::getAgentId);
+    
+    // Stops at the first matching index entry instead of counting them all
+    static final String HAS_TICKETS_SQL = "SELECT 1 FROM Tickets WHERE agent_id = ? LIMIT 1";
+    
+    static final String AGENTS_BY_SKILL_SQL =
+                    "SELECT a.* FROM Agents a " +
+                    "JOIN AgentSkills as_skill ON a.agent_id = as_skill.agent_id " +
+                    "WHERE as_skill.skill_category_id = ? " +
+                    "ORDER BY a.name";
+    
+    static final String ROUTING_CANDIDATES_SQL =
+                    "SELECT a.agent_id, a.available_from, a.available_to, am.is_assigned, " +
+                    "COALESCE(load_count.open_tickets, 0) as open_tickets " +
+                    "FROM Agents a " +
+                    "JOIN AgentMetrics am ON a.agent_id = am.agent_id " +
+                    "LEFT JOIN (SELECT agent_id, COUNT(*) as open_tickets FROM Tickets " +
+                    "           WHERE agent_id IS NOT NULL AND status_id IN (1, 2) " +
+                    "           GROUP BY agent_id) load_count ON a.agent_id = load_count.agent_id";
+    
     // Creating a new agent
     public int createAgent(Agent agent) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return createAgent(conn, agent);
+        }
+    }
+    
+    /**
+     * Create a new agent and its metrics row on the caller's connection
+     */
+    public int createAgent(Connection conn, Agent agent) throws SQLException {
         String sql = "INSERT INTO Agents (name, email, available_from, available_to) VALUES (?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setString(1, agent.getName());
             pstmt.setString(2, agent.getEmail());
@@ -32,8 +71,8 @@ public class AgentDAO {
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     int agentId = generatedKeys.getInt(1);
-                    // Initialize agent metrics
-                    initializeAgentMetrics(agentId);
+                    // Initialize agent metrics on the same connection
+                    initializeAgentMetrics(conn, agentId);
                     return agentId;
                 } else {
                     throw new SQLException("Creating agent failed, no ID obtained.");
@@ -45,12 +84,11 @@ public class AgentDAO {
     /**
      * Initialize agent metrics for a new agent
      */
-    private void initializeAgentMetrics(int agentId) throws SQLException {
+    private void initializeAgentMetrics(Connection conn, int agentId) throws SQLException {
         String sql = "INSERT INTO AgentMetrics (agent_id, total_resolutions, total_tickets_assigned, total_handle_time, is_assigned) " +
                     "VALUES (?, 0, 0, 0, true)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, agentId);
             pstmt.executeUpdate();
@@ -61,12 +99,37 @@ public class AgentDAO {
      * Get agent by ID
      */
     public Agent getAgentById(int agentId) throws SQLException {
-        String sql = "SELECT * FROM Agents WHERE agent_id = ?";
+        Agent cached = agentsById.get(agentId);
+        if (cached != null) {
+            return copyOf(cached);
+        }
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        long generation = agentsById.generation();
+        Agent agent = loadAgent("SELECT * FROM Agents WHERE agent_id = ?", agentId);
+        agentsById.put(agentId, agent, generation);
+        return copyOf(agent);
+    }
+    
+    /**
+     * Get agent by email
+     */
+    public Agent getAgentByEmail(String email) throws SQLException {
+        Agent cached = agentsByEmail.get(email);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long generation = agentsByEmail.generation();
+        Agent agent = loadAgent("SELECT * FROM Agents WHERE email = ?", email);
+        agentsByEmail.put(email, agent, generation);
+        return copyOf(agent);
+    }
+    
+    private Agent loadAgent(String sql, Object key) throws SQLException {
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setInt(1, agentId);
+            pstmt.setObject(1, key);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -78,43 +141,64 @@ public class AgentDAO {
     }
     
     /**
-     * Get agent by email
+     * Get all agents
      */
-    public Agent getAgentByEmail(String email) throws SQLException {
-        String sql = "SELECT * FROM Agents WHERE email = ?";
+    public List<Agent> getAllAgents() throws SQLException {
+        List<Agent> agents = new ArrayList<>();
+        forEachAgent(agents::add);
+        return agents;
+    }
+    
+    /**
+     * Stream all agents to the callback without loading them into memory
+     */
+    public void forEachAgent(RowCallback<Agent> callback) throws SQLException {
+        String sql = "SELECT * FROM Agents ORDER BY name";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setString(1, email);
+            pstmt.setFetchSize(DatabaseConnection.STREAM_FETCH_SIZE);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToAgent(rs);
+                while (rs.next()) {
+                    callback.processRow(mapResultSetToAgent(rs));
                 }
             }
         }
-        return null;
     }
     
     /**
-     * Get all agents
+     * Get a page of agents ordered by name, starting after the cursor (null for the first page)
      */
-    public List<Agent> getAllAgents() throws SQLException {
-        String sql = "SELECT * FROM Agents ORDER BY name";
+    public Page<Agent> getAgentsPage(PageCursor after, int pageSize) throws SQLException {
+        Page.checkPageSize(pageSize);
+        String sql = "SELECT * FROM Agents " +
+                    (after == null ? "" : "WHERE name >= ? AND (name > ? OR agent_id > ?) ") +
+                    "ORDER BY name, agent_id LIMIT ?";
         
-        List<Agent> agents = new ArrayList<>();
+        List<Agent> rows = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            while (rs.next()) {
-                agents.add(mapResultSetToAgent(rs));
+            int index = 1;
+            if (after != null) {
+                String name = (String) after.getSortKey();
+                pstmt.setString(index++, name);
+                pstmt.setString(index++, name);
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, pageSize + 1);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToAgent(rs));
+                }
             }
         }
         
-        return agents;
+        return Page.fromRows(rows, pageSize, agent -> new PageCursor(agent.getName(), agent.getAgentId()));
     }
     
     /**
@@ -133,6 +217,8 @@ public class AgentDAO {
             pstmt.setInt(5, agent.getAgentId());
             
             return pstmt.executeUpdate() > 0;
+        } finally {
+            invalidateCache(agent.getAgentId());
         }
     }
     
@@ -152,7 +238,7 @@ public class AgentDAO {
         
         List<Object[]> result = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             
@@ -176,13 +262,29 @@ public class AgentDAO {
      * Update agent metrics when a ticket is assigned
      */
     public boolean updateAgentMetricsOnAssignment(int agentId) throws SQLException {
-        String sql = "UPDATE AgentMetrics SET total_tickets_assigned = total_tickets_assigned + 1 " +
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return updateAgentMetricsOnAssignment(conn, agentId);
+        }
+    }
+    
+    /**
+     * Update agent metrics when a ticket is assigned, on the caller's connection
+     */
+    public boolean updateAgentMetricsOnAssignment(Connection conn, int agentId) throws SQLException {
+        return updateAgentMetricsOnAssignment(conn, agentId, 1);
+    }
+    
+    /**
+     * Count several tickets assigned to the agent at once
+     */
+    public boolean updateAgentMetricsOnAssignment(Connection conn, int agentId, int ticketCount) throws SQLException {
+        String sql = "UPDATE AgentMetrics SET total_tickets_assigned = total_tickets_assigned + ? " +
                     "WHERE agent_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setInt(1, agentId);
+            pstmt.setInt(1, ticketCount);
+            pstmt.setInt(2, agentId);
             return pstmt.executeUpdate() > 0;
         }
     }
@@ -191,13 +293,21 @@ public class AgentDAO {
      * Update agent metrics when a ticket is resolved
      */
     public boolean updateAgentMetricsOnResolution(int agentId, long handleTimeMinutes) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return updateAgentMetricsOnResolution(conn, agentId, handleTimeMinutes);
+        }
+    }
+    
+    /**
+     * Update agent metrics when a ticket is resolved, on the caller's connection
+     */
+    public boolean updateAgentMetricsOnResolution(Connection conn, int agentId, long handleTimeMinutes) throws SQLException {
         String sql = "UPDATE AgentMetrics SET " +
                     "total_resolutions = total_resolutions + 1, " +
                     "total_handle_time = total_handle_time + ? " +
                     "WHERE agent_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setLong(1, handleTimeMinutes);
             pstmt.setInt(2, agentId);
@@ -205,6 +315,36 @@ public class AgentDAO {
         }
     }
     
+    /**
+     * Add the given amounts to several agents' metrics in one batched upsert (a single multi-row
+     * statement with rewriteBatchedStatements). Deltas should be sorted by agent ID so concurrent
+     * writers lock the rows in the same order. A missing row is created with is_assigned off, so a
+     * flush never opts an agent into routing.
+     */
+    public void addToAgentMetrics(Connection conn, List<AgentMetricsDelta> deltas) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO AgentMetrics (agent_id, total_tickets_assigned, total_resolutions, total_handle_time, is_assigned) " +
+                    "VALUES (?, ?, ?, ?, false) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "total_tickets_assigned = total_tickets_assigned + VALUES(total_tickets_assigned), " +
+                    "total_resolutions = total_resolutions + VALUES(total_resolutions), " +
+                    "total_handle_time = total_handle_time + VALUES(total_handle_time)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (AgentMetricsDelta delta : deltas) {
+                pstmt.setInt(1, delta.getAgentId());
+                pstmt.setLong(2, delta.getTicketsAssigned());
+                pstmt.setLong(3, delta.getResolutions());
+                pstmt.setLong(4, delta.getHandleTimeMinutes());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
     /**
      * Add skill to agent
      */
@@ -240,14 +380,11 @@ public class AgentDAO {
      * Get agents with specific skill (category)
      */
     public List<Agent> getAgentsBySkill(int categoryId) throws SQLException {
-        String sql = "SELECT a.* FROM Agents a " +
-                    "JOIN AgentSkills as_skill ON a.agent_id = as_skill.agent_id " +
-                    "WHERE as_skill.skill_category_id = ? " +
-                    "ORDER BY a.name";
+        String sql = AGENTS_BY_SKILL_SQL;
         
         List<Agent> agents = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, categoryId);
@@ -275,7 +412,7 @@ public class AgentDAO {
         
         List<Agent> agents = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             
@@ -295,7 +432,7 @@ public class AgentDAO {
         
         List<Integer> skills = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, agentId);
@@ -310,13 +447,61 @@ public class AgentDAO {
         return skills;
     }
     
+    /**
+     * Get routing state for every agent: agent_id, available_from, available_to,
+     * is_assigned (accepting tickets) and the number of open tickets assigned to them
+     */
+    public List<Object[]> getRoutingCandidates() throws SQLException {
+        String sql = ROUTING_CANDIDATES_SQL;
+        
+        List<Object[]> result = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                Object[] row = {
+                    rs.getInt("agent_id"),
+                    rs.getTimestamp("available_from"),
+                    rs.getTimestamp("available_to"),
+                    rs.getBoolean("is_assigned"),
+                    rs.getInt("open_tickets")
+                };
+                result.add(row);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Get every (agent_id, skill_category_id) pair
+     */
+    public List<int[]> getAllAgentSkills() throws SQLException {
+        String sql = "SELECT agent_id, skill_category_id FROM AgentSkills";
+        
+        List<int[]> skills = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                skills.add(new int[] { rs.getInt("agent_id"), rs.getInt("skill_category_id") });
+            }
+        }
+        
+        return skills;
+    }
+    
     /**
      * Check if email already exists
      */
     public boolean emailExists(String email) throws SQLException {
         String sql = "SELECT COUNT(*) FROM Agents WHERE email = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, email);
@@ -346,7 +531,7 @@ public class AgentDAO {
                     "JOIN AgentMetrics am ON a.agent_id = am.agent_id " +
                     "WHERE a.agent_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, agentId);
@@ -389,7 +574,7 @@ public class AgentDAO {
      */
     public boolean deleteAgent(int agentId) throws SQLException {
         // First check if agent has any assigned tickets
-        String checkSql = "SELECT COUNT(*) FROM Tickets WHERE agent_id = ?";
+        String checkSql = HAS_TICKETS_SQL;
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement checkPstmt = conn.prepareStatement(checkSql)) {
@@ -397,7 +582,7 @@ public class AgentDAO {
             checkPstmt.setInt(1, agentId);
             
             try (ResultSet rs = checkPstmt.executeQuery()) {
-                if (rs.next() && rs.getInt(1) > 0) {
+                if (rs.next()) {
                     throw new SQLException("Cannot delete agent with assigned tickets");
                 }
             }
@@ -422,7 +607,36 @@ public class AgentDAO {
                 deleteAgentPstmt.setInt(1, agentId);
                 return deleteAgentPstmt.executeUpdate() > 0;
             }
+        } finally {
+            invalidateCache(agentId);
+        }
+    }
+    
+    /**
+     * Drop an agent from both caches after it changes
+     */
+    private void invalidateCache(int agentId) {
+        agentsById.invalidate(agentId);
+        agentsByEmail.invalidateIndexed(agentId);
+    }
+    
+    /**
+     * Hit/miss/eviction counters of the agent caches (by ID and by email combined)
+     */
+    public CacheStats getCacheStats() {
+        return agentsById.stats().plus(agentsByEmail.stats());
+    }
+    
+    /**
+     * Cached instances are never handed out, so callers can modify what they get back
+     */
+    private Agent copyOf(Agent agent) {
+        if (agent == null) {
+            return null;
         }
+        Agent copy = new Agent(agent.getName(), agent.getEmail(), agent.getAvailableFrom(), agent.getAvailableTo());
+        copy.setAgentId(agent.getAgentId());
+        return copy;
     }
     
     /**
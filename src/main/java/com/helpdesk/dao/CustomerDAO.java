@@ -1,25 +1,47 @@
 package com.helpdesk.dao;
 
+import com.helpdesk.cache.CacheStats;
+import com.helpdesk.cache.EntityCache;
 import com.helpdesk.db.DatabaseConnection;
 import com.helpdesk.model.Customer;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Data Access Object for Customer operations
  */
 public class CustomerDAO {
+    private static final int CACHE_MAX_SIZE = 10000;
+    private static final long CACHE_TTL_MINUTES = 5;
+    
+    // Shared by all DAO instances so every caller sees the same invalidations
+    private static final EntityCache<Integer, Customer> customersById =
+            new EntityCache<>(CACHE_MAX_SIZE, CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+    private static final EntityCache<String, Customer> customersByEmail =
+            new EntityCache<>(CACHE_MAX_SIZE, CACHE_TTL_MINUTES, TimeUnit.MINUTES, Customer::getCustomerId);
+    
+    // Stops at the first matching index entry instead of counting them all
+    static final String HAS_TICKETS_SQL = "SELECT 1 FROM Tickets WHERE customer_id = ? LIMIT 1";
     
     /**
      * Create a new customer
      */
     public int createCustomer(Customer customer) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return createCustomer(conn, customer);
+        }
+    }
+    
+    /**
+     * Create a new customer on the caller's connection
+     */
+    public int createCustomer(Connection conn, Customer customer) throws SQLException {
         String sql = "INSERT INTO Customers (name, email) VALUES (?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setString(1, customer.getName());
             pstmt.setString(2, customer.getEmail());
@@ -44,12 +66,37 @@ public class CustomerDAO {
      * Get customer by ID
      */
     public Customer getCustomerById(int customerId) throws SQLException {
-        String sql = "SELECT * FROM Customers WHERE customer_id = ?";
+        Customer cached = customersById.get(customerId);
+        if (cached != null) {
+            return copyOf(cached);
+        }
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        long generation = customersById.generation();
+        Customer customer = loadCustomer("SELECT * FROM Customers WHERE customer_id = ?", customerId);
+        customersById.put(customerId, customer, generation);
+        return copyOf(customer);
+    }
+    
+    /**
+     * Get customer by email
+     */
+    public Customer getCustomerByEmail(String email) throws SQLException {
+        Customer cached = customersByEmail.get(email);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long generation = customersByEmail.generation();
+        Customer customer = loadCustomer("SELECT * FROM Customers WHERE email = ?", email);
+        customersByEmail.put(email, customer, generation);
+        return copyOf(customer);
+    }
+    
+    private Customer loadCustomer(String sql, Object key) throws SQLException {
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setInt(1, customerId);
+            pstmt.setObject(1, key);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -61,43 +108,64 @@ public class CustomerDAO {
     }
     
     /**
-     * Get customer by email
+     * Get all customers
      */
-    public Customer getCustomerByEmail(String email) throws SQLException {
-        String sql = "SELECT * FROM Customers WHERE email = ?";
+    public List<Customer> getAllCustomers() throws SQLException {
+        List<Customer> customers = new ArrayList<>();
+        forEachCustomer(customers::add);
+        return customers;
+    }
+    
+    /**
+     * Stream all customers to the callback without loading them into memory
+     */
+    public void forEachCustomer(RowCallback<Customer> callback) throws SQLException {
+        String sql = "SELECT * FROM Customers ORDER BY name";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setString(1, email);
+            pstmt.setFetchSize(DatabaseConnection.STREAM_FETCH_SIZE);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToCustomer(rs);
+                while (rs.next()) {
+                    callback.processRow(mapResultSetToCustomer(rs));
                 }
             }
         }
-        return null;
     }
     
     /**
-     * Get all customers
+     * Get a page of customers ordered by name, starting after the cursor (null for the first page)
      */
-    public List<Customer> getAllCustomers() throws SQLException {
-        String sql = "SELECT * FROM Customers ORDER BY name";
+    public Page<Customer> getCustomersPage(PageCursor after, int pageSize) throws SQLException {
+        Page.checkPageSize(pageSize);
+        String sql = "SELECT * FROM Customers " +
+                    (after == null ? "" : "WHERE name >= ? AND (name > ? OR customer_id > ?) ") +
+                    "ORDER BY name, customer_id LIMIT ?";
         
-        List<Customer> customers = new ArrayList<>();
+        List<Customer> rows = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            while (rs.next()) {
-                customers.add(mapResultSetToCustomer(rs));
+            int index = 1;
+            if (after != null) {
+                String name = (String) after.getSortKey();
+                pstmt.setString(index++, name);
+                pstmt.setString(index++, name);
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, pageSize + 1);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToCustomer(rs));
+                }
             }
         }
         
-        return customers;
+        return Page.fromRows(rows, pageSize, customer -> new PageCursor(customer.getName(), customer.getCustomerId()));
     }
     
     /**
@@ -114,6 +182,8 @@ public class CustomerDAO {
             pstmt.setInt(3, customer.getCustomerId());
             
             return pstmt.executeUpdate() > 0;
+        } finally {
+            invalidateCache(customer.getCustomerId());
         }
     }
     
@@ -122,7 +192,7 @@ public class CustomerDAO {
      */
     public boolean deleteCustomer(int customerId) throws SQLException {
         // First check if customer has any tickets
-        String checkSql = "SELECT COUNT(*) FROM Tickets WHERE customer_id = ?";
+        String checkSql = HAS_TICKETS_SQL;
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement checkPstmt = conn.prepareStatement(checkSql)) {
@@ -130,7 +200,7 @@ public class CustomerDAO {
             checkPstmt.setInt(1, customerId);
             
             try (ResultSet rs = checkPstmt.executeQuery()) {
-                if (rs.next() && rs.getInt(1) > 0) {
+                if (rs.next()) {
                     throw new SQLException("Cannot delete customer with existing tickets");
                 }
             }
@@ -141,6 +211,8 @@ public class CustomerDAO {
                 deletePstmt.setInt(1, customerId);
                 return deletePstmt.executeUpdate() > 0;
             }
+        } finally {
+            invalidateCache(customerId);
         }
     }
     
@@ -148,10 +220,18 @@ public class CustomerDAO {
      * Check if email already exists
      */
     public boolean emailExists(String email) throws SQLException {
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection()) {
+            return emailExists(conn, email);
+        }
+    }
+    
+    /**
+     * Check if email already exists, on the caller's connection
+     */
+    public boolean emailExists(Connection conn, String email) throws SQLException {
         String sql = "SELECT COUNT(*) FROM Customers WHERE email = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, email);
             
@@ -164,6 +244,28 @@ public class CustomerDAO {
         return false;
     }
     
+    /**
+     * Drop a customer from both caches after it changes
+     */
+    private void invalidateCache(int customerId) {
+        customersById.invalidate(customerId);
+        customersByEmail.invalidateIndexed(customerId);
+    }
+    
+    /**
+     * Hit/miss/eviction counters of the customer caches (by ID and by email combined)
+     */
+    public CacheStats getCacheStats() {
+        return customersById.stats().plus(customersByEmail.stats());
+    }
+    
+    /**
+     * Cached instances are never handed out, so callers can modify what they get back
+     */
+    private Customer copyOf(Customer customer) {
+        return customer == null ? null : new Customer(customer.getCustomerId(), customer.getName(), customer.getEmail());
+    }
+    
     /**
      * Helper method to map ResultSet to Customer object
      */
@@ -0,0 +1,160 @@
+package com.helpdesk.dao;
+
+import com.helpdesk.db.DatabaseConnection;
+import com.helpdesk.model.OutboxEvent;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Data Access Object for the ticket event outbox and its relay watermarks.
+ *
+ * Events must be appended in the transaction that made the change, after the ticket's row has
+ * been locked or written. Event IDs are then handed out in commit order for any one ticket,
+ * so reading by event_id gives each ticket's events in order.
+ */
+public class OutboxDAO {
+    
+    /**
+     * Append one event on the caller's connection
+     */
+    public void appendEvent(Connection conn, OutboxEvent event) throws SQLException {
+        appendEvents(conn, Collections.singletonList(event));
+    }
+    
+    /**
+     * Append events in one batch on the caller's connection
+     */
+    public void appendEvents(Connection conn, List<OutboxEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO OutboxEvents (ticket_id, event_type, payload) VALUES (?, ?, ?)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (OutboxEvent event : events) {
+                pstmt.setInt(1, event.getTicketId());
+                pstmt.setString(2, event.getEventType());
+                pstmt.setString(3, event.getPayload());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Get up to limit committed events after the given event ID, in event ID order
+     */
+    public List<OutboxEvent> getEventsAfter(long afterEventId, int limit) throws SQLException {
+        String sql = "SELECT * FROM OutboxEvents WHERE event_id > ? ORDER BY event_id LIMIT ?";
+        
+        List<OutboxEvent> events = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setLong(1, afterEventId);
+            pstmt.setInt(2, limit);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    OutboxEvent event = new OutboxEvent();
+                    event.setEventId(rs.getLong("event_id"));
+                    event.setTicketId(rs.getInt("ticket_id"));
+                    event.setEventType(rs.getString("event_type"));
+                    event.setPayload(rs.getString("payload"));
+                    event.setCreatedAt(rs.getTimestamp("created_at"));
+                    events.add(event);
+                }
+            }
+        }
+        
+        return events;
+    }
+    
+    /**
+     * Highest event ID written so far, or 0; a new relay can start from here to skip the backlog
+     */
+    public long getLatestEventId() throws SQLException {
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT MAX(event_id) FROM OutboxEvents");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    /**
+     * Last event ID delivered by the named relay, or 0 if it never delivered anything
+     */
+    public long getWatermark(String relayName) throws SQLException {
+        String sql = "SELECT last_event_id FROM OutboxWatermarks WHERE relay_name = ?";
+        
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, relayName);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong("last_event_id") : 0;
+            }
+        }
+    }
+    
+    /**
+     * Move the named relay's watermark up to the given event ID; it never moves backward
+     */
+    public void advanceWatermark(String relayName, long eventId) throws SQLException {
+        String sql = "INSERT INTO OutboxWatermarks (relay_name, last_event_id) VALUES (?, ?) " +
+                    "ON DUPLICATE KEY UPDATE last_event_id = GREATEST(last_event_id, VALUES(last_event_id))";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, relayName);
+            pstmt.setLong(2, eventId);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Delete up to limit events that every relay has delivered and that are older than retentionSeconds.
+     * A relay only counts while it has a watermark row, so delete the row of a relay that is retired.
+     */
+    public int deleteDeliveredEvents(long retentionSeconds, int limit) throws SQLException {
+        String sql = "DELETE FROM OutboxEvents " +
+                    "WHERE event_id <= (SELECT MIN(last_event_id) FROM OutboxWatermarks) " +
+                    "AND created_at < CURRENT_TIMESTAMP - INTERVAL ? SECOND " +
+                    "ORDER BY event_id LIMIT ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setLong(1, retentionSeconds);
+            pstmt.setInt(2, limit);
+            return pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * IDs of the InnoDB transactions running right now; needs the PROCESS privilege
+     */
+    public Set<String> getOpenTransactionIds() throws SQLException {
+        Set<String> ids = new HashSet<>();
+        
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT trx_id FROM information_schema.innodb_trx");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getString(1));
+            }
+        }
+        
+        return ids;
+    }
+}
\ No newline at end of file
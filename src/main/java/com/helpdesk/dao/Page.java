@@ -0,0 +1,53 @@
+package com.helpdesk.dao;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated query
+ */
+public class Page<T> {
+    public static final int MAX_PAGE_SIZE = 500;
+    
+    private final List<T> items;
+    private final PageCursor nextCursor;
+    
+    public Page(List<T> items, PageCursor nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+    
+    /**
+     * Build a page from up to pageSize + 1 fetched rows; the extra row only signals that more pages exist
+     */
+    static <T> Page<T> fromRows(List<T> rows, int pageSize, Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new Page<>(items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+    
+    static void checkPageSize(int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ": " + pageSize);
+        }
+    }
+    
+    // Getters
+    public List<T> getItems() {
+        return items;
+    }
+    
+    /**
+     * Cursor for the following page, or null if this is the last page
+     */
+    public PageCursor getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
\ No newline at end of file
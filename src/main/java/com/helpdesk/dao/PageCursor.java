@@ -0,0 +1,44 @@
+package com.helpdesk.dao;
+
+/**
+ * Continuation token for keyset pagination: the sort key and ID of the last row
+ * of the previous page. The next page starts strictly after this position.
+ * Lists ordered by a leading integer column first (e.g. priority) also carry its value as the rank.
+ */
+public class PageCursor {
+    private final int rank;
+    private final Object sortKey;
+    private final int id;
+    
+    public PageCursor(Object sortKey, int id) {
+        this(0, sortKey, id);
+    }
+    
+    public PageCursor(int rank, Object sortKey, int id) {
+        this.rank = rank;
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+    
+    // Getters
+    public int getRank() {
+        return rank;
+    }
+    
+    public Object getSortKey() {
+        return sortKey;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    @Override
+    public String toString() {
+        return "PageCursor{" +
+                "rank=" + rank +
+                ", sortKey=" + sortKey +
+                ", id=" + id +
+                '}';
+    }
+}
\ No newline at end of file
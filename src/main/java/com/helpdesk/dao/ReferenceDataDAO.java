@@ -0,0 +1,76 @@
+package com.helpdesk.dao;
+
+import com.helpdesk.cache.ReferenceData;
+import com.helpdesk.db.DatabaseConnection;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Data Access Object for the reference tables (statuses, priorities, categories)
+ */
+public class ReferenceDataDAO {
+    
+    /**
+     * Load all reference tables into one snapshot
+     */
+    public ReferenceData loadReferenceData() throws SQLException {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            return loadReferenceData(conn);
+        }
+    }
+    
+    /**
+     * Load all reference tables on the caller's connection
+     */
+    public ReferenceData loadReferenceData(Connection conn) throws SQLException {
+        String[] statusNames = toArray(loadNames(conn, "SELECT status_id, status_name FROM TicketStatuses"));
+        String[] priorityNames = toArray(loadNames(conn, "SELECT priority_id, priority_name FROM TicketPriorities"));
+        
+        TreeMap<Integer, Object[]> categories = new TreeMap<>();
+        String sql = "SELECT category_id, category_name, max_response_time, max_resolution_time FROM TicketCategories";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                categories.put(rs.getInt("category_id"), new Object[] {
+                    rs.getString("category_name"),
+                    rs.getLong("max_response_time"),
+                    rs.getLong("max_resolution_time")
+                });
+            }
+        }
+        
+        int size = categories.isEmpty() ? 0 : categories.lastKey() + 1;
+        String[] categoryNames = new String[size];
+        long[] maxResponse = new long[size];
+        long[] maxResolution = new long[size];
+        for (Map.Entry<Integer, Object[]> entry : categories.entrySet()) {
+            int id = entry.getKey();
+            categoryNames[id] = (String) entry.getValue()[0];
+            maxResponse[id] = (Long) entry.getValue()[1];
+            maxResolution[id] = (Long) entry.getValue()[2];
+        }
+        
+        return new ReferenceData(statusNames, priorityNames, categoryNames, maxResponse, maxResolution);
+    }
+    
+    private TreeMap<Integer, String> loadNames(Connection conn, String sql) throws SQLException {
+        TreeMap<Integer, String> names = new TreeMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                names.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return names;
+    }
+    
+    private String[] toArray(TreeMap<Integer, String> names) {
+        String[] array = new String[names.isEmpty() ? 0 : names.lastKey() + 1];
+        for (Map.Entry<Integer, String> entry : names.entrySet()) {
+            array[entry.getKey()] = entry.getValue();
+        }
+        return array;
+    }
+}
\ No newline at end of file
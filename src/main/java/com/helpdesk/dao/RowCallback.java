@@ -0,0 +1,17 @@
+package com.helpdesk.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Receives query results one row at a time from the streaming DAO methods.
+ * The row is handed over while the query's cursor is still open, so the
+ * callback should not try to reuse the DAO's connection.
+ */
+@FunctionalInterface
+public interface RowCallback<T> {
+    
+    /**
+     * Process one mapped row
+     */
+    void processRow(T row) throws SQLException;
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.helpdesk.dao;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+
+/**
+ * Data Access Object for the SLA sweep watermarks
+ */
+public class SlaDAO {
+    
+    /**
+     * Current time on the database server, which also stamps Tickets.created_at
+     */
+    public LocalDateTime getDatabaseTime(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT NOW()");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1).toLocalDateTime();
+        }
+    }
+    
+    /**
+     * Lock and read the position (created_at, ticket_id) up to which a check has run for a
+     * category, or null if it never ran. The lock keeps concurrent sweeps from repeating a batch.
+     */
+    public PageCursor lockWatermark(Connection conn, int categoryId, String check) throws SQLException {
+        String sql = "SELECT watermark_created_at, watermark_ticket_id FROM SlaWatermarks " +
+                    "WHERE category_id = ? AND sla_check = ? FOR UPDATE";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, categoryId);
+            pstmt.setString(2, check);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new PageCursor(rs.getTimestamp("watermark_created_at"), rs.getInt("watermark_ticket_id"));
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Record the position up to which a check has run for a category
+     */
+    public void saveWatermark(Connection conn, int categoryId, String check, PageCursor position) throws SQLException {
+        String sql = "INSERT INTO SlaWatermarks (category_id, sla_check, watermark_created_at, watermark_ticket_id) " +
+                    "VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE watermark_created_at = VALUES(watermark_created_at), " +
+                    "watermark_ticket_id = VALUES(watermark_ticket_id)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, categoryId);
+            pstmt.setString(2, check);
+            pstmt.setTimestamp(3, (Timestamp) position.getSortKey());
+            pstmt.setInt(4, position.getId());
+            pstmt.executeUpdate();
+        }
+    }
+}
\ No newline at end of file
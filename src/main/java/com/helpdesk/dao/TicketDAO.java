@@ -1,28 +1,140 @@
 package com.helpdesk.dao;
 
+import com.helpdesk.cache.ReferenceData;
+import com.helpdesk.cache.ReferenceDataCache;
 import com.helpdesk.db.DatabaseConnection;
+import com.helpdesk.db.TransactionTemplate;
+import com.helpdesk.model.BulkTicketResult;
+import com.helpdesk.model.ConversationSearchHit;
+import com.helpdesk.model.NewTicket;
 import com.helpdesk.model.Ticket;
 import com.helpdesk.model.TicketConversation;
+import com.helpdesk.model.TicketSummary;
 import com.helpdesk.model.Customer;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for Ticket operations
  */
 public class TicketDAO {
     
+    // Ticket columns plus customer and agent names; status, category and priority names come
+    // from the ReferenceDataCache snapshot each query takes on its own connection before it runs
+    private static final String TICKET_DETAIL_SELECT =
+                    "SELECT t.*, c.name as customer_name, a.name as agent_name " +
+                    "FROM Tickets t " +
+                    "JOIN Customers c ON t.customer_id = c.customer_id " +
+                    "LEFT JOIN Agents a ON t.agent_id = a.agent_id ";
+    
+    // Inbox lists: the inbox indexes hold the sort keys, so a page reads at most pageSize + 1 rows
+    private static final String SUMMARY_SELECT =
+                    "SELECT t.ticket_id, t.customer_id, t.agent_id, t.status_id, t.category_id, " +
+                    "t.priority_id, t.created_at, t.is_escalated FROM Tickets t ";
+    
+    // The hot statements are package-private so QueryPlanTest EXPLAINs exactly what runs here
+    
+    // Only columns in idx_tickets_inbox are read so the scan never leaves the index;
+    // with a row lookup per ticket SKIP LOCKED can pass over rows nobody holds
+    static final String LOCK_QUEUED_TICKETS_SQL =
+                    "SELECT ticket_id, category_id, priority_id, created_at FROM Tickets " +
+                    "WHERE status_id = 1 AND agent_id IS NULL " +
+                    "ORDER BY priority_id DESC, created_at, ticket_id LIMIT ? " +
+                    "FOR UPDATE SKIP LOCKED";
+    
+    static final String CONVERSATION_SELECT =
+                    "SELECT tc.*, " +
+                    "CASE WHEN tc.is_sender_agent = true THEN a.name ELSE c.name END as sender_name " +
+                    "FROM TicketConversations tc " +
+                    "LEFT JOIN Agents a ON tc.is_sender_agent = true AND tc.sender_id = a.agent_id " +
+                    "LEFT JOIN Customers c ON tc.is_sender_agent = false AND tc.sender_id = c.customer_id ";
+    
+    static final String CONVERSATION_HISTORY_SQL = CONVERSATION_SELECT +
+                    "WHERE tc.ticket_id = ? " +
+                    "ORDER BY tc.sent_at ASC, tc.message_id ASC";
+    
+    static final String MONTHLY_VOLUME_SQL =
+                    "SELECT v.volume_date as ticket_date, SUM(v.created_count) as ticket_count, " +
+                    "tc.category_name " +
+                    "FROM TicketDailyVolume v " +
+                    "JOIN TicketCategories tc ON v.category_id = tc.category_id " +
+                    "WHERE v.volume_date >= ? AND v.volume_date < ? " +
+                    "GROUP BY v.volume_date, v.category_id, tc.category_name " +
+                    "HAVING ticket_count > 0 " +
+                    "ORDER BY v.volume_date, v.category_id";
+    
+    static final String VOLUME_BY_CATEGORY_SQL =
+                    "SELECT tc.category_name, SUM(v.created_count) as created, " +
+                    "SUM(v.resolved_count) as resolved, SUM(v.closed_count) as closed " +
+                    "FROM TicketDailyVolume v " +
+                    "JOIN TicketCategories tc ON v.category_id = tc.category_id " +
+                    "WHERE v.volume_date >= ? AND v.volume_date < ? " +
+                    "GROUP BY tc.category_id, tc.category_name " +
+                    "ORDER BY tc.category_id";
+    
+    static final String AVERAGE_RESOLUTION_SQL =
+                    "SELECT tc.category_name, " +
+                    "cm.total_resolution_time / cm.total_resolutions as avg_resolution_time " +
+                    "FROM CategoryMetrics cm " +
+                    "JOIN TicketCategories tc ON cm.category_id = tc.category_id " +
+                    "WHERE cm.total_resolutions > 0 " +
+                    "ORDER BY avg_resolution_time, cm.category_id";
+    
+    // Words indexed with each message so the full-text search itself narrows to a category and to open
+    // or finished tickets. Being open only changes on resolve, close or reopen, so assignments do not
+    // re-index messages. Expects Tickets aliased as t.
+    static final String SEARCH_SCOPE_SQL =
+                    "CONCAT('category_', t.category_id, IF(t.status_id IN (1, 2), ' status_open', ' status_done'))";
+    
+    // Bare words MySQL does not index: shorter than innodb_ft_min_token_size (3), or in InnoDB's default
+    // stopword list. Requiring one (+word) would match nothing.
+    private static final int MIN_TOKEN_LENGTH = 3;
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+            "a", "about", "an", "are", "as", "at", "be", "by", "com", "de", "en", "for", "from", "how", "i", "in",
+            "is", "it", "la", "of", "on", "or", "that", "the", "this", "to", "was", "what", "when", "where", "who",
+            "will", "with", "und", "www"));
+    
+    // TicketDailyVolume keeps this many rows per day and category, picked by ticket_id, so
+    // concurrent creates, resolves and closes in one category do not all update the same row
+    static final int VOLUME_SHARDS = 8;
+    
+    // Inbox filters for getSummaryPage, each read through its own index. The index is forced: the inbox
+    // indexes hold only sort keys, so the covering idx_tickets_sla can look cheaper to the optimizer
+    // even though it walks the whole category and sorts
+    static final String AGENT_INBOX_FILTER = "t.agent_id = ? AND t.status_id = ?";
+    static final String UNASSIGNED_FILTER = "t.category_id = ? AND t.agent_id IS NULL AND t.status_id = 1";
+    static final String ESCALATED_FILTER = "t.is_escalated = TRUE";
+    
+    // Status changes also adjust the rollups, so the overloads without a connection run in one transaction
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate();
+    
     /**
      * Create a new ticket
      */
     public int createTicket(Ticket ticket) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return createTicket(conn, ticket);
+        }
+    }
+    
+    /**
+     * Create a new ticket on the caller's connection
+     */
+    public int createTicket(Connection conn, Ticket ticket) throws SQLException {
         String sql = "INSERT INTO Tickets (customer_id, status_id, category_id, priority_id, created_at) " +
                     "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setInt(1, ticket.getCustomerId());
             pstmt.setInt(2, ticket.getStatusId());
@@ -49,11 +161,40 @@ public class TicketDAO {
      * Assign ticket to an agent
      */
     public boolean assignTicket(int ticketId, int agentId) throws SQLException {
-        String sql = "UPDATE Tickets SET agent_id = ?, assigned_at = CURRENT_TIMESTAMP, status_id = 2 " +
+        return transactionTemplate.execute(conn -> assignTicket(conn, ticketId, agentId));
+    }
+    
+    /**
+     * Assign ticket to an agent on the caller's connection
+     */
+    public boolean assignTicket(Connection conn, int ticketId, int agentId) throws SQLException {
+        String sql = "UPDATE Tickets SET agent_id = ?, assigned_at = CURRENT_TIMESTAMP, status_id = 2, closed_at = NULL " +
                     "WHERE ticket_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        // Assigning a resolved or closed ticket reopens it: removeCloseFromRollups takes a close back out
+        // of the rollups, and refreshSearchScope moves its messages back into the open search scope
+        removeCloseFromRollups(conn, ticketId);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, agentId);
+            pstmt.setInt(2, ticketId);
+            
+            if (pstmt.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        refreshSearchScope(conn, ticketId);
+        return true;
+    }
+    
+    /**
+     * Assign a ticket only if it is still open and unassigned; returns false if another dispatcher got it first
+     */
+    public boolean claimTicket(Connection conn, int ticketId, int agentId) throws SQLException {
+        String sql = "UPDATE Tickets SET agent_id = ?, assigned_at = CURRENT_TIMESTAMP, status_id = 2 " +
+                    "WHERE ticket_id = ? AND agent_id IS NULL AND status_id = 1";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, agentId);
             pstmt.setInt(2, ticketId);
@@ -63,82 +204,435 @@ public class TicketDAO {
     }
     
     /**
-     * Update ticket status
+     * Lock up to limit open, unassigned tickets, highest priority and oldest first.
+     * Rows already locked by another transaction are skipped rather than waited on, so
+     * concurrent dispatchers each get a disjoint batch. The locks are held until conn commits.
+     * Only the ID, category, priority and creation time are filled in.
+     */
+    public List<Ticket> lockQueuedTickets(Connection conn, int limit) throws SQLException {
+        String sql = LOCK_QUEUED_TICKETS_SQL;
+        
+        List<Ticket> tickets = new ArrayList<>();
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, limit);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Ticket ticket = new Ticket();
+                    ticket.setTicketId(rs.getInt("ticket_id"));
+                    ticket.setStatusId(1);
+                    ticket.setCategoryId(rs.getInt("category_id"));
+                    ticket.setPriorityId(rs.getInt("priority_id"));
+                    ticket.setCreatedAt(rs.getTimestamp("created_at"));
+                    tickets.add(ticket);
+                }
+            }
+        }
+        
+        return tickets;
+    }
+    
+    /**
+     * Claim up to limit queued tickets for one agent; returns the claimed ticket IDs
+     */
+    public List<Integer> claimQueuedTickets(Connection conn, int agentId, int limit) throws SQLException {
+        List<Integer> claimed = new ArrayList<>();
+        for (Ticket ticket : lockQueuedTickets(conn, limit)) {
+            // The row is locked by this transaction, so the guarded update cannot miss
+            if (claimTicket(conn, ticket.getTicketId(), agentId)) {
+                claimed.add(ticket.getTicketId());
+            }
+        }
+        return claimed;
+    }
+    
+    /**
+     * Lock a ticket's row until conn commits and read the fields a change is recorded against.
+     * Only the ID, agent, status, category, priority, assignment time and escalation flag are filled in.
+     */
+    public Ticket lockTicket(Connection conn, int ticketId) throws SQLException {
+        String sql = "SELECT ticket_id, agent_id, status_id, category_id, priority_id, created_at, assigned_at, is_escalated " +
+                    "FROM Tickets WHERE ticket_id = ? FOR UPDATE";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, ticketId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    Ticket ticket = new Ticket();
+                    ticket.setTicketId(rs.getInt("ticket_id"));
+                    int agentId = rs.getInt("agent_id");
+                    ticket.setAgentId(rs.wasNull() ? null : agentId);
+                    ticket.setStatusId(rs.getInt("status_id"));
+                    ticket.setCategoryId(rs.getInt("category_id"));
+                    ticket.setPriorityId(rs.getInt("priority_id"));
+                    ticket.setCreatedAt(rs.getTimestamp("created_at"));
+                    ticket.setAssignedAt(rs.getTimestamp("assigned_at"));
+                    ticket.setEscalated(rs.getBoolean("is_escalated"));
+                    return ticket;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Change a ticket's priority on the caller's connection
+     */
+    public boolean updateTicketPriority(Connection conn, int ticketId, int priorityId) throws SQLException {
+        String sql = "UPDATE Tickets SET priority_id = ? WHERE ticket_id = ?";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, priorityId);
+            pstmt.setInt(2, ticketId);
+            
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+    
+    /**
+     * Update ticket status. Status 4 (Closed) goes through closeTicket, so the rollups are kept.
      */
     public boolean updateTicketStatus(int ticketId, int statusId) throws SQLException {
-        String sql = "UPDATE Tickets SET status_id = ?" +
-                    (statusId == 4 ? ", closed_at = CURRENT_TIMESTAMP" : "") + // Status 4 = Closed
-                    " WHERE ticket_id = ?";
+        return transactionTemplate.execute(conn -> updateTicketStatus(conn, ticketId, statusId));
+    }
+    
+    /**
+     * Update ticket status on the caller's connection. Moving a ticket into status 3 (Resolved)
+     * counts the resolution in TicketDailyVolume, as closeTicket counts a close.
+     */
+    public boolean updateTicketStatus(Connection conn, int ticketId, int statusId) throws SQLException {
+        if (statusId == 4) { // Status 4 = Closed
+            return closeTicket(conn, ticketId);
+        }
+        // Only open tickets (status 1 or 2) stay escalated, so idx_tickets_escalated does not grow with history
+        String sql = "UPDATE Tickets SET status_id = ?, is_escalated = is_escalated AND ?, closed_at = NULL " +
+                    "WHERE ticket_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        removeCloseFromRollups(conn, ticketId);
+        if (statusId == 3) {
+            addResolvedToDailyVolume(conn, ticketId);
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, statusId);
-            pstmt.setInt(2, ticketId);
+            pstmt.setBoolean(2, statusId == 1 || statusId == 2);
+            pstmt.setInt(3, ticketId);
+            
+            if (pstmt.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        refreshSearchScope(conn, ticketId);
+        return true;
+    }
+    
+    /**
+     * Close a ticket that is not closed yet, on the caller's connection, and count the close in
+     * CategoryMetrics and TicketDailyVolume. Returns false if the ticket does not exist or is
+     * already closed, so a close is only ever counted once; reopening a ticket takes its close back out.
+     */
+    public boolean closeTicket(Connection conn, int ticketId) throws SQLException {
+        String sql = "UPDATE Tickets SET status_id = 4, closed_at = CURRENT_TIMESTAMP, is_escalated = FALSE " + // Status 4 = Closed
+                    "WHERE ticket_id = ? AND status_id <> 4";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, ticketId);
+            if (pstmt.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        addToCategoryMetrics(conn, ticketId);
+        addClosedToDailyVolume(conn, ticketId);
+        refreshSearchScope(conn, ticketId);
+        return true;
+    }
+    
+    /**
+     * Take a closed ticket's close out of CategoryMetrics and TicketDailyVolume before it is reopened;
+     * does nothing if the ticket is not closed. Must run before closed_at is cleared.
+     */
+    private void removeCloseFromRollups(Connection conn, int ticketId) throws SQLException {
+        String metricsSql = "UPDATE CategoryMetrics cm JOIN Tickets t ON t.category_id = cm.category_id " +
+                           "SET cm.total_resolution_time = cm.total_resolution_time - TIMESTAMPDIFF(MINUTE, t.created_at, t.closed_at), " +
+                           "cm.total_resolutions = cm.total_resolutions - 1 " +
+                           "WHERE t.ticket_id = ? AND t.status_id = 4 AND t.closed_at IS NOT NULL";
+        String volumeSql = "UPDATE TicketDailyVolume v JOIN Tickets t ON v.volume_date = DATE(t.closed_at) " +
+                          "AND v.category_id = t.category_id AND v.shard = t.ticket_id % " + VOLUME_SHARDS + " " +
+                          "SET v.closed_count = v.closed_count - 1 " +
+                          "WHERE t.ticket_id = ? AND t.status_id = 4 AND t.closed_at IS NOT NULL";
+        
+        try (PreparedStatement metricsStmt = conn.prepareStatement(metricsSql);
+             PreparedStatement volumeStmt = conn.prepareStatement(volumeSql)) {
+            
+            metricsStmt.setInt(1, ticketId);
+            metricsStmt.executeUpdate();
+            volumeStmt.setInt(1, ticketId);
+            volumeStmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Re-index a ticket's messages for search if its category or open/finished state changed
+     */
+    private void refreshSearchScope(Connection conn, int ticketId) throws SQLException {
+        String sql = "UPDATE TicketConversations tc JOIN Tickets t ON t.ticket_id = tc.ticket_id " +
+                    "SET tc.search_scope = " + SEARCH_SCOPE_SQL + " " +
+                    "WHERE tc.ticket_id = ? AND tc.search_scope <> " + SEARCH_SCOPE_SQL;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
+            pstmt.setInt(1, ticketId);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Add a just-closed ticket's resolution time to its category's CategoryMetrics row
+     */
+    public boolean addToCategoryMetrics(Connection conn, int ticketId) throws SQLException {
+        String sql = "INSERT INTO CategoryMetrics (category_id, total_resolution_time, total_resolutions) " +
+                    "SELECT category_id, TIMESTAMPDIFF(MINUTE, created_at, closed_at), 1 " +
+                    "FROM Tickets WHERE ticket_id = ? AND closed_at IS NOT NULL " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "total_resolution_time = total_resolution_time + VALUES(total_resolution_time), " +
+                    "total_resolutions = total_resolutions + 1";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, ticketId);
             return pstmt.executeUpdate() > 0;
         }
     }
     
+    /**
+     * Recompute CategoryMetrics from every closed ticket, replacing the current rows.
+     * Returns the number of categories written.
+     */
+    public int rebuildCategoryMetrics(Connection conn) throws SQLException {
+        String deleteSql = "DELETE FROM CategoryMetrics";
+        String insertSql = "INSERT INTO CategoryMetrics (category_id, total_resolution_time, total_resolutions) " +
+                          "SELECT category_id, SUM(TIMESTAMPDIFF(MINUTE, created_at, closed_at)), COUNT(*) " +
+                          "FROM Tickets WHERE closed_at IS NOT NULL " +
+                          "GROUP BY category_id";
+        
+        try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql);
+             PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
+            
+            deleteStmt.executeUpdate();
+            return insertStmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Count newly created tickets in TicketDailyVolume under their creation date, category and shard.
+     * Ticket IDs of 0 (failed bulk rows) are skipped.
+     */
+    public int addCreatedToDailyVolume(Connection conn, int... ticketIds) throws SQLException {
+        StringBuilder placeholders = new StringBuilder();
+        for (int ticketId : ticketIds) {
+            if (ticketId != 0) {
+                placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+            }
+        }
+        if (placeholders.length() == 0) {
+            return 0;
+        }
+        
+        String sql = "INSERT INTO TicketDailyVolume (volume_date, category_id, shard, created_count) " +
+                    "SELECT DATE(created_at), category_id, ticket_id % " + VOLUME_SHARDS + ", COUNT(*) FROM Tickets " +
+                    "WHERE ticket_id IN (" + placeholders + ") " +
+                    "GROUP BY DATE(created_at), category_id, ticket_id % " + VOLUME_SHARDS + " " +
+                    "ON DUPLICATE KEY UPDATE created_count = created_count + VALUES(created_count)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            for (int ticketId : ticketIds) {
+                if (ticketId != 0) {
+                    pstmt.setInt(index++, ticketId);
+                }
+            }
+            return pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Count a ticket's resolution in TicketDailyVolume under today's date; does nothing if the
+     * ticket is already resolved, so a resolution is only counted once. Must run before the status is updated.
+     */
+    private void addResolvedToDailyVolume(Connection conn, int ticketId) throws SQLException {
+        String sql = "INSERT INTO TicketDailyVolume (volume_date, category_id, shard, resolved_count) " +
+                    "SELECT CURRENT_DATE, category_id, ticket_id % " + VOLUME_SHARDS + ", 1 " +
+                    "FROM Tickets WHERE ticket_id = ? AND status_id <> 3 " +
+                    "ON DUPLICATE KEY UPDATE resolved_count = resolved_count + 1";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, ticketId);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Count a just-closed ticket in TicketDailyVolume under its close date
+     */
+    public boolean addClosedToDailyVolume(Connection conn, int ticketId) throws SQLException {
+        String sql = "INSERT INTO TicketDailyVolume (volume_date, category_id, shard, closed_count) " +
+                    "SELECT DATE(closed_at), category_id, ticket_id % " + VOLUME_SHARDS + ", 1 " +
+                    "FROM Tickets WHERE ticket_id = ? AND closed_at IS NOT NULL " +
+                    "ON DUPLICATE KEY UPDATE closed_count = closed_count + 1";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, ticketId);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+    
+    /**
+     * Recompute the created and closed counts of TicketDailyVolume from Tickets.
+     * Tickets does not record when a ticket was resolved, so resolved counts are kept as
+     * they are. Returns the number of rows left in the rollup.
+     */
+    public int rebuildDailyVolume(Connection conn) throws SQLException {
+        String resetSql = "UPDATE TicketDailyVolume SET created_count = 0, closed_count = 0";
+        String createdSql = "INSERT INTO TicketDailyVolume (volume_date, category_id, shard, created_count) " +
+                           "SELECT DATE(created_at), category_id, ticket_id % " + VOLUME_SHARDS + ", COUNT(*) FROM Tickets " +
+                           "GROUP BY DATE(created_at), category_id, ticket_id % " + VOLUME_SHARDS + " " +
+                           "ON DUPLICATE KEY UPDATE created_count = VALUES(created_count)";
+        String closedSql = "INSERT INTO TicketDailyVolume (volume_date, category_id, shard, closed_count) " +
+                          "SELECT DATE(closed_at), category_id, ticket_id % " + VOLUME_SHARDS + ", COUNT(*) FROM Tickets " +
+                          "WHERE closed_at IS NOT NULL " +
+                          "GROUP BY DATE(closed_at), category_id, ticket_id % " + VOLUME_SHARDS + " " +
+                          "ON DUPLICATE KEY UPDATE closed_count = VALUES(closed_count)";
+        String pruneSql = "DELETE FROM TicketDailyVolume " +
+                         "WHERE created_count = 0 AND resolved_count = 0 AND closed_count = 0";
+        String countSql = "SELECT COUNT(*) FROM TicketDailyVolume";
+        
+        try (Statement stmt = conn.createStatement()) {
+            
+            stmt.executeUpdate(resetSql);
+            stmt.executeUpdate(createdSql);
+            stmt.executeUpdate(closedSql);
+            stmt.executeUpdate(pruneSql);
+            try (ResultSet rs = stmt.executeQuery(countSql)) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+    
     /**
      * Get ticket by ID with detailed information
      */
     public Ticket getTicketById(int ticketId) throws SQLException {
-        String sql = "SELECT t.*, c.name as customer_name, a.name as agent_name, " +
-                    "ts.status_name, tc.category_name, tp.priority_name " +
-                    "FROM Tickets t " +
-                    "JOIN Customers c ON t.customer_id = c.customer_id " +
-                    "LEFT JOIN Agents a ON t.agent_id = a.agent_id " +
-                    "JOIN TicketStatuses ts ON t.status_id = ts.status_id " +
-                    "JOIN TicketCategories tc ON t.category_id = tc.category_id " +
-                    "JOIN TicketPriorities tp ON t.priority_id = tp.priority_id " +
-                    "WHERE t.ticket_id = ?";
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection()) {
+            return getTicketById(conn, ticketId);
+        }
+    }
+    
+    /**
+     * Get ticket by ID on the caller's connection
+     */
+    public Ticket getTicketById(Connection conn, int ticketId) throws SQLException {
+        String sql = TICKET_DETAIL_SELECT + "WHERE t.ticket_id = ?";
+        ReferenceData referenceData = ReferenceDataCache.get(conn);
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, ticketId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return mapResultSetToTicket(rs);
+                    return mapResultSetToTicket(rs, referenceData);
                 }
             }
         }
         return null;
     }
     
+    /**
+     * Load several tickets with one IN query per chunk of at most chunkSize IDs.
+     * Tickets that do not exist are absent from the map.
+     */
+    public Map<Integer, Ticket> getTicketsByIds(Connection conn, Collection<Integer> ticketIds, int chunkSize) throws SQLException {
+        Map<Integer, Ticket> tickets = new HashMap<>();
+        ReferenceData referenceData = ReferenceDataCache.get(conn);
+        for (List<Integer> chunk : chunks(ticketIds, chunkSize)) {
+            String sql = TICKET_DETAIL_SELECT + "WHERE t.ticket_id IN (" + placeholders(chunk.size()) + ")";
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                bindIds(pstmt, chunk);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Ticket ticket = mapResultSetToTicket(rs, referenceData);
+                        tickets.put(ticket.getTicketId(), ticket);
+                    }
+                }
+            }
+        }
+        return tickets;
+    }
+    
+    /**
+     * Load the conversations of several tickets with one IN query per chunk of at most chunkSize IDs.
+     * Every requested ticket gets an entry, empty if it has no messages.
+     */
+    public Map<Integer, List<TicketConversation>> getConversationHistories(Connection conn, Collection<Integer> ticketIds,
+                                                                          int chunkSize) throws SQLException {
+        Map<Integer, List<TicketConversation>> histories = new HashMap<>();
+        for (Integer ticketId : ticketIds) {
+            histories.put(ticketId, new ArrayList<>());
+        }
+        
+        for (List<Integer> chunk : chunks(ticketIds, chunkSize)) {
+            String sql = conversationHistoriesSql(chunk.size());
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                bindIds(pstmt, chunk);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        TicketConversation conversation = mapResultSetToConversation(rs);
+                        histories.get(conversation.getTicketId()).add(conversation);
+                    }
+                }
+            }
+        }
+        return histories;
+    }
+    
+    static String conversationHistoriesSql(int ticketCount) {
+        return CONVERSATION_SELECT +
+               "WHERE tc.ticket_id IN (" + placeholders(ticketCount) + ") " +
+               "ORDER BY tc.ticket_id, tc.sent_at ASC, tc.message_id ASC";
+    }
+    
     /**
      * Get conversation history for a ticket
      */
     public List<TicketConversation> getConversationHistory(int ticketId) throws SQLException {
-        String sql = "SELECT tc.*, " +
-                    "CASE WHEN tc.is_sender_agent = true THEN a.name ELSE c.name END as sender_name " +
-                    "FROM TicketConversations tc " +
-                    "LEFT JOIN Agents a ON tc.is_sender_agent = true AND tc.sender_id = a.agent_id " +
-                    "LEFT JOIN Customers c ON tc.is_sender_agent = false AND tc.sender_id = c.customer_id " +
-                    "WHERE tc.ticket_id = ? " +
-                    "ORDER BY tc.sent_at ASC";
+        String sql = CONVERSATION_HISTORY_SQL;
         
         List<TicketConversation> conversations = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, ticketId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    TicketConversation conversation = new TicketConversation();
-                    conversation.setMessageId(rs.getInt("message_id"));
-                    conversation.setTicketId(rs.getInt("ticket_id"));
-                    conversation.setMessageText(rs.getString("message_text"));
-                    conversation.setSentAt(rs.getTimestamp("sent_at"));
-                    conversation.setSenderAgent(rs.getBoolean("is_sender_agent"));
-                    conversation.setSenderId(rs.getInt("sender_id"));
-                    conversation.setSenderName(rs.getString("sender_name"));
-                    
-                    conversations.add(conversation);
+                    conversations.add(mapResultSetToConversation(rs));
                 }
             }
         }
@@ -146,44 +640,543 @@ public class TicketDAO {
         return conversations;
     }
     
+    /**
+     * Full-text search over conversation messages, best match first (served by idx_conversations_text).
+     * The query is a list of words that must all appear; "quoted text" must appear as a phrase and a
+     * trailing * matches any word with that prefix. Other search operators are ignored. categoryId and
+     * statusId narrow the results to tickets in that category or status when not null; they are added to
+     * the full-text query as scope words, so only matches inside the scope are ranked and sorted.
+     */
+    public List<ConversationSearchHit> searchConversations(String query, Integer categoryId, Integer statusId,
+                                                           int limit) throws SQLException {
+        Page.checkPageSize(limit);
+        String booleanQuery = toBooleanQuery(query);
+        if (booleanQuery.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        booleanQuery += scopeTerms(categoryId, statusId);
+        String sql = searchSql(categoryId != null, statusId != null);
+        
+        List<ConversationSearchHit> hits = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            pstmt.setString(index++, booleanQuery);
+            pstmt.setString(index++, booleanQuery);
+            if (categoryId != null) {
+                pstmt.setInt(index++, categoryId);
+            }
+            if (statusId != null) {
+                pstmt.setInt(index++, statusId);
+            }
+            pstmt.setInt(index, limit);
+            ReferenceData referenceData = ReferenceDataCache.get(conn);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ConversationSearchHit hit = new ConversationSearchHit();
+                    hit.setMessageId(rs.getInt("message_id"));
+                    hit.setTicketId(rs.getInt("ticket_id"));
+                    hit.setMessageText(rs.getString("message_text"));
+                    hit.setSentAt(rs.getTimestamp("sent_at"));
+                    hit.setCategoryId(rs.getInt("category_id"));
+                    hit.setStatusId(rs.getInt("status_id"));
+                    hit.setRelevance(rs.getDouble("relevance"));
+                    hit.setCategoryName(ReferenceDataCache.getCategoryName(referenceData, hit.getCategoryId()));
+                    hit.setStatusName(ReferenceDataCache.getStatusName(referenceData, hit.getStatusId()));
+                    hits.add(hit);
+                }
+            }
+        }
+        
+        return hits;
+    }
+    
+    /**
+     * Turn a search into a BOOLEAN MODE query: every word and phrase required (+), prefixes kept,
+     * and any other operator characters dropped so user input cannot make the query invalid.
+     * Words the index does not hold (stopwords and words under three characters) are dropped.
+     */
+    static String toBooleanQuery(String query) {
+        StringBuilder result = new StringBuilder();
+        String[] parts = query == null ? new String[0] : query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            // Odd parts were inside quotes; an unclosed quote is treated as a phrase to the end
+            if (i % 2 == 1) {
+                String phrase = clean(parts[i], false).trim().replaceAll("\\s+", " ");
+                if (!phrase.isEmpty()) {
+                    result.append(result.length() == 0 ? "" : " ").append("+\"").append(phrase).append('"');
+                }
+                continue;
+            }
+            for (String word : clean(parts[i], true).split("\\s+")) {
+                // A lone * or a * inside a word means nothing to MySQL; only a trailing one is a prefix
+                String term = word.replaceAll("\\*+$", "*").replaceAll("\\*(?!$)", "");
+                if (!term.isEmpty() && !term.equals("*") && isIndexed(term)) {
+                    result.append(result.length() == 0 ? "" : " ").append('+').append(term);
+                }
+            }
+        }
+        return result.toString();
+    }
+    
+    // A prefix matches longer indexed words, so only whole words are checked
+    private static boolean isIndexed(String term) {
+        return term.endsWith("*") ||
+               (term.length() >= MIN_TOKEN_LENGTH && !STOPWORDS.contains(term.toLowerCase(Locale.ROOT)));
+    }
+    
+    // Keep letters, digits, apostrophes and underscores (and * outside phrases); everything else separates words
+    private static String clean(String text, boolean keepStar) {
+        StringBuilder cleaned = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            cleaned.append(Character.isLetterOrDigit(c) || c == '_' || c == '\'' || (keepStar && c == '*') ? c : ' ');
+        }
+        return cleaned.toString();
+    }
+    
+    /**
+     * Get a page of a ticket's conversation in the order it was sent, starting after the cursor (null for the first page)
+     */
+    public Page<TicketConversation> getConversationPage(int ticketId, PageCursor after, int pageSize) throws SQLException {
+        Page.checkPageSize(pageSize);
+        String sql = CONVERSATION_SELECT +
+                    "WHERE tc.ticket_id = ? " +
+                    (after == null ? "" : "AND tc.sent_at >= ? AND (tc.sent_at > ? OR tc.message_id > ?) ") +
+                    "ORDER BY tc.sent_at, tc.message_id LIMIT ?";
+        
+        List<TicketConversation> rows = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            pstmt.setInt(index++, ticketId);
+            if (after != null) {
+                Timestamp sentAt = (Timestamp) after.getSortKey();
+                pstmt.setTimestamp(index++, sentAt);
+                pstmt.setTimestamp(index++, sentAt);
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, pageSize + 1);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToConversation(rs));
+                }
+            }
+        }
+        
+        return Page.fromRows(rows, pageSize, message -> new PageCursor(message.getSentAt(), message.getMessageId()));
+    }
+    
+    /**
+     * Get a page of tickets, newest first, starting after the cursor (null for the first page)
+     */
+    public Page<Ticket> getTicketsPage(PageCursor after, int pageSize) throws SQLException {
+        Page.checkPageSize(pageSize);
+        String sql = TICKET_DETAIL_SELECT +
+                    (after == null ? "" : "WHERE t.created_at <= ? AND (t.created_at < ? OR t.ticket_id < ?) ") +
+                    "ORDER BY t.created_at DESC, t.ticket_id DESC LIMIT ?";
+        
+        List<Ticket> rows = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            if (after != null) {
+                Timestamp createdAt = (Timestamp) after.getSortKey();
+                pstmt.setTimestamp(index++, createdAt);
+                pstmt.setTimestamp(index++, createdAt);
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, pageSize + 1);
+            ReferenceData referenceData = ReferenceDataCache.get(conn);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToTicket(rs, referenceData));
+                }
+            }
+        }
+        
+        return Page.fromRows(rows, pageSize, ticket -> new PageCursor(ticket.getCreatedAt(), ticket.getTicketId()));
+    }
+    
+    // Scope words matching SEARCH_SCOPE_SQL, required alongside the user's words
+    static String scopeTerms(Integer categoryId, Integer statusId) {
+        return (categoryId != null ? " +category_" + categoryId : "") +
+               (statusId != null ? (statusId == 1 || statusId == 2 ? " +status_open" : " +status_done") : "");
+    }
+    
+    // Binds the boolean query (with its scope words) twice, then the category and status when filtered,
+    // then the limit. Message text could contain a scope word, so the filters are still checked on Tickets.
+    static String searchSql(boolean byCategory, boolean byStatus) {
+        return "SELECT tc.message_id, tc.ticket_id, tc.message_text, tc.sent_at, t.category_id, t.status_id, " +
+               "MATCH (tc.message_text, tc.search_scope) AGAINST (? IN BOOLEAN MODE) as relevance " +
+               "FROM TicketConversations tc " +
+               "JOIN Tickets t ON tc.ticket_id = t.ticket_id " +
+               "WHERE MATCH (tc.message_text, tc.search_scope) AGAINST (? IN BOOLEAN MODE) " +
+               (byCategory ? "AND t.category_id = ? " : "") +
+               (byStatus ? "AND t.status_id = ? " : "") +
+               "ORDER BY relevance DESC, tc.message_id DESC LIMIT ?";
+    }
+    
+    /**
+     * Page through an agent's tickets in one status, most urgent then oldest first (served by idx_tickets_inbox)
+     */
+    public Page<TicketSummary> getAgentTickets(int agentId, int statusId, PageCursor after, int pageSize) throws SQLException {
+        return getSummaryPage("idx_tickets_inbox", AGENT_INBOX_FILTER, after, pageSize, agentId, statusId);
+    }
+    
+    /**
+     * Page through open, unassigned tickets of a category, most urgent then oldest first (served by idx_tickets_unassigned)
+     */
+    public Page<TicketSummary> getUnassignedTickets(int categoryId, PageCursor after, int pageSize) throws SQLException {
+        return getSummaryPage("idx_tickets_unassigned", UNASSIGNED_FILTER, after, pageSize, categoryId);
+    }
+    
+    /**
+     * Page through escalated tickets (only open tickets stay escalated), most urgent then oldest first (served by idx_tickets_escalated)
+     */
+    public Page<TicketSummary> getEscalatedTickets(PageCursor after, int pageSize) throws SQLException {
+        return getSummaryPage("idx_tickets_escalated", ESCALATED_FILTER, after, pageSize);
+    }
+    
+    /**
+     * Keyset page ordered by priority (highest first), then created_at and ticket_id.
+     * The cursor carries the priority as its rank. The forced index supplies the order and stops the
+     * scan after pageSize + 1 entries; it holds only sort keys, so each of those rows is then read by primary key.
+     */
+    private Page<TicketSummary> getSummaryPage(String indexName, String filter, PageCursor after, int pageSize,
+                                               Object... params) throws SQLException {
+        Page.checkPageSize(pageSize);
+        String sql = summaryPageSql(indexName, filter, after != null);
+        
+        List<TicketSummary> rows = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            for (Object param : params) {
+                pstmt.setObject(index++, param);
+            }
+            if (after != null) {
+                Timestamp createdAt = (Timestamp) after.getSortKey();
+                pstmt.setInt(index++, after.getRank());
+                pstmt.setInt(index++, after.getRank());
+                pstmt.setInt(index++, after.getRank());
+                pstmt.setTimestamp(index++, createdAt);
+                pstmt.setTimestamp(index++, createdAt);
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, pageSize + 1);
+            ReferenceData referenceData = ReferenceDataCache.get(conn);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToSummary(rs, referenceData));
+                }
+            }
+        }
+        
+        return Page.fromRows(rows, pageSize,
+                summary -> new PageCursor(summary.getPriorityId(), summary.getCreatedAt(), summary.getTicketId()));
+    }
+    
+    // Binds the filter's parameters, then the cursor (priority three times, created_at twice, ID), then the limit
+    static String summaryPageSql(String indexName, String filter, boolean afterCursor) {
+        return SUMMARY_SELECT + "FORCE INDEX (" + indexName + ") WHERE " + filter + " " +
+               (afterCursor ? "AND t.priority_id <= ? AND (t.priority_id < ? OR (t.priority_id = ? AND " +
+                              "(t.created_at > ? OR (t.created_at = ? AND t.ticket_id > ?)))) " : "") +
+               "ORDER BY t.priority_id DESC, t.created_at, t.ticket_id LIMIT ?";
+    }
+    
+    /**
+     * Tickets of a category created after the given position and no later than createdBefore, oldest first,
+     * that still owe a first response (unassigned and Open) or a resolution (Open or In Progress).
+     * Served as a range scan of idx_tickets_sla; a null position starts from the oldest ticket.
+     * The index is forced: idx_tickets_unassigned also leads with category_id and looks as cheap to the
+     * optimizer, but walks the whole category and sorts instead of reading just the new time window.
+     */
+    public List<TicketSummary> findSlaCandidates(Connection conn, int categoryId, boolean awaitingResponse,
+                                                 PageCursor after, Timestamp createdBefore, int limit) throws SQLException {
+        String sql = slaCandidatesSql(awaitingResponse, after != null);
+        
+        List<TicketSummary> candidates = new ArrayList<>();
+        ReferenceData referenceData = ReferenceDataCache.get(conn);
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            pstmt.setInt(index++, categoryId);
+            pstmt.setTimestamp(index++, createdBefore);
+            if (after != null) {
+                Timestamp createdAt = (Timestamp) after.getSortKey();
+                pstmt.setTimestamp(index++, createdAt);
+                pstmt.setTimestamp(index++, createdAt);
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, limit);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    candidates.add(mapResultSetToSummary(rs, referenceData));
+                }
+            }
+        }
+        
+        return candidates;
+    }
+    
+    // Binds the category and createdBefore, then the position (created_at twice, ID), then the limit
+    static String slaCandidatesSql(boolean awaitingResponse, boolean afterPosition) {
+        return SUMMARY_SELECT + "FORCE INDEX (idx_tickets_sla) WHERE t.category_id = ? AND t.created_at <= ? " +
+               (afterPosition ? "AND (t.created_at > ? OR (t.created_at = ? AND t.ticket_id > ?)) " : "") +
+               (awaitingResponse ? "AND t.agent_id IS NULL AND t.status_id = 1 " : "AND t.status_id IN (1, 2) ") +
+               "ORDER BY t.created_at, t.ticket_id LIMIT ?";
+    }
+    
+    /**
+     * Summary rows for the given tickets keyed by ticket ID, chunkSize IDs per query; missing tickets are left out
+     */
+    public Map<Integer, TicketSummary> getTicketSummariesByIds(Connection conn, Collection<Integer> ticketIds,
+                                                               int chunkSize) throws SQLException {
+        Map<Integer, TicketSummary> summaries = new HashMap<>();
+        ReferenceData referenceData = ReferenceDataCache.get(conn);
+        for (List<Integer> chunk : chunks(ticketIds, chunkSize)) {
+            String sql = SUMMARY_SELECT + "WHERE t.ticket_id IN (" + placeholders(chunk.size()) + ")";
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                bindIds(pstmt, chunk);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        TicketSummary summary = mapResultSetToSummary(rs, referenceData);
+                        summaries.put(summary.getTicketId(), summary);
+                    }
+                }
+            }
+        }
+        return summaries;
+    }
+    
+    /**
+     * Stream every Open or In Progress ticket to the callback
+     */
+    public void streamOpenTickets(RowCallback<TicketSummary> callback) throws SQLException {
+        String sql = SUMMARY_SELECT + "WHERE t.status_id IN (1, 2)";
+        
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setFetchSize(DatabaseConnection.STREAM_FETCH_SIZE);
+            // Taken before streaming starts: nothing else may run on conn until the stream is closed
+            ReferenceData referenceData = ReferenceDataCache.get(conn);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    callback.processRow(mapResultSetToSummary(rs, referenceData));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Set is_escalated on the given tickets that are still open and not escalated, chunkSize IDs per
+     * statement. The rows are locked first, so the returned IDs are exactly the tickets this call escalated.
+     */
+    public List<Integer> escalateTickets(Connection conn, Collection<Integer> ticketIds, int chunkSize) throws SQLException {
+        List<Integer> escalated = new ArrayList<>();
+        for (List<Integer> chunk : chunks(ticketIds, chunkSize)) {
+            String lockSql = "SELECT ticket_id FROM Tickets " +
+                            "WHERE ticket_id IN (" + placeholders(chunk.size()) + ") AND is_escalated = FALSE " +
+                            "AND status_id IN (1, 2) FOR UPDATE";
+            
+            List<Integer> locked = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(lockSql)) {
+                bindIds(pstmt, chunk);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        locked.add(rs.getInt("ticket_id"));
+                    }
+                }
+            }
+            if (locked.isEmpty()) {
+                continue;
+            }
+            
+            String sql = "UPDATE Tickets SET is_escalated = TRUE WHERE ticket_id IN (" + placeholders(locked.size()) + ")";
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                bindIds(pstmt, locked);
+                pstmt.executeUpdate();
+            }
+            escalated.addAll(locked);
+        }
+        return escalated;
+    }
+    
     /**
      * Add message to ticket conversation
      */
     public boolean addMessage(TicketConversation message) throws SQLException {
-        String sql = "INSERT INTO TicketConversations (ticket_id, message_text, is_sender_agent, sender_id, sent_at) " +
-                    "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return addMessage(conn, message);
+        }
+    }
+    
+    /**
+     * Add message to ticket conversation on the caller's connection
+     */
+    public boolean addMessage(Connection conn, TicketConversation message) throws SQLException {
+        String sql = "INSERT INTO TicketConversations (ticket_id, message_text, is_sender_agent, sender_id, sent_at, search_scope) " +
+                    "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, (SELECT " + SEARCH_SCOPE_SQL + " FROM Tickets t WHERE t.ticket_id = ?))";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, message.getTicketId());
             pstmt.setString(2, message.getMessageText());
             pstmt.setBoolean(3, message.isSenderAgent());
             pstmt.setInt(4, message.getSenderId());
+            pstmt.setInt(5, message.getTicketId());
             
             return pstmt.executeUpdate() > 0;
         }
     }
     
+    /**
+     * Create tickets with their initial customer messages on the caller's connection.
+     * 
+     * Tickets are inserted with one batch (sent as a multi-row INSERT when the connection
+     * uses rewriteBatchedStatements) and their messages with a second one. If the ticket batch
+     * fails, it is rolled back to a savepoint and replayed row by row so that only the bad
+     * rows are reported as failures. The caller owns the transaction.
+     */
+    public BulkTicketResult createTicketsWithMessages(Connection conn, List<NewTicket> tickets) throws SQLException {
+        BulkTicketResult result = new BulkTicketResult(tickets.size());
+        if (tickets.isEmpty()) {
+            return result;
+        }
+        
+        String ticketSql = "INSERT INTO Tickets (customer_id, status_id, category_id, priority_id, created_at) " +
+                    "VALUES (?, 1, ?, ?, CURRENT_TIMESTAMP)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(ticketSql, Statement.RETURN_GENERATED_KEYS)) {
+            Savepoint beforeBatch = conn.setSavepoint();
+            try {
+                for (NewTicket ticket : tickets) {
+                    bindNewTicket(pstmt, ticket);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    int index = 0;
+                    while (generatedKeys.next() && index < tickets.size()) {
+                        result.setTicketId(index++, generatedKeys.getInt(1));
+                    }
+                    if (index != tickets.size()) {
+                        throw new SQLException("Bulk ticket insert returned " + index + " IDs for " + tickets.size() + " tickets");
+                    }
+                }
+                conn.releaseSavepoint(beforeBatch);
+            } catch (BatchUpdateException e) {
+                conn.rollback(beforeBatch);
+                pstmt.clearBatch();
+                insertTicketsOneByOne(conn, pstmt, tickets, result);
+            }
+        }
+        
+        insertInitialMessages(conn, tickets, result);
+        return result;
+    }
+    
+    /**
+     * Fallback for a failed ticket batch: insert each row under its own savepoint and record failures
+     */
+    private void insertTicketsOneByOne(Connection conn, PreparedStatement pstmt, List<NewTicket> tickets,
+                                       BulkTicketResult result) throws SQLException {
+        for (int i = 0; i < tickets.size(); i++) {
+            Savepoint beforeRow = conn.setSavepoint();
+            try {
+                bindNewTicket(pstmt, tickets.get(i));
+                pstmt.executeUpdate();
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Creating ticket failed, no ID obtained.");
+                    }
+                    result.setTicketId(i, generatedKeys.getInt(1));
+                }
+                conn.releaseSavepoint(beforeRow);
+            } catch (SQLException e) {
+                conn.rollback(beforeRow);
+                result.addFailure(i, e);
+            }
+        }
+    }
+    
+    private void insertInitialMessages(Connection conn, List<NewTicket> tickets, BulkTicketResult result) throws SQLException {
+        String sql = "INSERT INTO TicketConversations (ticket_id, message_text, is_sender_agent, sender_id, sent_at, search_scope) " +
+                    "VALUES (?, ?, false, ?, CURRENT_TIMESTAMP, (SELECT " + SEARCH_SCOPE_SQL + " FROM Tickets t WHERE t.ticket_id = ?))";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int batched = 0;
+            for (int i = 0; i < tickets.size(); i++) {
+                int ticketId = result.getTicketId(i);
+                if (ticketId == 0) {
+                    continue;
+                }
+                NewTicket ticket = tickets.get(i);
+                pstmt.setInt(1, ticketId);
+                pstmt.setString(2, ticket.getInitialMessage());
+                pstmt.setInt(3, ticket.getCustomerId());
+                pstmt.setInt(4, ticketId);
+                pstmt.addBatch();
+                batched++;
+            }
+            if (batched > 0) {
+                pstmt.executeBatch();
+            }
+        }
+    }
+    
+    private void bindNewTicket(PreparedStatement pstmt, NewTicket ticket) throws SQLException {
+        pstmt.setInt(1, ticket.getCustomerId());
+        pstmt.setInt(2, ticket.getCategoryId());
+        pstmt.setInt(3, ticket.getPriorityId());
+    }
+    
     /**
      * Get monthly ticket volume report
      */
     public List<Object[]> getMonthlyTicketVolumeReport(int year, int month) throws SQLException {
-        String sql = "SELECT DATE(created_at) as ticket_date, COUNT(*) as ticket_count, " +
-                    "tc.category_name " +
-                    "FROM Tickets t " +
-                    "JOIN TicketCategories tc ON t.category_id = tc.category_id " +
-                    "WHERE YEAR(created_at) = ? AND MONTH(created_at) = ? " +
-                    "GROUP BY DATE(created_at), tc.category_name " +
-                    "ORDER BY ticket_date";
-        
         List<Object[]> report = new ArrayList<>();
+        streamMonthlyTicketVolumeReport(year, month, report::add);
+        return report;
+    }
+    
+    /**
+     * Stream the monthly ticket volume report rows (date, count, category name) to the callback.
+     * Reads the TicketDailyVolume rollup: at most VOLUME_SHARDS rows per day and category.
+     */
+    public void streamMonthlyTicketVolumeReport(int year, int month, RowCallback<Object[]> callback) throws SQLException {
+        String sql = MONTHLY_VOLUME_SQL;
+        
+        LocalDate monthStart = LocalDate.of(year, month, 1);
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setInt(1, year);
-            pstmt.setInt(2, month);
+            pstmt.setDate(1, Date.valueOf(monthStart));
+            pstmt.setDate(2, Date.valueOf(monthStart.plusMonths(1)));
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -192,11 +1185,40 @@ public class TicketDAO {
                         rs.getInt("ticket_count"),
                         rs.getString("category_name")
                     };
-                    report.add(row);
+                    callback.processRow(row);
                 }
             }
         }
+    }
+    
+    /**
+     * Ticket volume per category over [from, to): category name, created, resolved and
+     * closed counts. Served from TicketDailyVolume, so weekly, monthly or quarterly ranges
+     * cost at most VOLUME_SHARDS rollup rows per day and category.
+     */
+    public List<Object[]> getTicketVolumeByCategory(LocalDate from, LocalDate to) throws SQLException {
+        String sql = VOLUME_BY_CATEGORY_SQL;
+        
+        List<Object[]> report = new ArrayList<>();
         
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setDate(1, Date.valueOf(from));
+            pstmt.setDate(2, Date.valueOf(to));
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Object[] row = {
+                        rs.getString("category_name"),
+                        rs.getInt("created"),
+                        rs.getInt("resolved"),
+                        rs.getInt("closed")
+                    };
+                    report.add(row);
+                }
+            }
+        }
         return report;
     }
     
@@ -204,17 +1226,20 @@ public class TicketDAO {
      * Get average resolution time per category
      */
     public List<Object[]> getAverageResolutionTimePerCategory() throws SQLException {
-        String sql = "SELECT tc.category_name, " +
-                    "AVG(TIMESTAMPDIFF(MINUTE, t.created_at, t.closed_at)) as avg_resolution_time " +
-                    "FROM Tickets t " +
-                    "JOIN TicketCategories tc ON t.category_id = tc.category_id " +
-                    "WHERE t.closed_at IS NOT NULL " +
-                    "GROUP BY tc.category_id, tc.category_name " +
-                    "ORDER BY avg_resolution_time";
-        
         List<Object[]> report = new ArrayList<>();
+        streamAverageResolutionTimePerCategory(report::add);
+        return report;
+    }
+    
+    /**
+     * Stream the average resolution time rows (category name, minutes) to the callback.
+     * Reads the CategoryMetrics rollup, so the cost depends on the number of categories
+     * rather than the number of closed tickets.
+     */
+    public void streamAverageResolutionTimePerCategory(RowCallback<Object[]> callback) throws SQLException {
+        String sql = AVERAGE_RESOLUTION_SQL;
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -223,18 +1248,88 @@ public class TicketDAO {
                         rs.getString("category_name"),
                         rs.getDouble("avg_resolution_time")
                     };
-                    report.add(row);
+                    callback.processRow(row);
                 }
             }
         }
+    }
+    
+    private static List<List<Integer>> chunks(Collection<Integer> ids, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>(Math.min(chunkSize, ids.size()));
+        for (Integer id : ids) {
+            chunk.add(id);
+            if (chunk.size() == chunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+    
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+    
+    private static void bindIds(PreparedStatement pstmt, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            pstmt.setInt(i + 1, ids.get(i));
+        }
+    }
+    
+    /**
+     * Helper method to map ResultSet to TicketConversation object
+     */
+    private TicketConversation mapResultSetToConversation(ResultSet rs) throws SQLException {
+        TicketConversation conversation = new TicketConversation();
+        conversation.setMessageId(rs.getInt("message_id"));
+        conversation.setTicketId(rs.getInt("ticket_id"));
+        conversation.setMessageText(rs.getString("message_text"));
+        conversation.setSentAt(rs.getTimestamp("sent_at"));
+        conversation.setSenderAgent(rs.getBoolean("is_sender_agent"));
+        conversation.setSenderId(rs.getInt("sender_id"));
+        conversation.setSenderName(rs.getString("sender_name"));
+        return conversation;
+    }
+    
+    /**
+     * Helper method to map a SUMMARY_SELECT row to TicketSummary
+     */
+    private TicketSummary mapResultSetToSummary(ResultSet rs, ReferenceData referenceData) throws SQLException {
+        TicketSummary summary = new TicketSummary();
+        summary.setTicketId(rs.getInt("ticket_id"));
+        summary.setCustomerId(rs.getInt("customer_id"));
+        
+        int agentId = rs.getInt("agent_id");
+        if (!rs.wasNull()) {
+            summary.setAgentId(agentId);
+        }
         
-        return report;
+        summary.setStatusId(rs.getInt("status_id"));
+        summary.setCategoryId(rs.getInt("category_id"));
+        summary.setPriorityId(rs.getInt("priority_id"));
+        summary.setCreatedAt(rs.getTimestamp("created_at"));
+        summary.setEscalated(rs.getBoolean("is_escalated"));
+        summary.setStatusName(ReferenceDataCache.getStatusName(referenceData, summary.getStatusId()));
+        summary.setCategoryName(ReferenceDataCache.getCategoryName(referenceData, summary.getCategoryId()));
+        summary.setPriorityName(ReferenceDataCache.getPriorityName(referenceData, summary.getPriorityId()));
+        return summary;
     }
     
     /**
      * Helper method to map ResultSet to Ticket object
      */
-    private Ticket mapResultSetToTicket(ResultSet rs) throws SQLException {
+    private Ticket mapResultSetToTicket(ResultSet rs, ReferenceData referenceData) throws SQLException {
         Ticket ticket = new Ticket();
         ticket.setTicketId(rs.getInt("ticket_id"));
         ticket.setCustomerId(rs.getInt("customer_id"));
@@ -256,9 +1351,9 @@ public class TicketDAO {
         // Set display fields
         ticket.setCustomerName(rs.getString("customer_name"));
         ticket.setAgentName(rs.getString("agent_name"));
-        ticket.setStatusName(rs.getString("status_name"));
-        ticket.setCategoryName(rs.getString("category_name"));
-        ticket.setPriorityName(rs.getString("priority_name"));
+        ticket.setStatusName(ReferenceDataCache.getStatusName(referenceData, ticket.getStatusId()));
+        ticket.setCategoryName(ReferenceDataCache.getCategoryName(referenceData, ticket.getCategoryId()));
+        ticket.setPriorityName(ReferenceDataCache.getPriorityName(referenceData, ticket.getPriorityId()));
         
         return ticket;
     }
@@ -0,0 +1,107 @@
+package com.helpdesk.dao;
+
+import com.helpdesk.db.DatabaseConnection;
+import com.helpdesk.model.TicketHistoryEntry;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the TicketHistory audit trail
+ */
+public class TicketHistoryDAO {
+    
+    /**
+     * Append history rows in one batch (a single multi-row INSERT with rewriteBatchedStatements)
+     */
+    public void insertHistory(Connection conn, List<TicketHistoryEntry> entries) throws SQLException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO TicketHistory (ticket_id, changed_by, changed_field_name, old_value_id, new_value_id, changed_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (TicketHistoryEntry entry : entries) {
+                pstmt.setInt(1, entry.getTicketId());
+                setNullableInt(pstmt, 2, entry.getChangedBy());
+                pstmt.setString(3, entry.getChangedFieldName());
+                setNullableInt(pstmt, 4, entry.getOldValueId());
+                setNullableInt(pstmt, 5, entry.getNewValueId());
+                pstmt.setTimestamp(6, entry.getChangedAt());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Get a page of a ticket's history, oldest change first, starting after the cursor (null for the first page)
+     */
+    public Page<TicketHistoryEntry> getHistoryPage(int ticketId, PageCursor after, int pageSize) throws SQLException {
+        Page.checkPageSize(pageSize);
+        String sql = historyPageSql(after != null);
+        
+        List<TicketHistoryEntry> rows = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            pstmt.setInt(index++, ticketId);
+            if (after != null) {
+                Timestamp changedAt = (Timestamp) after.getSortKey();
+                pstmt.setTimestamp(index++, changedAt);
+                pstmt.setTimestamp(index++, changedAt);
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, pageSize + 1);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToEntry(rs));
+                }
+            }
+        }
+        
+        return Page.fromRows(rows, pageSize, entry -> new PageCursor(entry.getChangedAt(), entry.getHistoryId()));
+    }
+    
+    // Binds the ticket ID, then the cursor (changed_at twice, history ID), then the limit
+    static String historyPageSql(boolean afterCursor) {
+        return "SELECT * FROM TicketHistory " +
+               "WHERE ticket_id = ? " +
+               (afterCursor ? "AND changed_at >= ? AND (changed_at > ? OR history_id > ?) " : "") +
+               "ORDER BY changed_at, history_id LIMIT ?";
+    }
+    
+    private static void setNullableInt(PreparedStatement pstmt, int index, Integer value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setInt(index, value);
+        }
+    }
+    
+    private static Integer getNullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+    
+    /**
+     * Helper method to map ResultSet to TicketHistoryEntry object
+     */
+    private TicketHistoryEntry mapResultSetToEntry(ResultSet rs) throws SQLException {
+        TicketHistoryEntry entry = new TicketHistoryEntry();
+        entry.setHistoryId(rs.getInt("history_id"));
+        entry.setTicketId(rs.getInt("ticket_id"));
+        entry.setChangedBy(getNullableInt(rs, "changed_by"));
+        entry.setChangedFieldName(rs.getString("changed_field_name"));
+        entry.setOldValueId(getNullableInt(rs, "old_value_id"));
+        entry.setNewValueId(getNullableInt(rs, "new_value_id"));
+        entry.setChangedAt(rs.getTimestamp("changed_at"));
+        return entry;
+    }
+}
\ No newline at end of file
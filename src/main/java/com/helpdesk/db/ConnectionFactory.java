@@ -0,0 +1,16 @@
+package com.helpdesk.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Opens new physical database connections for a ConnectionPool
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+    
+    /**
+     * Open a new physical connection
+     */
+    Connection newConnection() throws SQLException;
+}
\ No newline at end of file
@@ -0,0 +1,476 @@
+package com.helpdesk.db;
+
+import com.helpdesk.metrics.MetricsRegistry;
+import com.helpdesk.metrics.QueryMetrics;
+import com.helpdesk.metrics.StatementInstrumentation;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Connections handed out by the pool are proxies: closing one returns the
+ * physical connection to the pool instead of closing it, so DAOs can keep
+ * using try-with-resources. Idle connections are validated on borrow, evicted
+ * after the idle timeout (down to minIdle), and connections held longer than
+ * the leak detection threshold are reported with the stack trace of the borrower.
+ * Statements created on borrowed connections report their timings to QueryMetrics and
+ * honour the deadline of the thread's QueryContext, if one is open.
+ */
+public class ConnectionPool implements DataSource {
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+    
+    private final String name;
+    private final ConnectionFactory factory;
+    private final PoolConfig config;
+    
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<PooledConnection, Boolean> borrowed = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    
+    private volatile boolean shutdown = false;
+    
+    public ConnectionPool(String name, ConnectionFactory factory, PoolConfig config) {
+        if (config.getMaxSize() < 1 || config.getMinIdle() < 0 || config.getMinIdle() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Invalid pool sizing: " + config);
+        }
+        this.name = name;
+        this.factory = factory;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pool-housekeeper-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getHousekeepingIntervalMillis();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+        
+        fillToMinIdle();
+    }
+    
+    /**
+     * Borrow a connection, waiting up to the borrow timeout for one to become free
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null);
+    }
+    
+    /**
+     * Borrow a connection; onReturn, if given, runs once the borrower closes it
+     */
+    Connection getConnection(Runnable onReturn) throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool '" + name + "' has been shut down");
+        }
+        
+        QueryContext context = QueryContext.current();
+        long timeoutMillis = context == null ? config.getBorrowTimeoutMillis()
+                : Math.max(0, context.remainingMillis(config.getBorrowTimeoutMillis()));
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                QueryMetrics.getRegistry().recordConnectionWait(name, System.nanoTime() - start, true);
+                throw new SQLTransientConnectionException("Connection pool '" + name + "' timed out after " +
+                        timeoutMillis + "ms (active=" + getActiveCount() +
+                        ", max=" + config.getMaxSize() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+        
+        try {
+            PooledConnection pooled = takeConnection(deadline);
+            QueryMetrics.getRegistry().recordConnectionWait(name, System.nanoTime() - start, false);
+            pooled.borrowedAt = System.currentTimeMillis();
+            if (config.getLeakDetectionThresholdMillis() > 0) {
+                pooled.borrowTrace = new Exception("Connection borrowed here");
+            }
+            pooled.leakReported = false;
+            borrowed.put(pooled, Boolean.TRUE);
+            return pooled.newProxy(onReturn);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    private PooledConnection takeConnection(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled == null) {
+                if (reserveSlot()) {
+                    return openConnection();
+                }
+                // Pool is at capacity but a connection is on its way back to the idle queue
+                pooled = pollIdle(deadline);
+            }
+            
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+    }
+    
+    private PooledConnection pollIdle(long deadline) throws SQLException {
+        try {
+            PooledConnection pooled = idle.pollFirst(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (pooled == null) {
+                throw new SQLTransientConnectionException("Connection pool '" + name + "' timed out waiting for an idle connection");
+            }
+            return pooled;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+    }
+    
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsedAt < config.getValidationBypassMillis()) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private boolean reserveSlot() {
+        while (true) {
+            int current = totalConnections.get();
+            if (current >= config.getMaxSize()) {
+                return false;
+            }
+            if (totalConnections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    private PooledConnection openConnection() throws SQLException {
+        try {
+            return new PooledConnection(factory.newConnection());
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+    
+    /**
+     * Called when a borrower closes its proxy
+     */
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        pooled.borrowTrace = null;
+        pooled.lastUsedAt = System.currentTimeMillis();
+        
+        if (shutdown || pooled.broken || !resetState(pooled)) {
+            discard(pooled);
+        } else {
+            idle.offerFirst(pooled);
+        }
+        permits.release();
+    }
+    
+    private boolean resetState(PooledConnection pooled) {
+        try {
+            Connection physical = pooled.physical;
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+            physical.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Connection is being thrown away anyway
+        }
+    }
+    
+    private void housekeep() {
+        try {
+            evictIdleConnections();
+            detectLeaks();
+            fillToMinIdle();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Connection pool '" + name + "' housekeeping failed", e);
+        }
+    }
+    
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && totalConnections.get() > config.getMinIdle()) {
+            PooledConnection pooled = oldestFirst.next();
+            if (now - pooled.lastUsedAt > config.getIdleTimeoutMillis() && idle.remove(pooled)) {
+                discard(pooled);
+            }
+        }
+    }
+    
+    private void detectLeaks() {
+        long threshold = config.getLeakDetectionThresholdMillis();
+        if (threshold <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : borrowed.keySet()) {
+            Exception trace = pooled.borrowTrace;
+            if (!pooled.leakReported && trace != null && now - pooled.borrowedAt > threshold) {
+                pooled.leakReported = true;
+                LOG.log(Level.WARNING, "Connection pool '" + name + "': possible connection leak, connection held for " +
+                        (now - pooled.borrowedAt) + "ms", trace);
+            }
+        }
+    }
+    
+    private void fillToMinIdle() {
+        while (!shutdown && idle.size() < config.getMinIdle() && reserveSlot()) {
+            try {
+                idle.offerLast(openConnection());
+            } catch (SQLException e) {
+                LOG.warning("Connection pool '" + name + "' could not open idle connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Close all idle connections and stop handing out new ones.
+     * Borrowed connections are closed as they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+    
+    public boolean isShutdown() {
+        return shutdown;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public PoolConfig getConfig() {
+        return config;
+    }
+    
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+    
+    public int getIdleCount() {
+        return idle.size();
+    }
+    
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+    
+    // DataSource plumbing
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the pool's configured credentials");
+    }
+    
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+    
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Not used
+    }
+    
+    @Override
+    public void setLoginTimeout(int seconds) {
+        // Not used, see PoolConfig.setBorrowTimeoutMillis
+    }
+    
+    @Override
+    public int getLoginTimeout() {
+        return (int) TimeUnit.MILLISECONDS.toSeconds(config.getBorrowTimeoutMillis());
+    }
+    
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+    
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+    
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+    
+    /**
+     * A physical connection plus its pool bookkeeping
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        private volatile long borrowedAt;
+        private volatile Exception borrowTrace;
+        private volatile boolean leakReported;
+        private volatile boolean broken;
+        
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+        
+        Connection newProxy(Runnable onReturn) {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new Handler(this, onReturn));
+        }
+    }
+    
+    /**
+     * Routes calls on a borrowed proxy to the physical connection until the proxy is closed
+     */
+    private class Handler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final Runnable onReturn;
+        // Checked by toString/isClosed from other threads, e.g. the leak detector's reports
+        private volatile boolean closed = false;
+        
+        Handler(PooledConnection pooled, Runnable onReturn) {
+            this.pooled = pooled;
+            this.onReturn = onReturn;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                        if (onReturn != null) {
+                            onReturn.run();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + name + "]" + (closed ? " (closed)" : "");
+                default:
+                    break;
+            }
+            
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            
+            try {
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement) {
+                    QueryContext context = QueryContext.current();
+                    if (context != null) {
+                        register(context, (Statement) result);
+                    }
+                    return instrument((Statement) result, proxy, args);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isConnectionError((SQLException) cause)) {
+                    pooled.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+    
+    private static void register(QueryContext context, Statement statement) throws SQLException {
+        try {
+            context.register(statement);
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Wrap statements so their executions are timed, unless metrics are switched off
+     */
+    private static Statement instrument(Statement statement, Object connectionProxy, Object[] args) {
+        MetricsRegistry registry = QueryMetrics.getRegistry();
+        if (registry == MetricsRegistry.NOOP) {
+            return statement;
+        }
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        return StatementInstrumentation.wrap(statement, (Connection) connectionProxy, sql, registry);
+    }
+    
+    /**
+     * SQLState class 08 means the connection itself is unusable
+     */
+    private static boolean isConnectionError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+}
\ No newline at end of file
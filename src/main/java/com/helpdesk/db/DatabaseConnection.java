@@ -3,16 +3,100 @@ package com.helpdesk.db;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 /**
- * Database connection utility class for Help Desk Platform
+ * Database connection utility class for Help Desk Platform.
+ * Connections come from a shared ConnectionPool; closing a connection returns it to the pool.
+ *
+ * Besides the primary there can be named read replicas, configured with
+ * -Dhelpdesk.db.replicas=name1,name2 and -Dhelpdesk.db.name1.url (plus optional .user and
+ * .password), or added with addReplica(). getReadConnection() hands out a replica connection,
+ * round robin, for read-only queries. A thread that borrowed a primary connection to write, with
+ * getConnection(), reads from the primary while it holds that connection and for stickyMillis after
+ * returning it, so it sees its own writes however long its transaction ran. Reads that must see the
+ * latest committed state borrow with getPrimaryReadConnection(), which does not pin later reads. A replica that cannot hand out a
+ * connection is skipped for a while, with reads failing back to the primary.
  */
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/helpdesk_platform";
-    private static final String USERNAME = "root";
-    private static final String PASSWORD = "root";
+    private static final Logger LOG = Logger.getLogger(DatabaseConnection.class.getName());
     
-    private static Connection connection = null;
+    public static final String PRIMARY = "primary";
+    
+    // rewriteBatchedStatements turns JDBC batches into multi-row INSERTs (bulk ticket ingestion)
+    // Each can be overridden with a -Dhelpdesk.db.* system property, e.g. to point benchmarks at their own database
+    private static final String URL = System.getProperty("helpdesk.db.url",
+            "jdbc:mysql://localhost:3306/helpdesk_platform" +
+            "?rewriteBatchedStatements=true&cachePrepStmts=true&prepStmtCacheSize=250");
+    
+    /**
+     * Fetch size that makes Connector/J stream a result set row by row instead of buffering it.
+     * Set it only on statements that walk whole tables (exports, the SLA rebuild); nothing else
+     * may run on the connection until the result set is closed.
+     */
+    public static final int STREAM_FETCH_SIZE = Integer.MIN_VALUE;
+    private static final String USERNAME = System.getProperty("helpdesk.db.user", "root");
+    private static final String PASSWORD = System.getProperty("helpdesk.db.password", "root");
+    
+    // Pool settings
+    private static final int POOL_MIN_IDLE = 2;
+    private static final int POOL_MAX_SIZE = 10;
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = 5000;
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+    private static final long POOL_LEAK_DETECTION_MILLIS = 60 * 1000;
+    
+    // Read routing; -Dhelpdesk.db.stickyMillis should cover the replicas' usual lag
+    private static final long STICKY_MILLIS = Long.getLong("helpdesk.db.stickyMillis", 5000);
+    private static final long REPLICA_RETRY_MILLIS = Long.getLong("helpdesk.db.replicaRetryMillis", 30000);
+    private static final long REPLICA_BORROW_TIMEOUT_MILLIS = 1000;
+    
+    private static volatile ConnectionPool pool = null;
+    
+    private static final List<Replica> replicas = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger nextReplica = new AtomicInteger();
+    private static volatile boolean replicasConfigured = false;
+    private static final ThreadLocal<ReadRouting> readRouting = ThreadLocal.withInitial(ReadRouting::new);
+    
+    private static class Replica {
+        final ConnectionPool pool;
+        volatile long downUntilNanos = Long.MIN_VALUE;
+        
+        Replica(ConnectionPool pool) {
+            this.pool = pool;
+        }
+    }
+    
+    /**
+     * One thread's primary borrows; its reads go to the primary while any is held and until
+     * primaryReadsUntil (a System.nanoTime()). Returns may happen on another thread.
+     */
+    private static class ReadRouting {
+        private int primaryHeld;
+        private long primaryReadsUntil = Long.MIN_VALUE;
+        
+        synchronized void borrowed() {
+            primaryHeld++;
+        }
+        
+        synchronized void returned() {
+            primaryHeld = Math.max(0, primaryHeld - 1);
+            primaryReadsUntil = System.nanoTime() + STICKY_MILLIS * 1_000_000;
+        }
+        
+        synchronized boolean readsFromPrimary(long nowNanos) {
+            return primaryHeld > 0 || isBefore(nowNanos, primaryReadsUntil);
+        }
+        
+        synchronized void reset() {
+            primaryHeld = 0;
+            primaryReadsUntil = Long.MIN_VALUE;
+        }
+    }
     
     static {
         try {
@@ -24,28 +108,218 @@ public class DatabaseConnection {
         }
     }
     
+    /**
+     * Borrow a connection from the primary pool to write. Callers must close it to return it.
+     * The calling thread's reads stay on the primary until a while after it is returned, see getReadConnection().
+     */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-            System.out.println("Database connection established successfully!");
+        ReadRouting routing = readRouting.get();
+        Connection conn = getDataSource().getConnection(routing::returned);
+        routing.borrowed();
+        return conn;
+    }
+    
+    /**
+     * Borrow a primary connection for a read that must not lag, such as a check before a write or
+     * a cache load. Unlike getConnection() it leaves the calling thread's read routing alone.
+     */
+    public static Connection getPrimaryReadConnection() throws SQLException {
+        return getDataSource().getConnection();
+    }
+    
+    /**
+     * Borrow a connection for read-only queries: from a replica when one is configured and up,
+     * and the calling thread neither holds a primary connection nor returned one within stickyMillis;
+     * otherwise from the primary.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        configureReplicas();
+        long now = System.nanoTime();
+        int count = replicas.size();
+        if (count == 0 || readRouting.get().readsFromPrimary(now)) {
+            return getDataSource().getConnection();
+        }
+        
+        int start = nextReplica.getAndIncrement();
+        for (int i = 0; i < count; i++) {
+            Replica replica;
+            try {
+                replica = replicas.get(Math.floorMod(start + i, count));
+            } catch (IndexOutOfBoundsException e) {
+                // Removed concurrently
+                break;
+            }
+            if (isBefore(now, replica.downUntilNanos) || replica.pool.isShutdown()) {
+                continue;
+            }
+            try {
+                return replica.pool.getConnection();
+            } catch (SQLTransientConnectionException e) {
+                // Busy rather than down: use the primary this time only
+            } catch (SQLException e) {
+                replica.downUntilNanos = now + REPLICA_RETRY_MILLIS * 1_000_000;
+                LOG.warning("Replica '" + replica.pool.getName() + "' is unavailable, reading from the primary for " +
+                                   REPLICA_RETRY_MILLIS + "ms: " + e.getMessage());
+            }
         }
-        return connection;
+        return getDataSource().getConnection();
     }
     
-    public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed successfully!");
+    /**
+     * Borrow a connection from the named data source (PRIMARY or a replica name), without read routing
+     */
+    public static Connection getConnection(String name) throws SQLException {
+        ConnectionPool named = getDataSource(name);
+        if (named == null) {
+            throw new SQLException("Unknown data source '" + name + "'");
+        }
+        return named.getConnection();
+    }
+    
+    /**
+     * Let the calling thread read from replicas again even if it wrote recently; call when a
+     * request ends on a thread that serves other requests next
+     */
+    public static void resetReadRouting() {
+        readRouting.get().reset();
+    }
+    
+    /**
+     * Get the shared pool, creating it on first use
+     */
+    public static ConnectionPool getDataSource() {
+        ConnectionPool current = pool;
+        if (current != null && !current.isShutdown()) {
+            return current;
+        }
+        synchronized (DatabaseConnection.class) {
+            if (pool == null || pool.isShutdown()) {
+                PoolConfig config = new PoolConfig();
+                config.setMinIdle(POOL_MIN_IDLE);
+                config.setMaxSize(POOL_MAX_SIZE);
+                config.setBorrowTimeoutMillis(POOL_BORROW_TIMEOUT_MILLIS);
+                config.setIdleTimeoutMillis(POOL_IDLE_TIMEOUT_MILLIS);
+                config.setLeakDetectionThresholdMillis(POOL_LEAK_DETECTION_MILLIS);
+                
+                pool = new ConnectionPool(PRIMARY, () -> DriverManager.getConnection(URL, USERNAME, PASSWORD), config);
+                LOG.info("Database connection pool started (" + config + ")");
             }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+            return pool;
         }
     }
     
+    /**
+     * The named data source's pool (PRIMARY or a replica name), or null if there is none
+     */
+    public static ConnectionPool getDataSource(String name) {
+        if (PRIMARY.equals(name)) {
+            return getDataSource();
+        }
+        configureReplicas();
+        for (Replica replica : replicas) {
+            if (replica.pool.getName().equals(name)) {
+                return replica.pool;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Add a read replica under the given name; connections from its factory should be read-only
+     */
+    public static synchronized void addReplica(String name, ConnectionFactory factory) {
+        if (PRIMARY.equals(name) || getDataSource(name) != null) {
+            throw new IllegalArgumentException("Data source '" + name + "' already exists");
+        }
+        PoolConfig config = new PoolConfig();
+        config.setMinIdle(0);
+        config.setMaxSize(POOL_MAX_SIZE);
+        // A busy replica is not waited on for long; the read goes to the primary instead
+        config.setBorrowTimeoutMillis(REPLICA_BORROW_TIMEOUT_MILLIS);
+        config.setIdleTimeoutMillis(POOL_IDLE_TIMEOUT_MILLIS);
+        config.setLeakDetectionThresholdMillis(POOL_LEAK_DETECTION_MILLIS);
+        replicas.add(new Replica(new ConnectionPool(name, factory, config)));
+        LOG.info("Read replica '" + name + "' added (" + config + ")");
+    }
+    
+    /**
+     * Add a read replica reached at the given JDBC URL; its connections are opened read-only
+     */
+    public static void addReplica(String name, String url, String username, String password) {
+        addReplica(name, () -> {
+            Connection conn = DriverManager.getConnection(url, username, password);
+            conn.setReadOnly(true);
+            return conn;
+        });
+    }
+    
+    /**
+     * Stop routing reads to the named replica and close its pool
+     */
+    public static synchronized void removeReplica(String name) {
+        for (Replica replica : replicas) {
+            if (replica.pool.getName().equals(name)) {
+                replicas.remove(replica);
+                replica.pool.shutdown();
+            }
+        }
+    }
+    
+    public static List<String> getReplicaNames() {
+        configureReplicas();
+        List<String> names = new ArrayList<>();
+        for (Replica replica : replicas) {
+            names.add(replica.pool.getName());
+        }
+        return names;
+    }
+    
+    // Long.MIN_VALUE means no deadline; compared by difference since nanoTime may wrap
+    private static boolean isBefore(long nowNanos, long deadlineNanos) {
+        return deadlineNanos != Long.MIN_VALUE && nowNanos - deadlineNanos < 0;
+    }
+    
+    // Replicas named in -Dhelpdesk.db.replicas, added on first use
+    private static void configureReplicas() {
+        if (replicasConfigured) {
+            return;
+        }
+        synchronized (DatabaseConnection.class) {
+            if (replicasConfigured) {
+                return;
+            }
+            replicasConfigured = true;
+            for (String name : System.getProperty("helpdesk.db.replicas", "").split(",")) {
+                name = name.trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                String url = System.getProperty("helpdesk.db." + name + ".url");
+                if (url == null) {
+                    LOG.warning("Read replica '" + name + "' has no -Dhelpdesk.db." + name + ".url; skipped");
+                    continue;
+                }
+                addReplica(name, url, System.getProperty("helpdesk.db." + name + ".user", USERNAME),
+                           System.getProperty("helpdesk.db." + name + ".password", PASSWORD));
+            }
+        }
+    }
+    
+    public static synchronized void closeConnection() {
+        if (pool != null && !pool.isShutdown()) {
+            pool.shutdown();
+            LOG.info("Database connection pool closed successfully!");
+        }
+        for (Replica replica : replicas) {
+            replica.pool.shutdown();
+        }
+        replicas.clear();
+        // Configured replicas come back with the primary on next use
+        replicasConfigured = false;
+    }
+    
     public static void testConnection() {
-        try {
-            Connection conn = getConnection();
+        try (Connection conn = getConnection()) {
             if (conn != null) {
                 System.out.println("Database connection test successful!");
             }
@@ -0,0 +1,94 @@
+package com.helpdesk.db;
+
+/**
+ * Sizing and timing settings for a ConnectionPool
+ */
+public class PoolConfig {
+    private int minIdle = 2;
+    private int maxSize = 10;
+    private long borrowTimeoutMillis = 5000;
+    private long idleTimeoutMillis = 10 * 60 * 1000;
+    private int validationTimeoutSeconds = 2;
+    private long validationBypassMillis = 500;
+    private long leakDetectionThresholdMillis = 0; // 0 = disabled
+    private long housekeepingIntervalMillis = 30 * 1000;
+    
+    // Getters and Setters
+    public int getMinIdle() {
+        return minIdle;
+    }
+    
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+    
+    public long getBorrowTimeoutMillis() {
+        return borrowTimeoutMillis;
+    }
+    
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+    
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+    
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+    
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+    
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+    
+    /**
+     * Connections returned to the pool more recently than this are handed out without re-validation
+     */
+    public long getValidationBypassMillis() {
+        return validationBypassMillis;
+    }
+    
+    public void setValidationBypassMillis(long validationBypassMillis) {
+        this.validationBypassMillis = validationBypassMillis;
+    }
+    
+    public long getLeakDetectionThresholdMillis() {
+        return leakDetectionThresholdMillis;
+    }
+    
+    public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+    }
+    
+    public long getHousekeepingIntervalMillis() {
+        return housekeepingIntervalMillis;
+    }
+    
+    public void setHousekeepingIntervalMillis(long housekeepingIntervalMillis) {
+        this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+    }
+    
+    @Override
+    public String toString() {
+        return "PoolConfig{" +
+                "minIdle=" + minIdle +
+                ", maxSize=" + maxSize +
+                ", borrowTimeoutMillis=" + borrowTimeoutMillis +
+                ", idleTimeoutMillis=" + idleTimeoutMillis +
+                ", leakDetectionThresholdMillis=" + leakDetectionThresholdMillis +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.helpdesk.db;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline and cancellation scope for the statements run by one task on one thread.
+ *
+ * While a context is open, every statement created on a pooled connection by that thread
+ * gets a query timeout for the time left before the deadline, and connection borrows wait
+ * no longer than that. cancel() (from any thread) cancels the statements the task has
+ * created so far and makes further ones fail, so an abandoned request stops using the
+ * database instead of running to completion.
+ */
+public final class QueryContext {
+    private static final ThreadLocal<QueryContext> current = new ThreadLocal<>();
+    
+    private final long deadlineNanos;
+    private final List<Statement> statements = new ArrayList<>();
+    private boolean active = true;
+    private boolean cancelled = false;
+    
+    private QueryContext(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+    
+    /**
+     * Open a context on the calling thread; timeoutMillis of 0 or less means no deadline
+     */
+    public static QueryContext begin(long timeoutMillis) {
+        QueryContext context = new QueryContext(timeoutMillis > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+                : Long.MAX_VALUE);
+        current.set(context);
+        return context;
+    }
+    
+    /**
+     * The context open on the calling thread, or null
+     */
+    public static QueryContext current() {
+        return current.get();
+    }
+    
+    /**
+     * Close the context; later cancel() calls have no effect
+     */
+    public void end() {
+        synchronized (this) {
+            active = false;
+            statements.clear();
+        }
+        if (current.get() == this) {
+            current.remove();
+        }
+    }
+    
+    /**
+     * Cancel the statements created so far and fail any new ones
+     */
+    public void cancel() {
+        List<Statement> running;
+        synchronized (this) {
+            if (!active || cancelled) {
+                return;
+            }
+            cancelled = true;
+            running = new ArrayList<>(statements);
+        }
+        for (Statement statement : running) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // Already finished or closed
+            }
+        }
+    }
+    
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Milliseconds left before the deadline, capped at limitMillis
+     */
+    public long remainingMillis(long limitMillis) {
+        if (deadlineNanos == Long.MAX_VALUE) {
+            return limitMillis;
+        }
+        return Math.min(limitMillis, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+    
+    /**
+     * Apply the remaining time as the statement's query timeout and track it for cancel()
+     */
+    void register(Statement statement) throws SQLException {
+        synchronized (this) {
+            if (cancelled) {
+                throw new SQLTimeoutException("Request was cancelled");
+            }
+            statements.add(statement);
+        }
+        if (deadlineNanos != Long.MAX_VALUE) {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new SQLTimeoutException("Request deadline passed before the statement was run");
+            }
+            // Whole seconds, rounded up; 0 would mean no timeout
+            statement.setQueryTimeout((int) Math.max(1, (remainingNanos + 999_999_999L) / 1_000_000_000L));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.helpdesk.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs a unit of work on one pooled connection inside a single transaction.
+ *
+ * The callback receives the connection and passes it to the DAO methods that accept one.
+ * The transaction is committed once when the callback returns and rolled back if it throws.
+ * Deadlocks and lock wait timeouts roll back and re-run the whole callback, so callbacks
+ * must not have side effects outside the database.
+ */
+public class TransactionTemplate {
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 50;
+    
+    // MySQL error codes that are safe to retry
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    
+    @FunctionalInterface
+    public interface TransactionCallback<T> {
+        T doInTransaction(Connection conn) throws SQLException;
+    }
+    
+    public TransactionTemplate() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_BACKOFF_MILLIS);
+    }
+    
+    public TransactionTemplate(int maxAttempts, long retryBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+    
+    /**
+     * Execute the callback in a transaction and return its result
+     */
+    public <T> T execute(TransactionCallback<T> callback) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    T result = callback.doInTransaction(conn);
+                    conn.commit();
+                    return result;
+                } catch (SQLException e) {
+                    rollbackQuietly(conn, e);
+                    if (attempt >= maxAttempts || !isRetryable(e)) {
+                        throw e;
+                    }
+                } catch (RuntimeException e) {
+                    rollbackQuietly(conn, e);
+                    throw e;
+                }
+            }
+            backOff(attempt);
+        }
+    }
+    
+    /**
+     * Check whether an exception (or anything in its cause chain) is a deadlock or lock wait timeout
+     */
+    public static boolean isRetryable(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                SQLException sqlException = (SQLException) t;
+                int code = sqlException.getErrorCode();
+                if (code == ER_LOCK_DEADLOCK || code == ER_LOCK_WAIT_TIMEOUT || "40001".equals(sqlException.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private void rollbackQuietly(Connection conn, Exception original) {
+        try {
+            conn.rollback();
+        } catch (SQLException rollbackFailure) {
+            original.addSuppressed(rollbackFailure);
+        }
+    }
+    
+    private void backOff(int attempt) throws SQLException {
+        try {
+            Thread.sleep(retryBackoffMillis * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying transaction", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.helpdesk.metrics;
+
+/**
+ * Receives JDBC timings from the instrumented connection pool.
+ *
+ * Operation names are "DaoClass.method" strings naming the public DAO method that ran the
+ * statement. They are resolved from the call stack when a statement is prepared (or, for plain
+ * Statements, when it executes), not cached by SQL text, and can be used as map keys directly.
+ * Every method is called on the query path and must be cheap, thread-safe and not throw.
+ */
+public interface MetricsRegistry {
+    
+    /**
+     * Registry that records nothing; statements are not wrapped while it is installed
+     */
+    MetricsRegistry NOOP = new MetricsRegistry() {
+        @Override
+        public void recordStatement(String operation, long elapsedNanos, boolean failed) {
+        }
+        
+        @Override
+        public void recordRows(String operation, long rows) {
+        }
+        
+        @Override
+        public void recordConnectionWait(String poolName, long waitNanos, boolean timedOut) {
+        }
+    };
+    
+    /**
+     * One execute/executeQuery/executeUpdate/executeBatch call
+     */
+    void recordStatement(String operation, long elapsedNanos, boolean failed);
+    
+    /**
+     * Rows read from a query's result set, or rows changed by an update or batch
+     */
+    void recordRows(String operation, long rows);
+    
+    /**
+     * Time a caller waited to borrow a connection from the named pool
+     */
+    void recordConnectionWait(String poolName, long waitNanos, boolean timedOut);
+}
\ No newline at end of file
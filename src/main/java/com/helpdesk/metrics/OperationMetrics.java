@@ -0,0 +1,46 @@
+package com.helpdesk.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for one operation (or one pool's connection waits)
+ */
+public class OperationMetrics {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+    
+    public void record(long elapsedNanos, boolean failed) {
+        latency.record(elapsedNanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+    
+    public void addRows(long count) {
+        rows.add(count);
+    }
+    
+    public OperationStats snapshot() {
+        return new OperationStats(name, latency.getCount(), errors.sum(), rows.sum(),
+                micros((long) latency.getMean()), micros(latency.getPercentile(50)),
+                micros(latency.getPercentile(95)), micros(latency.getPercentile(99)),
+                micros(latency.getPercentile(99.9)), micros(latency.getMax()));
+    }
+    
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        rows.reset();
+    }
+    
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.helpdesk.metrics;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Names the logical operation that runs a statement, e.g. "TicketDAO.getTicketById".
+ *
+ * The name is the outermost frame of the DAO call that prepared or executed the statement,
+ * i.e. the public entry point rather than a private helper it shares with other methods.
+ * A DAO method that runs its work through TransactionTemplate is still named after itself,
+ * not after the lambda it passed in. The name is resolved from the call stack each time,
+ * never cached by SQL text, because one statement can be run from several entry points.
+ * The stack is walked once per statement object: when a PreparedStatement is prepared, or
+ * when a plain Statement runs SQL. The resulting names are cached per DAO method, so the walk
+ * itself is the only cost.
+ */
+final class OperationNames {
+    private static final String DAO_PACKAGE = "com.helpdesk.dao.";
+    private static final String TRANSACTION_TEMPLATE = "com.helpdesk.db.TransactionTemplate";
+    private static final String LAMBDA_PREFIX = "lambda$";
+    
+    private static final StackWalker walker = StackWalker.getInstance();
+    // Class name -> method name -> operation name
+    private static final Map<String, Map<String, String>> names = new ConcurrentHashMap<>();
+    
+    private OperationNames() {
+    }
+    
+    /**
+     * Name of the DAO entry point on the calling thread's stack, or of the first caller outside
+     * the JDBC plumbing if no DAO is involved
+     */
+    static String ofCaller() {
+        // The walk stops at the first frame after the DAO call, so it is only as deep as the JDBC plumbing;
+        // a DAO method's own transaction and the lambda it runs are part of the same call
+        Optional<StackWalker.StackFrame> daoFrame = walker.walk(frames -> frames
+                .dropWhile(frame -> !isDao(frame.getClassName()))
+                .takeWhile(frame -> isDao(frame.getClassName()) || isTransactionTemplate(frame.getClassName()))
+                .filter(frame -> isDao(frame.getClassName()) && !frame.getMethodName().startsWith(LAMBDA_PREFIX))
+                .reduce((inner, outer) -> outer));
+        if (daoFrame.isPresent()) {
+            return nameOf(daoFrame.get());
+        }
+        return walker.walk(frames -> frames
+                .filter(frame -> !isPlumbing(frame.getClassName()))
+                .findFirst())
+                .map(OperationNames::nameOf)
+                .orElse("unknown");
+    }
+    
+    private static boolean isDao(String className) {
+        return className.startsWith(DAO_PACKAGE);
+    }
+    
+    private static boolean isTransactionTemplate(String className) {
+        return className.equals(TRANSACTION_TEMPLATE) || className.startsWith(TRANSACTION_TEMPLATE + "$");
+    }
+    
+    static boolean isPlumbing(String className) {
+        return className.startsWith("com.helpdesk.metrics.") ||
+                className.equals("com.helpdesk.db.ConnectionPool") || className.startsWith("com.helpdesk.db.ConnectionPool$") ||
+                className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.") ||
+                className.startsWith("com.sun.proxy.") || className.startsWith("com.mysql.");
+    }
+    
+    /**
+     * "SimpleClassName.method" for a frame; a lambda body is named after the method that declares it
+     */
+    static String nameOf(StackWalker.StackFrame frame) {
+        return names.computeIfAbsent(frame.getClassName(), className -> new ConcurrentHashMap<>())
+                .computeIfAbsent(frame.getMethodName(), methodName -> format(frame.getClassName(), methodName));
+    }
+    
+    private static String format(String className, String methodName) {
+        // javac names a lambda body lambda$<enclosing method>$<index>
+        if (methodName.startsWith(LAMBDA_PREFIX)) {
+            int end = methodName.indexOf('$', LAMBDA_PREFIX.length());
+            if (end > LAMBDA_PREFIX.length()) {
+                methodName = methodName.substring(LAMBDA_PREFIX.length(), end);
+            }
+        }
+        return className.substring(className.lastIndexOf('.') + 1) + "." + methodName;
+    }
+}
@@ -0,0 +1,86 @@
+package com.helpdesk.metrics;
+
+/**
+ * Point-in-time view of an OperationMetrics; latencies are in microseconds
+ */
+public class OperationStats {
+    private final String operation;
+    private final long executions;
+    private final long errors;
+    private final long rows;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p95Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+    
+    public OperationStats(String operation, long executions, long errors, long rows, long meanMicros,
+                          long p50Micros, long p95Micros, long p99Micros, long p999Micros, long maxMicros) {
+        this.operation = operation;
+        this.executions = executions;
+        this.errors = errors;
+        this.rows = rows;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p95Micros = p95Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+    
+    // Getters
+    public String getOperation() {
+        return operation;
+    }
+    
+    public long getExecutions() {
+        return executions;
+    }
+    
+    public long getErrors() {
+        return errors;
+    }
+    
+    public long getRows() {
+        return rows;
+    }
+    
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+    
+    public long getP50Micros() {
+        return p50Micros;
+    }
+    
+    public long getP95Micros() {
+        return p95Micros;
+    }
+    
+    public long getP99Micros() {
+        return p99Micros;
+    }
+    
+    public long getP999Micros() {
+        return p999Micros;
+    }
+    
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+    
+    @Override
+    public String toString() {
+        return "OperationStats{" +
+                "operation='" + operation + '\'' +
+                ", executions=" + executions +
+                ", errors=" + errors +
+                ", rows=" + rows +
+                ", meanMicros=" + meanMicros +
+                ", p50Micros=" + p50Micros +
+                ", p99Micros=" + p99Micros +
+                ", maxMicros=" + maxMicros +
+                '}';
+    }
+}
\ No newline at end of file
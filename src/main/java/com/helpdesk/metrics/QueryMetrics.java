@@ -0,0 +1,50 @@
+package com.helpdesk.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+
+/**
+ * Holds the MetricsRegistry the connection pools report to.
+ *
+ * The built-in QueryMetricsRegistry is installed by default and registered with the platform
+ * MBean server as com.helpdesk:type=QueryMetrics. Install another registry to forward the
+ * timings elsewhere, or MetricsRegistry.NOOP to turn instrumentation off.
+ */
+public final class QueryMetrics {
+    public static final String MBEAN_NAME = "com.helpdesk:type=QueryMetrics";
+    
+    private static final Logger LOG = Logger.getLogger(QueryMetrics.class.getName());
+    private static final QueryMetricsRegistry DEFAULT_REGISTRY = new QueryMetricsRegistry();
+    private static volatile MetricsRegistry registry = DEFAULT_REGISTRY;
+    
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(DEFAULT_REGISTRY, new ObjectName(MBEAN_NAME));
+        } catch (JMException e) {
+            LOG.warning("Could not register " + MBEAN_NAME + ": " + e.getMessage());
+        }
+    }
+    
+    private QueryMetrics() {
+    }
+    
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+    
+    /**
+     * Replace the registry; statements already prepared keep reporting to the old one
+     */
+    public static void setRegistry(MetricsRegistry newRegistry) {
+        registry = newRegistry == null ? MetricsRegistry.NOOP : newRegistry;
+    }
+    
+    /**
+     * The built-in registry behind the MBean, whether or not it is currently installed
+     */
+    public static QueryMetricsRegistry getDefaultRegistry() {
+        return DEFAULT_REGISTRY;
+    }
+}
\ No newline at end of file
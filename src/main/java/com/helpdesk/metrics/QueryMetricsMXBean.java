@@ -0,0 +1,21 @@
+package com.helpdesk.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of the query metrics, registered as com.helpdesk:type=QueryMetrics
+ */
+public interface QueryMetricsMXBean {
+    
+    /**
+     * One entry per DAO operation, slowest p99 first
+     */
+    List<OperationStats> getOperations();
+    
+    /**
+     * One entry per connection pool; errors is the number of borrow timeouts
+     */
+    List<OperationStats> getConnectionWaits();
+    
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.helpdesk.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Default in-memory MetricsRegistry: a histogram and counters per operation and per pool
+ */
+public class QueryMetricsRegistry implements MetricsRegistry, QueryMetricsMXBean {
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, OperationMetrics> connectionWaits = new ConcurrentHashMap<>();
+    
+    @Override
+    public void recordStatement(String operation, long elapsedNanos, boolean failed) {
+        metricsFor(operations, operation).record(elapsedNanos, failed);
+    }
+    
+    @Override
+    public void recordRows(String operation, long rows) {
+        metricsFor(operations, operation).addRows(rows);
+    }
+    
+    @Override
+    public void recordConnectionWait(String poolName, long waitNanos, boolean timedOut) {
+        metricsFor(connectionWaits, poolName).record(waitNanos, timedOut);
+    }
+    
+    // get() first so the common case does not allocate the computeIfAbsent lambda
+    private static OperationMetrics metricsFor(ConcurrentMap<String, OperationMetrics> map, String name) {
+        OperationMetrics metrics = map.get(name);
+        return metrics != null ? metrics : map.computeIfAbsent(name, OperationMetrics::new);
+    }
+    
+    /**
+     * Stats for one operation, or null if it has not run
+     */
+    public OperationStats getOperation(String operation) {
+        OperationMetrics metrics = operations.get(operation);
+        return metrics == null ? null : metrics.snapshot();
+    }
+    
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> stats = snapshot(operations);
+        stats.sort(Comparator.comparingLong(OperationStats::getP99Micros).reversed());
+        return stats;
+    }
+    
+    @Override
+    public List<OperationStats> getConnectionWaits() {
+        return snapshot(connectionWaits);
+    }
+    
+    @Override
+    public void reset() {
+        operations.values().forEach(OperationMetrics::reset);
+        connectionWaits.values().forEach(OperationMetrics::reset);
+    }
+    
+    private static List<OperationStats> snapshot(ConcurrentMap<String, OperationMetrics> map) {
+        List<OperationStats> stats = new ArrayList<>();
+        for (OperationMetrics metrics : map.values()) {
+            stats.add(metrics.snapshot());
+        }
+        return stats;
+    }
+}
\ No newline at end of file
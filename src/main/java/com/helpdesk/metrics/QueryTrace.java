@@ -0,0 +1,88 @@
+package com.helpdesk.metrics;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * One traced statement execution
+ */
+public class QueryTrace {
+    private final long timestampMillis;
+    private final String operation;
+    private final String caller;
+    private final String sql;
+    private final Object[] parameters;
+    private final long elapsedNanos;
+    private final boolean failed;
+    private final boolean slow;
+    
+    public QueryTrace(long timestampMillis, String operation, String caller, String sql, Object[] parameters,
+                      long elapsedNanos, boolean failed, boolean slow) {
+        this.timestampMillis = timestampMillis;
+        this.operation = operation;
+        this.caller = caller;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.elapsedNanos = elapsedNanos;
+        this.failed = failed;
+        this.slow = slow;
+    }
+    
+    // Getters
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+    
+    public String getOperation() {
+        return operation;
+    }
+    
+    /**
+     * Service method that issued the statement, or the first application frame if none
+     */
+    public String getCaller() {
+        return caller;
+    }
+    
+    public String getSql() {
+        return sql;
+    }
+    
+    /**
+     * Bound parameters by position (index 0 is parameter 1); for batches, the last row bound
+     */
+    public Object[] getParameters() {
+        return parameters;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    public boolean isFailed() {
+        return failed;
+    }
+    
+    public boolean isSlow() {
+        return slow;
+    }
+    
+    /**
+     * Single-line form used by the slow-query log and the trace file
+     */
+    public String format() {
+        return Instant.ofEpochMilli(timestampMillis) +
+                (slow ? " SLOW " : " TRACE ") +
+                String.format("%.3fms", elapsedNanos / 1_000_000.0) +
+                (failed ? " FAILED" : "") +
+                " op=" + operation +
+                " caller=" + caller +
+                " sql=[" + sql.replaceAll("\\s+", " ") + "]" +
+                " params=" + Arrays.toString(parameters);
+    }
+    
+    @Override
+    public String toString() {
+        return "QueryTrace{" + format() + '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.helpdesk.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Slow-query log and sampled statement tracer.
+ *
+ * Statements slower than the configured threshold are logged with their SQL, elapsed time and
+ * calling service method, and the most recent ones are kept for inspection. With a sample rate
+ * above zero a random fraction of all statements (plus every slow one) is also written to a
+ * rotating trace file by a TraceFileWriter.
+ *
+ * Bound parameters are captured lazily: a statement remembers them only if it was chosen for
+ * sampling when prepared, or if its operation has already run slow. The first slow execution
+ * of an operation is therefore logged without parameters, later ones with them, and statements
+ * of operations that have never been slow capture nothing.
+ */
+public final class QueryTracer {
+    private static final Logger LOG = Logger.getLogger(QueryTracer.class.getName());
+    private static final int RECENT_SLOW_QUERIES = 100;
+    private static final Object[] NO_PARAMETERS = new Object[0];
+    
+    private static final StackWalker walker = StackWalker.getInstance();
+    private static final Deque<QueryTrace> recentSlowQueries = new ArrayDeque<>();
+    private static final LongAdder slowQueryCount = new LongAdder();
+    // Bounded by the number of call sites, since operations are named after DAO methods
+    private static final Set<String> slowOperations = ConcurrentHashMap.newKeySet();
+    
+    private static volatile TracerConfig config;
+    private static volatile long thresholdNanos;
+    private static volatile double sampleRate;
+    private static volatile TraceFileWriter traceWriter;
+    
+    static {
+        configure(TracerConfig.fromSystemProperties());
+    }
+    
+    private QueryTracer() {
+    }
+    
+    /**
+     * Apply new settings; the previous trace file writer (if any) is flushed and closed
+     */
+    public static synchronized void configure(TracerConfig newConfig) {
+        TraceFileWriter previous = traceWriter;
+        traceWriter = newConfig.getSampleRate() > 0 ? new TraceFileWriter(newConfig) : null;
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(newConfig.getSlowQueryThresholdMillis());
+        sampleRate = newConfig.getSampleRate();
+        config = newConfig;
+        slowOperations.clear();
+        if (previous != null) {
+            previous.close();
+        }
+    }
+    
+    public static TracerConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Whether a statement being prepared should be written to the trace file on every execution
+     */
+    static boolean sampleStatement() {
+        return traceWriter != null && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+    
+    /**
+     * Whether a statement being prepared for the operation should capture its bound parameters
+     */
+    static boolean captureParameters(String operation, boolean sampled) {
+        return sampled || (operation != null && slowOperations.contains(operation));
+    }
+    
+    /**
+     * Called by the statement instrumentation after every execution
+     */
+    static void onExecute(String operation, String sql, Object[] parameters, int parameterCount,
+                          long elapsedNanos, boolean failed, boolean sampled) {
+        long threshold = thresholdNanos;
+        boolean slow = threshold > 0 && elapsedNanos >= threshold;
+        TraceFileWriter writer = traceWriter;
+        boolean written = writer != null && (slow || sampled);
+        if (!slow && !written) {
+            return;
+        }
+        
+        QueryTrace trace = new QueryTrace(System.currentTimeMillis(), operation, findCaller(), sql == null ? "" : sql,
+                parameters == null ? NO_PARAMETERS : Arrays.copyOf(parameters, parameterCount), elapsedNanos, failed, slow);
+        if (slow) {
+            slowQueryCount.increment();
+            slowOperations.add(operation);
+            synchronized (recentSlowQueries) {
+                if (recentSlowQueries.size() == RECENT_SLOW_QUERIES) {
+                    recentSlowQueries.removeFirst();
+                }
+                recentSlowQueries.addLast(trace);
+            }
+            LOG.warning(trace.format());
+        }
+        if (written) {
+            writer.offer(trace);
+        }
+    }
+    
+    /**
+     * The most recent slow queries, oldest first
+     */
+    public static List<QueryTrace> getRecentSlowQueries() {
+        synchronized (recentSlowQueries) {
+            return new ArrayList<>(recentSlowQueries);
+        }
+    }
+    
+    public static long getSlowQueryCount() {
+        return slowQueryCount.sum();
+    }
+    
+    /**
+     * Traces dropped because the trace file writer could not keep up
+     */
+    public static long getDroppedTraceCount() {
+        TraceFileWriter writer = traceWriter;
+        return writer == null ? 0 : writer.getDroppedCount();
+    }
+    
+    // First service frame; otherwise the first frame outside the JDBC plumbing and the DAOs
+    private static String findCaller() {
+        Optional<StackWalker.StackFrame> serviceFrame = walker.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("com.helpdesk.service."))
+                .findFirst());
+        if (serviceFrame.isPresent()) {
+            return OperationNames.nameOf(serviceFrame.get());
+        }
+        return walker.walk(frames -> frames
+                .filter(frame -> !OperationNames.isPlumbing(frame.getClassName()) &&
+                        !frame.getClassName().startsWith("com.helpdesk.dao."))
+                .findFirst())
+                .map(OperationNames::nameOf)
+                .orElse("unknown");
+    }
+}
\ No newline at end of file
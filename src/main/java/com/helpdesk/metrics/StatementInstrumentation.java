@@ -0,0 +1,255 @@
+package com.helpdesk.metrics;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Wraps JDBC statements so every execute call reports its latency, outcome and row count.
+ *
+ * Prepared statements resolve their operation name once when prepared; plain statements
+ * resolve it from the SQL passed to execute. Rows read through executeQuery/getResultSet
+ * are counted as the caller iterates and reported when the result set is exhausted or closed.
+ * Values passed to the set* methods are remembered only when the QueryTracer asks for them
+ * at prepare time, so a slow or sampled execution can be traced with its bound parameters.
+ */
+public final class StatementInstrumentation {
+    
+    private StatementInstrumentation() {
+    }
+    
+    /**
+     * Wrap a statement created by owner; sql is null for Connection.createStatement()
+     */
+    public static Statement wrap(Statement statement, Connection owner, String sql, MetricsRegistry registry) {
+        if (statement == null) {
+            return null;
+        }
+        Class<?> iface = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        String operation = sql == null ? null : OperationNames.ofCaller();
+        boolean sampled = QueryTracer.sampleStatement();
+        return (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[] { iface },
+                new StatementHandler(statement, owner, sql, operation, registry, sampled,
+                        QueryTracer.captureParameters(operation, sampled)));
+    }
+    
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection owner;
+        private final String sql;
+        private final String operation;
+        private final MetricsRegistry registry;
+        private final boolean sampled;
+        private final boolean captureParameters;
+        private Object[] parameters;
+        private int parameterCount = 0;
+        
+        StatementHandler(Statement target, Connection owner, String sql, String operation, MetricsRegistry registry,
+                         boolean sampled, boolean captureParameters) {
+            this.target = target;
+            this.owner = owner;
+            this.sql = sql;
+            this.operation = operation;
+            this.registry = registry;
+            this.sampled = sampled;
+            this.captureParameters = captureParameters;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "getConnection":
+                    // Never hand out the physical connection behind the pool's proxy
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "InstrumentedStatement[" + operation + "]";
+                case "getResultSet":
+                    return countRows((ResultSet) invokeTarget(method, args), proxy, operationFor(args));
+                case "clearParameters":
+                    parameters = null;
+                    parameterCount = 0;
+                    break;
+                default:
+                    break;
+            }
+            if (captureParameters && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name, args[1]);
+            }
+            if (!name.startsWith("execute")) {
+                return invokeTarget(method, args);
+            }
+            
+            String op = operationFor(args);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(method, args);
+            } catch (Throwable t) {
+                long elapsed = System.nanoTime() - start;
+                registry.recordStatement(op, elapsed, true);
+                trace(op, args, elapsed, true);
+                throw t;
+            }
+            long elapsed = System.nanoTime() - start;
+            registry.recordStatement(op, elapsed, false);
+            trace(op, args, elapsed, false);
+            
+            if (result instanceof ResultSet) {
+                return countRows((ResultSet) result, proxy, op);
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                registry.recordRows(op, ((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                registry.recordRows(op, sum((int[]) result));
+            } else if (result instanceof long[]) {
+                registry.recordRows(op, sum((long[]) result));
+            }
+            return result;
+        }
+        
+        private String operationFor(Object[] args) {
+            if (operation != null) {
+                return operation;
+            }
+            return args != null && args.length > 0 && args[0] instanceof String
+                    ? OperationNames.ofCaller()
+                    : "unknown";
+        }
+        
+        // Parameter indexes are 1-based; streams and LOBs are recorded by type only
+        private void bind(int index, String setter, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (parameters == null || parameters.length < index) {
+                Object[] grown = new Object[Math.max(index, parameters == null ? 8 : parameters.length * 2)];
+                if (parameters != null) {
+                    System.arraycopy(parameters, 0, grown, 0, parameters.length);
+                }
+                parameters = grown;
+            }
+            if (setter.equals("setNull")) {
+                value = null;
+            } else if (value instanceof InputStream || value instanceof Reader ||
+                    value instanceof Blob || value instanceof Clob || value instanceof byte[]) {
+                value = "<" + value.getClass().getSimpleName() + ">";
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+        
+        private void trace(String op, Object[] args, long elapsed, boolean failed) {
+            String text = sql != null ? sql
+                    : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            QueryTracer.onExecute(op, text, parameters, parameterCount, elapsed, failed, sampled);
+        }
+        
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        
+        private ResultSet countRows(ResultSet resultSet, Object statementProxy, String op) {
+            if (resultSet == null) {
+                return null;
+            }
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class },
+                    new ResultSetHandler(resultSet, (Statement) statementProxy, op, registry));
+        }
+        
+        // Batch update counts; negative entries are SUCCESS_NO_INFO / EXECUTE_FAILED
+        private static long sum(int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(0, count);
+            }
+            return total;
+        }
+        
+        private static long sum(long[] counts) {
+            long total = 0;
+            for (long count : counts) {
+                total += Math.max(0, count);
+            }
+            return total;
+        }
+    }
+    
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Statement statement;
+        private final String operation;
+        private final MetricsRegistry registry;
+        private long rows = 0;
+        private boolean reported = false;
+        
+        ResultSetHandler(ResultSet target, Statement statement, String operation, MetricsRegistry registry) {
+            this.target = target;
+            this.statement = statement;
+            this.operation = operation;
+            this.registry = registry;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    boolean hasRow = target.next();
+                    if (hasRow) {
+                        rows++;
+                    } else {
+                        report();
+                    }
+                    return hasRow;
+                case "close":
+                    report();
+                    target.close();
+                    return null;
+                case "getStatement":
+                    return statement;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        
+        private void report() {
+            if (!reported) {
+                reported = true;
+                registry.recordRows(operation, rows);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.helpdesk.metrics;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appends query traces to a size-rotated file from a background thread.
+ *
+ * offer() only puts the trace on a bounded queue and never waits; when the writer falls
+ * behind, new traces are dropped and counted rather than slowing down the caller.
+ * When the file passes maxFileBytes it is renamed to file.1 (file.1 to file.2 and so on,
+ * keeping maxFiles old files) and a new file is started.
+ */
+public class TraceFileWriter implements Closeable {
+    private static final Logger LOG = Logger.getLogger(TraceFileWriter.class.getName());
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final BlockingQueue<QueryTrace> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread thread;
+    
+    private volatile boolean closed = false;
+    private Writer writer;
+    private long fileBytes;
+    
+    public TraceFileWriter(TracerConfig config) {
+        this.file = Paths.get(config.getTraceFile());
+        this.maxFileBytes = config.getMaxFileBytes();
+        this.maxFiles = config.getMaxFiles();
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        
+        this.thread = new Thread(this::drain, "query-trace-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Queue a trace for writing; returns false (and counts a drop) if the queue is full
+     */
+    public boolean offer(QueryTrace trace) {
+        if (closed || !queue.offer(trace)) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+    
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+    
+    /**
+     * Write out what is queued and stop the writer thread
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void drain() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                QueryTrace trace = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (trace != null) {
+                    write(trace.format());
+                }
+                if (queue.isEmpty()) {
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Query trace writer failed on " + file, e);
+                closeQuietly();
+            }
+        }
+        closeQuietly();
+    }
+    
+    private void write(String line) throws IOException {
+        if (writer == null) {
+            open();
+        } else if (fileBytes >= maxFileBytes) {
+            rotate();
+        }
+        writer.write(line);
+        writer.write(System.lineSeparator());
+        fileBytes += utf8Length(line) + System.lineSeparator().length();
+    }
+    
+    // Encoded size of the line, counted without encoding it a second time
+    static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+    
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        fileBytes = Files.exists(file) ? Files.size(file) : 0;
+        writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+    
+    private void rotate() throws IOException {
+        writer.close();
+        writer = null;
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = rotated(i);
+            if (Files.exists(older)) {
+                Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        open();
+    }
+    
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+    
+    private void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+    
+    private void closeQuietly() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Nothing more can be written anyway
+            }
+            writer = null;
+        }
+    }
+}
\ No newline at end of file
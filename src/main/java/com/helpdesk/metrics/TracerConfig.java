@@ -0,0 +1,86 @@
+package com.helpdesk.metrics;
+
+/**
+ * Settings for QueryTracer: the slow-query threshold and the sampled trace file
+ */
+public class TracerConfig {
+    private long slowQueryThresholdMillis = 1000; // 0 = disabled
+    private double sampleRate = 0.0; // fraction of all statements written to the trace file
+    private String traceFile = "logs/helpdesk-trace.log";
+    private long maxFileBytes = 10 * 1024 * 1024;
+    private int maxFiles = 5;
+    private int queueCapacity = 10_000;
+    
+    /**
+     * Defaults overridden by -Dhelpdesk.trace.* system properties
+     */
+    public static TracerConfig fromSystemProperties() {
+        TracerConfig config = new TracerConfig();
+        config.setSlowQueryThresholdMillis(Long.getLong("helpdesk.trace.slowQueryMillis", config.slowQueryThresholdMillis));
+        config.setSampleRate(Double.parseDouble(System.getProperty("helpdesk.trace.sampleRate", String.valueOf(config.sampleRate))));
+        config.setTraceFile(System.getProperty("helpdesk.trace.file", config.traceFile));
+        config.setMaxFileBytes(Long.getLong("helpdesk.trace.maxFileBytes", config.maxFileBytes));
+        config.setMaxFiles(Integer.getInteger("helpdesk.trace.maxFiles", config.maxFiles));
+        return config;
+    }
+    
+    // Getters and Setters
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+    
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+    
+    public double getSampleRate() {
+        return sampleRate;
+    }
+    
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+    
+    public String getTraceFile() {
+        return traceFile;
+    }
+    
+    public void setTraceFile(String traceFile) {
+        this.traceFile = traceFile;
+    }
+    
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+    
+    public void setMaxFileBytes(long maxFileBytes) {
+        this.maxFileBytes = maxFileBytes;
+    }
+    
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+    
+    public void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+    
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+    
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+    
+    @Override
+    public String toString() {
+        return "TracerConfig{" +
+                "slowQueryThresholdMillis=" + slowQueryThresholdMillis +
+                ", sampleRate=" + sampleRate +
+                ", traceFile='" + traceFile + '\'' +
+                ", maxFileBytes=" + maxFileBytes +
+                ", maxFiles=" + maxFiles +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.helpdesk.model;
+
+/**
+ * Amounts to add to one agent's AgentMetrics row (used for write-behind metric updates)
+ */
+public class AgentMetricsDelta {
+    private int agentId;
+    private long ticketsAssigned;
+    private long resolutions;
+    private long handleTimeMinutes;
+    
+    // Default constructor
+    public AgentMetricsDelta() {}
+    
+    // Constructor with parameters
+    public AgentMetricsDelta(int agentId, long ticketsAssigned, long resolutions, long handleTimeMinutes) {
+        this.agentId = agentId;
+        this.ticketsAssigned = ticketsAssigned;
+        this.resolutions = resolutions;
+        this.handleTimeMinutes = handleTimeMinutes;
+    }
+    
+    // Getters and Setters
+    public int getAgentId() {
+        return agentId;
+    }
+    
+    public void setAgentId(int agentId) {
+        this.agentId = agentId;
+    }
+    
+    public long getTicketsAssigned() {
+        return ticketsAssigned;
+    }
+    
+    public void setTicketsAssigned(long ticketsAssigned) {
+        this.ticketsAssigned = ticketsAssigned;
+    }
+    
+    public long getResolutions() {
+        return resolutions;
+    }
+    
+    public void setResolutions(long resolutions) {
+        this.resolutions = resolutions;
+    }
+    
+    public long getHandleTimeMinutes() {
+        return handleTimeMinutes;
+    }
+    
+    public void setHandleTimeMinutes(long handleTimeMinutes) {
+        this.handleTimeMinutes = handleTimeMinutes;
+    }
+    
+    @Override
+    public String toString() {
+        return "AgentMetricsDelta{" +
+                "agentId=" + agentId +
+                ", ticketsAssigned=" + ticketsAssigned +
+                ", resolutions=" + resolutions +
+                ", handleTimeMinutes=" + handleTimeMinutes +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.helpdesk.model;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a bulk ticket creation. Positions match the input list:
+ * a created ticket has its new ID, a failed one has 0 and an entry in the failures map.
+ */
+public class BulkTicketResult {
+    private final int[] ticketIds;
+    private final Map<Integer, SQLException> failures = new TreeMap<>();
+    
+    public BulkTicketResult(int size) {
+        this.ticketIds = new int[size];
+    }
+    
+    public void setTicketId(int index, int ticketId) {
+        ticketIds[index] = ticketId;
+    }
+    
+    public void addFailure(int index, SQLException error) {
+        ticketIds[index] = 0;
+        failures.put(index, error);
+    }
+    
+    /**
+     * Copy the outcome of a chunk that started at the given offset of the full input
+     */
+    public void merge(int offset, BulkTicketResult chunk) {
+        System.arraycopy(chunk.ticketIds, 0, ticketIds, offset, chunk.ticketIds.length);
+        for (Map.Entry<Integer, SQLException> failure : chunk.failures.entrySet()) {
+            failures.put(offset + failure.getKey(), failure.getValue());
+        }
+    }
+    
+    // Getters
+    public int getTicketId(int index) {
+        return ticketIds[index];
+    }
+    
+    public int[] getTicketIds() {
+        return ticketIds.clone();
+    }
+    
+    public Map<Integer, SQLException> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+    
+    public int size() {
+        return ticketIds.length;
+    }
+    
+    public int getCreatedCount() {
+        return ticketIds.length - failures.size();
+    }
+    
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkTicketResult{" +
+                "created=" + getCreatedCount() +
+                ", failed=" + failures.size() +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.helpdesk.model;
+
+import java.sql.Timestamp;
+
+/**
+ * A conversation message matching a full-text search, with its ticket's category and status
+ */
+public class ConversationSearchHit {
+    private int messageId;
+    private int ticketId;
+    private String messageText;
+    private Timestamp sentAt;
+    private int categoryId;
+    private int statusId;
+    private double relevance;
+    
+    // Additional fields for display
+    private String categoryName;
+    private String statusName;
+    
+    // Default constructor
+    public ConversationSearchHit() {}
+    
+    // Getters and Setters
+    public int getMessageId() {
+        return messageId;
+    }
+    
+    public void setMessageId(int messageId) {
+        this.messageId = messageId;
+    }
+    
+    public int getTicketId() {
+        return ticketId;
+    }
+    
+    public void setTicketId(int ticketId) {
+        this.ticketId = ticketId;
+    }
+    
+    public String getMessageText() {
+        return messageText;
+    }
+    
+    public void setMessageText(String messageText) {
+        this.messageText = messageText;
+    }
+    
+    public Timestamp getSentAt() {
+        return sentAt;
+    }
+    
+    public void setSentAt(Timestamp sentAt) {
+        this.sentAt = sentAt;
+    }
+    
+    public int getCategoryId() {
+        return categoryId;
+    }
+    
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+    
+    public int getStatusId() {
+        return statusId;
+    }
+    
+    public void setStatusId(int statusId) {
+        this.statusId = statusId;
+    }
+    
+    /**
+     * MySQL full-text relevance; higher is a better match
+     */
+    public double getRelevance() {
+        return relevance;
+    }
+    
+    public void setRelevance(double relevance) {
+        this.relevance = relevance;
+    }
+    
+    public String getCategoryName() {
+        return categoryName;
+    }
+    
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+    
+    public String getStatusName() {
+        return statusName;
+    }
+    
+    public void setStatusName(String statusName) {
+        this.statusName = statusName;
+    }
+    
+    @Override
+    public String toString() {
+        return "ConversationSearchHit{" +
+                "messageId=" + messageId +
+                ", ticketId=" + ticketId +
+                ", categoryName='" + categoryName + '\'' +
+                ", statusName='" + statusName + '\'' +
+                ", relevance=" + relevance +
+                ", sentAt=" + sentAt +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.helpdesk.model;
+
+/**
+ * A ticket to be created together with its initial customer message (used for bulk ingestion)
+ */
+public class NewTicket {
+    private int customerId;
+    private int categoryId;
+    private int priorityId;
+    private String initialMessage;
+    
+    // Default constructor
+    public NewTicket() {}
+    
+    // Constructor with parameters
+    public NewTicket(int customerId, int categoryId, int priorityId, String initialMessage) {
+        this.customerId = customerId;
+        this.categoryId = categoryId;
+        this.priorityId = priorityId;
+        this.initialMessage = initialMessage;
+    }
+    
+    // Getters and Setters
+    public int getCustomerId() {
+        return customerId;
+    }
+    
+    public void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+    
+    public int getCategoryId() {
+        return categoryId;
+    }
+    
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+    
+    public int getPriorityId() {
+        return priorityId;
+    }
+    
+    public void setPriorityId(int priorityId) {
+        this.priorityId = priorityId;
+    }
+    
+    public String getInitialMessage() {
+        return initialMessage;
+    }
+    
+    public void setInitialMessage(String initialMessage) {
+        this.initialMessage = initialMessage;
+    }
+    
+    @Override
+    public String toString() {
+        return "NewTicket{" +
+                "customerId=" + customerId +
+                ", categoryId=" + categoryId +
+                ", priorityId=" + priorityId +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.helpdesk.model;
+
+import java.sql.Timestamp;
+
+/**
+ * A ticket lifecycle event waiting in (or read from) the OutboxEvents table.
+ * The payload is a JSON object describing the change.
+ */
+public class OutboxEvent {
+    public static final String TICKET_CREATED = "ticket.created";
+    public static final String TICKET_ASSIGNED = "ticket.assigned";
+    public static final String MESSAGE_ADDED = "ticket.message_added";
+    public static final String TICKET_RESOLVED = "ticket.resolved";
+    public static final String TICKET_CLOSED = "ticket.closed";
+    
+    private long eventId;
+    private int ticketId;
+    private String eventType;
+    private String payload;
+    private Timestamp createdAt;
+    
+    // Default constructor
+    public OutboxEvent() {}
+    
+    // Constructor with parameters
+    public OutboxEvent(int ticketId, String eventType, String payload) {
+        this.ticketId = ticketId;
+        this.eventType = eventType;
+        this.payload = payload;
+    }
+    
+    // Getters and Setters
+    public long getEventId() {
+        return eventId;
+    }
+    
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+    
+    public int getTicketId() {
+        return ticketId;
+    }
+    
+    public void setTicketId(int ticketId) {
+        this.ticketId = ticketId;
+    }
+    
+    public String getEventType() {
+        return eventType;
+    }
+    
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+    
+    public String getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+    
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "eventId=" + eventId +
+                ", ticketId=" + ticketId +
+                ", eventType='" + eventType + '\'' +
+                ", payload='" + payload + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+package com.helpdesk.model;
+
+import java.sql.Timestamp;
+
+/**
+ * One change to a ticket's status, agent, priority or escalation flag (TicketHistory row)
+ */
+public class TicketHistoryEntry {
+    public static final String STATUS = "status_id";
+    public static final String AGENT = "agent_id";
+    public static final String PRIORITY = "priority_id";
+    public static final String ESCALATED = "is_escalated";
+    
+    private int historyId;
+    private int ticketId;
+    private Integer changedBy; // agent who made the change; null for customers and the system
+    private String changedFieldName;
+    private Integer oldValueId;
+    private Integer newValueId;
+    private Timestamp changedAt;
+    
+    // Default constructor
+    public TicketHistoryEntry() {}
+    
+    // Constructor with parameters; the change is stamped with the current time
+    public TicketHistoryEntry(int ticketId, Integer changedBy, String changedFieldName, Integer oldValueId, Integer newValueId) {
+        this.ticketId = ticketId;
+        this.changedBy = changedBy;
+        this.changedFieldName = changedFieldName;
+        this.oldValueId = oldValueId;
+        this.newValueId = newValueId;
+        this.changedAt = new Timestamp(System.currentTimeMillis());
+    }
+    
+    // Getters and Setters
+    public int getHistoryId() {
+        return historyId;
+    }
+    
+    public void setHistoryId(int historyId) {
+        this.historyId = historyId;
+    }
+    
+    public int getTicketId() {
+        return ticketId;
+    }
+    
+    public void setTicketId(int ticketId) {
+        this.ticketId = ticketId;
+    }
+    
+    public Integer getChangedBy() {
+        return changedBy;
+    }
+    
+    public void setChangedBy(Integer changedBy) {
+        this.changedBy = changedBy;
+    }
+    
+    public String getChangedFieldName() {
+        return changedFieldName;
+    }
+    
+    public void setChangedFieldName(String changedFieldName) {
+        this.changedFieldName = changedFieldName;
+    }
+    
+    public Integer getOldValueId() {
+        return oldValueId;
+    }
+    
+    public void setOldValueId(Integer oldValueId) {
+        this.oldValueId = oldValueId;
+    }
+    
+    public Integer getNewValueId() {
+        return newValueId;
+    }
+    
+    public void setNewValueId(Integer newValueId) {
+        this.newValueId = newValueId;
+    }
+    
+    public Timestamp getChangedAt() {
+        return changedAt;
+    }
+    
+    public void setChangedAt(Timestamp changedAt) {
+        this.changedAt = changedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "TicketHistoryEntry{" +
+                "historyId=" + historyId +
+                ", ticketId=" + ticketId +
+                ", changedBy=" + changedBy +
+                ", changedFieldName='" + changedFieldName + '\'' +
+                ", oldValueId=" + oldValueId +
+                ", newValueId=" + newValueId +
+                ", changedAt=" + changedAt +
+                '}';
+    }
+}
\ No newline at end of file
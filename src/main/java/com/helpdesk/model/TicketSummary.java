@@ -0,0 +1,127 @@
+package com.helpdesk.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Lightweight ticket row for inbox and queue lists: only the Tickets columns, with no joins.
+ * Display names come from the reference data cache; customer and agent names are not loaded.
+ */
+public class TicketSummary {
+    private int ticketId;
+    private int customerId;
+    private Integer agentId; // Can be null
+    private int statusId;
+    private int categoryId;
+    private int priorityId;
+    private Timestamp createdAt;
+    private boolean escalated;
+    private String statusName;
+    private String categoryName;
+    private String priorityName;
+    
+    // Getters and Setters
+    public int getTicketId() {
+        return ticketId;
+    }
+    
+    public void setTicketId(int ticketId) {
+        this.ticketId = ticketId;
+    }
+    
+    public int getCustomerId() {
+        return customerId;
+    }
+    
+    public void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+    
+    public Integer getAgentId() {
+        return agentId;
+    }
+    
+    public void setAgentId(Integer agentId) {
+        this.agentId = agentId;
+    }
+    
+    public int getStatusId() {
+        return statusId;
+    }
+    
+    public void setStatusId(int statusId) {
+        this.statusId = statusId;
+    }
+    
+    public int getCategoryId() {
+        return categoryId;
+    }
+    
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+    
+    public int getPriorityId() {
+        return priorityId;
+    }
+    
+    public void setPriorityId(int priorityId) {
+        this.priorityId = priorityId;
+    }
+    
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public boolean isEscalated() {
+        return escalated;
+    }
+    
+    public void setEscalated(boolean escalated) {
+        this.escalated = escalated;
+    }
+    
+    public String getStatusName() {
+        return statusName;
+    }
+    
+    public void setStatusName(String statusName) {
+        this.statusName = statusName;
+    }
+    
+    public String getCategoryName() {
+        return categoryName;
+    }
+    
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+    
+    public String getPriorityName() {
+        return priorityName;
+    }
+    
+    public void setPriorityName(String priorityName) {
+        this.priorityName = priorityName;
+    }
+    
+    @Override
+    public String toString() {
+        return "TicketSummary{" +
+                "ticketId=" + ticketId +
+                ", customerId=" + customerId +
+                ", agentId=" + agentId +
+                ", statusId=" + statusId +
+                ", categoryId=" + categoryId +
+                ", priorityId=" + priorityId +
+                ", createdAt=" + createdAt +
+                ", escalated=" + escalated +
+                ", statusName='" + statusName + '\'' +
+                ", categoryName='" + categoryName + '\'' +
+                ", priorityName='" + priorityName + '\'' +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.helpdesk.outbox;
+
+import com.helpdesk.model.OutboxEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends events to a file as JSON lines, e.g.
+ * {"eventId":7,"ticketId":3,"type":"ticket.assigned","createdAt":"2024-01-05 10:00:00.0","data":{"agentId":2}}
+ *
+ * Each batch is forced to disk before deliver() returns, so the relay only moves its
+ * watermark past events that are durably in the file.
+ */
+public class FileOutboxSink implements OutboxSink, Closeable {
+    private final Path file;
+    private FileChannel channel;
+    
+    public FileOutboxSink(Path file) {
+        this.file = file;
+    }
+    
+    @Override
+    public synchronized void deliver(List<OutboxEvent> events) throws IOException {
+        if (channel == null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        StringBuilder lines = new StringBuilder();
+        for (OutboxEvent event : events) {
+            lines.append(format(event)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+    
+    static String format(OutboxEvent event) {
+        return "{\"eventId\":" + event.getEventId() +
+                ",\"ticketId\":" + event.getTicketId() +
+                ",\"type\":" + TicketEvents.quote(event.getEventType()) +
+                ",\"createdAt\":" + TicketEvents.quote(String.valueOf(event.getCreatedAt())) +
+                ",\"data\":" + event.getPayload() + "}";
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
\ No newline at end of file
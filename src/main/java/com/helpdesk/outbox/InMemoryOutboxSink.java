@@ -0,0 +1,42 @@
+package com.helpdesk.outbox;
+
+import com.helpdesk.model.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps delivered events in memory; for tests and in-process consumers
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+    private final List<OutboxEvent> events = new ArrayList<>();
+    
+    @Override
+    public synchronized void deliver(List<OutboxEvent> batch) {
+        events.addAll(batch);
+    }
+    
+    /**
+     * Everything delivered so far, in delivery order
+     */
+    public synchronized List<OutboxEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+    
+    /**
+     * The events delivered for one ticket, in delivery order
+     */
+    public synchronized List<OutboxEvent> getEvents(int ticketId) {
+        List<OutboxEvent> forTicket = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (event.getTicketId() == ticketId) {
+                forTicket.add(event);
+            }
+        }
+        return forTicket;
+    }
+    
+    public synchronized void clear() {
+        events.clear();
+    }
+}
\ No newline at end of file
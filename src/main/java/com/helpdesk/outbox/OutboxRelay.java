@@ -0,0 +1,204 @@
+package com.helpdesk.outbox;
+
+import com.helpdesk.dao.OutboxDAO;
+import com.helpdesk.model.OutboxEvent;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tails the OutboxEvents table and delivers events to one sink.
+ *
+ * The relay reads events past its watermark in event ID order, batchSize at a time, delivers
+ * them and only then moves the watermark (kept in OutboxWatermarks under the relay's name), so
+ * every event is delivered at least once and each ticket's events arrive in order. Give each
+ * sink its own relay name; run one relay per name.
+ *
+ * An event ID that is missing may belong to a transaction that has not committed yet, so the
+ * relay stops in front of a gap and notes which InnoDB transactions are open. Once all of them
+ * have ended, the missing event has either committed, and is read on the next pass, or was rolled
+ * back, and the gap is skipped. A gap can therefore wait as long as the longest transaction that
+ * was open when it appeared. Reading the open transactions needs the PROCESS privilege; without
+ * it the relay falls back to skipping a gap once it has stayed open for gapTimeoutMillis.
+ */
+public class OutboxRelay {
+    private static final Logger LOG = Logger.getLogger(OutboxRelay.class.getName());
+    
+    private final String name;
+    private final OutboxSink sink;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final OutboxDAO outboxDAO;
+    
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile ScheduledExecutorService executor;
+    
+    // Last delivered event ID; -1 until loaded from the watermark
+    private long position = -1;
+    // First missing event ID and when it was first seen missing
+    private long gapEventId = -1;
+    private long gapSeenAtMillis;
+    // Transactions open when the gap was first seen, or null if they could not be read
+    private Set<String> gapTransactions;
+    
+    public OutboxRelay(String name, OutboxSink sink, int batchSize, long gapTimeoutMillis) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.name = name;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.outboxDAO = new OutboxDAO();
+    }
+    
+    /**
+     * Relay in the background, draining everything available every intervalMillis
+     */
+    public synchronized void start(long intervalMillis) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-relay-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::relayQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+    
+    /**
+     * Deliver batches until the relay has caught up; returns the number of events delivered
+     */
+    public int relayAvailable() throws SQLException, IOException {
+        int delivered = 0;
+        int batch;
+        do {
+            batch = relayBatch();
+            delivered += batch;
+        } while (batch == batchSize);
+        return delivered;
+    }
+    
+    /**
+     * Deliver at most one batch; returns the number of events delivered
+     */
+    public synchronized int relayBatch() throws SQLException, IOException {
+        if (position < 0) {
+            position = outboxDAO.getWatermark(name);
+        }
+        long now = System.currentTimeMillis();
+        // Checked before the read, so a gap found settled also shows its event if it committed
+        boolean gapSettled = gapEventId > position && isGapSettled(now);
+        List<OutboxEvent> batch = outboxDAO.getEventsAfter(position, batchSize);
+        int ready = readyPrefix(batch, gapSettled, now);
+        if (ready == 0) {
+            return 0;
+        }
+        
+        List<OutboxEvent> deliverable = batch.subList(0, ready);
+        try {
+            sink.deliver(deliverable);
+        } catch (IOException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            throw e;
+        }
+        long last = deliverable.get(ready - 1).getEventId();
+        outboxDAO.advanceWatermark(name, last);
+        position = last;
+        deliveredCount.addAndGet(ready);
+        return ready;
+    }
+    
+    /**
+     * Delete events older than retentionSeconds that every relay has delivered, batchSize rows
+     * per statement; returns the number of events deleted
+     */
+    public int purgeDelivered(long retentionSeconds) throws SQLException {
+        int deleted = 0;
+        int batch;
+        do {
+            batch = outboxDAO.deleteDeliveredEvents(retentionSeconds, batchSize);
+            deleted += batch;
+        } while (batch == batchSize);
+        return deleted;
+    }
+    
+    public long getPosition() {
+        return position;
+    }
+    
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+    
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+    
+    // How many events from the start of the batch can go out without passing an unsettled gap
+    private int readyPrefix(List<OutboxEvent> batch, boolean gapSettled, long nowMillis) {
+        long expected = position + 1;
+        int ready = 0;
+        for (OutboxEvent event : batch) {
+            if (event.getEventId() != expected) {
+                if (gapEventId != expected) {
+                    gapEventId = expected;
+                    gapSeenAtMillis = nowMillis;
+                    gapTransactions = openTransactionsOrNull();
+                    break;
+                }
+                if (!gapSettled) {
+                    break;
+                }
+            }
+            expected = event.getEventId() + 1;
+            ready++;
+        }
+        return ready;
+    }
+    
+    // Whether the missing event at gapEventId has committed or rolled back by now
+    private boolean isGapSettled(long nowMillis) {
+        Set<String> open = gapTransactions != null ? openTransactionsOrNull() : null;
+        if (open == null) {
+            return nowMillis - gapSeenAtMillis >= gapTimeoutMillis;
+        }
+        return Collections.disjoint(gapTransactions, open);
+    }
+    
+    private Set<String> openTransactionsOrNull() {
+        try {
+            return outboxDAO.getOpenTransactionIds();
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Outbox relay " + name + " cannot list open transactions; " +
+                    "skipping gaps after " + gapTimeoutMillis + " ms", e);
+            return null;
+        }
+    }
+    
+    private void relayQuietly() {
+        try {
+            relayAvailable();
+        } catch (SQLException | IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Outbox relay " + name + " failed, will retry", e);
+        }
+    }
+}
\ No newline at end of file
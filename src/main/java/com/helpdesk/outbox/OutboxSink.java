@@ -0,0 +1,21 @@
+package com.helpdesk.outbox;
+
+import com.helpdesk.model.OutboxEvent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for ticket events relayed from the outbox.
+ *
+ * Batches arrive in event ID order. Delivery is at-least-once: a batch whose delivery failed,
+ * or whose watermark was not saved before a restart, is delivered again, so consumers should
+ * skip event IDs they have already seen.
+ */
+public interface OutboxSink {
+    
+    /**
+     * Deliver a batch; throwing leaves the relay's position unchanged so the batch is retried
+     */
+    void deliver(List<OutboxEvent> events) throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.helpdesk.outbox;
+
+import com.helpdesk.model.OutboxEvent;
+
+/**
+ * Builds the outbox events for ticket lifecycle changes, with their JSON payloads
+ */
+public final class TicketEvents {
+    
+    private TicketEvents() {
+    }
+    
+    public static OutboxEvent created(int ticketId, int customerId, int categoryId, int priorityId, String message) {
+        return new OutboxEvent(ticketId, OutboxEvent.TICKET_CREATED,
+                "{\"customerId\":" + customerId + ",\"categoryId\":" + categoryId +
+                ",\"priorityId\":" + priorityId + ",\"message\":" + quote(message) + "}");
+    }
+    
+    public static OutboxEvent assigned(int ticketId, int agentId) {
+        return new OutboxEvent(ticketId, OutboxEvent.TICKET_ASSIGNED, "{\"agentId\":" + agentId + "}");
+    }
+    
+    public static OutboxEvent messageAdded(int ticketId, int senderId, boolean fromAgent, String message) {
+        return new OutboxEvent(ticketId, OutboxEvent.MESSAGE_ADDED,
+                "{\"senderId\":" + senderId + ",\"fromAgent\":" + fromAgent + ",\"message\":" + quote(message) + "}");
+    }
+    
+    public static OutboxEvent resolved(int ticketId, int agentId, String message) {
+        return new OutboxEvent(ticketId, OutboxEvent.TICKET_RESOLVED,
+                "{\"agentId\":" + agentId + ",\"message\":" + quote(message) + "}");
+    }
+    
+    public static OutboxEvent closed(int ticketId) {
+        return new OutboxEvent(ticketId, OutboxEvent.TICKET_CLOSED, "{}");
+    }
+    
+    /**
+     * A JSON string literal, or null
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,319 @@
+package com.helpdesk.service;
+
+import com.helpdesk.dao.AgentDAO;
+import com.helpdesk.db.TransactionTemplate;
+import com.helpdesk.model.AgentMetricsDelta;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind buffer for AgentMetrics counters.
+ *
+ * Assignments and resolutions are added to per-agent LongAdders instead of updating the agent's
+ * AgentMetrics row inside every transaction, where a busy agent's row becomes a lock hotspot.
+ * A background thread writes the accumulated amounts for all agents in one batched upsert every
+ * flushIntervalMillis, or sooner once flushThreshold events are pending. Each flush subtracts
+ * exactly what it wrote, so increments that arrive during a flush wait for the next one. A failed
+ * flush puts its amounts back. When a row is rejected (e.g. its agent was deleted), the rows are
+ * written one at a time so the others still land; a row rejected by MAX_WRITE_ATTEMPTS consecutive
+ * flushes is dropped and counted. close() (also run from a JVM shutdown hook) writes what is left.
+ */
+public class AgentMetricsBuffer implements AgentMetricsBufferMXBean {
+    public static final String MBEAN_NAME = "com.helpdesk:type=AgentMetricsBuffer";
+    public static final int MAX_WRITE_ATTEMPTS = 3;
+    
+    private static final Logger LOG = Logger.getLogger(AgentMetricsBuffer.class.getName());
+    
+    private final AgentDAO agentDAO;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMillis;
+    private final long flushThreshold;
+    
+    // One entry per agent that ever had an event; entries are reused, not removed
+    private final Map<Integer, Counters> pending = new ConcurrentHashMap<>();
+    private final LongAdder pendingEvents = new LongAdder();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushCount = new AtomicLong();
+    private final AtomicLong droppedRowCount = new AtomicLong();
+    private volatile ScheduledExecutorService flusher;
+    private volatile boolean closed = false;
+    
+    private static class Counters {
+        final LongAdder ticketsAssigned = new LongAdder();
+        final LongAdder resolutions = new LongAdder();
+        final LongAdder handleTimeMinutes = new LongAdder();
+        int rejectedFlushes; // guarded by the buffer's lock
+    }
+    
+    public AgentMetricsBuffer(long flushIntervalMillis, long flushThreshold) {
+        if (flushIntervalMillis < 1 || flushThreshold < 1) {
+            throw new IllegalArgumentException("flushIntervalMillis and flushThreshold must be at least 1");
+        }
+        this.agentDAO = new AgentDAO();
+        this.transactionTemplate = new TransactionTemplate();
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushThreshold = flushThreshold;
+    }
+    
+    /**
+     * Defaults (flush every second or every 1000 events) overridden by
+     * -Dhelpdesk.agentMetrics.flushMillis and -Dhelpdesk.agentMetrics.flushThreshold
+     */
+    public static AgentMetricsBuffer fromSystemProperties() {
+        return new AgentMetricsBuffer(Long.getLong("helpdesk.agentMetrics.flushMillis", 1000),
+                                      Long.getLong("helpdesk.agentMetrics.flushThreshold", 1000));
+    }
+    
+    /**
+     * Count tickets assigned to the agent; call after the assignment has committed
+     */
+    public void recordAssignment(int agentId, int ticketCount) {
+        Counters counters = countersFor(agentId);
+        counters.ticketsAssigned.add(ticketCount);
+        recorded(ticketCount);
+    }
+    
+    /**
+     * Count a ticket resolved by the agent; call after the resolution has committed
+     */
+    public void recordResolution(int agentId, long handleTimeMinutes) {
+        Counters counters = countersFor(agentId);
+        counters.resolutions.increment();
+        counters.handleTimeMinutes.add(handleTimeMinutes);
+        recorded(1);
+    }
+    
+    /**
+     * Write everything pending in one transaction; returns the number of agents written.
+     * If a row is rejected the rows are written one transaction each instead, and only the
+     * rejected ones wait for the next flush.
+     */
+    public synchronized int flush() throws SQLException {
+        List<AgentMetricsDelta> deltas = new ArrayList<>();
+        for (Map.Entry<Integer, Counters> entry : pending.entrySet()) {
+            Counters counters = entry.getValue();
+            long assigned = counters.ticketsAssigned.sum();
+            long resolutions = counters.resolutions.sum();
+            long handleTime = counters.handleTimeMinutes.sum();
+            if (assigned == 0 && resolutions == 0 && handleTime == 0) {
+                continue;
+            }
+            counters.ticketsAssigned.add(-assigned);
+            counters.resolutions.add(-resolutions);
+            counters.handleTimeMinutes.add(-handleTime);
+            pendingEvents.add(-(assigned + resolutions));
+            deltas.add(new AgentMetricsDelta(entry.getKey(), assigned, resolutions, handleTime));
+        }
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        deltas.sort((a, b) -> Integer.compare(a.getAgentId(), b.getAgentId()));
+        
+        try {
+            write(deltas);
+        } catch (SQLException e) {
+            failedFlushCount.incrementAndGet();
+            if (!isRejectedRow(e)) {
+                putBack(deltas);
+                throw e;
+            }
+            return writeEachRow(deltas);
+        }
+        for (AgentMetricsDelta delta : deltas) {
+            countersFor(delta.getAgentId()).rejectedFlushes = 0;
+        }
+        flushCount.incrementAndGet();
+        return deltas.size();
+    }
+    
+    private int writeEachRow(List<AgentMetricsDelta> deltas) throws SQLException {
+        int written = 0;
+        for (int i = 0; i < deltas.size(); i++) {
+            AgentMetricsDelta delta = deltas.get(i);
+            Counters counters = countersFor(delta.getAgentId());
+            try {
+                write(Collections.singletonList(delta));
+                counters.rejectedFlushes = 0;
+                written++;
+            } catch (SQLException e) {
+                if (!isRejectedRow(e)) {
+                    putBack(deltas.subList(i, deltas.size()));
+                    throw e;
+                }
+                if (++counters.rejectedFlushes < MAX_WRITE_ATTEMPTS) {
+                    putBack(Collections.singletonList(delta));
+                } else {
+                    counters.rejectedFlushes = 0;
+                    droppedRowCount.incrementAndGet();
+                    LOG.log(Level.WARNING, "Dropped agent metrics for agent " + delta.getAgentId() + " after " +
+                                           MAX_WRITE_ATTEMPTS + " rejected writes", e);
+                }
+            }
+        }
+        flushCount.incrementAndGet();
+        return written;
+    }
+    
+    private void write(List<AgentMetricsDelta> deltas) throws SQLException {
+        transactionTemplate.execute(conn -> {
+            agentDAO.addToAgentMetrics(conn, deltas);
+            return null;
+        });
+    }
+    
+    private void putBack(List<AgentMetricsDelta> deltas) {
+        for (AgentMetricsDelta delta : deltas) {
+            Counters counters = countersFor(delta.getAgentId());
+            counters.ticketsAssigned.add(delta.getTicketsAssigned());
+            counters.resolutions.add(delta.getResolutions());
+            counters.handleTimeMinutes.add(delta.getHandleTimeMinutes());
+            pendingEvents.add(delta.getTicketsAssigned() + delta.getResolutions());
+        }
+    }
+    
+    // Data (22) and integrity constraint (23) errors are about the rows; anything else, such as a
+    // lost connection, fails every row alike and is retried without counting against them
+    private static boolean isRejectedRow(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+    
+    /**
+     * Stop the background flusher and write what is left
+     */
+    public void close() throws SQLException {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            closed = true;
+            current = flusher;
+            flusher = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+    
+    @Override
+    public long getPendingAssignments() {
+        long total = 0;
+        for (Counters counters : pending.values()) {
+            total += counters.ticketsAssigned.sum();
+        }
+        return total;
+    }
+    
+    @Override
+    public long getPendingResolutions() {
+        long total = 0;
+        for (Counters counters : pending.values()) {
+            total += counters.resolutions.sum();
+        }
+        return total;
+    }
+    
+    @Override
+    public long getPendingHandleTimeMinutes() {
+        long total = 0;
+        for (Counters counters : pending.values()) {
+            total += counters.handleTimeMinutes.sum();
+        }
+        return total;
+    }
+    
+    @Override
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+    
+    @Override
+    public long getFailedFlushCount() {
+        return failedFlushCount.get();
+    }
+    
+    @Override
+    public long getDroppedRowCount() {
+        return droppedRowCount.get();
+    }
+    
+    private Counters countersFor(int agentId) {
+        Counters counters = pending.get(agentId);
+        return counters != null ? counters : pending.computeIfAbsent(agentId, id -> new Counters());
+    }
+    
+    private void recorded(long events) {
+        pendingEvents.add(events);
+        ScheduledExecutorService current = flusher != null ? flusher : startFlusher();
+        if (current != null && pendingEvents.sum() >= flushThreshold && flushQueued.compareAndSet(false, true)) {
+            try {
+                current.execute(this::flushQuietly);
+            } catch (RuntimeException e) {
+                // Shutting down; close() writes what is left
+                flushQueued.set(false);
+            }
+        }
+    }
+    
+    // Started with the first event; once closed, events wait for an explicit flush()
+    private synchronized ScheduledExecutorService startFlusher() {
+        if (flusher == null && !closed) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "agent-metrics-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    close();
+                } catch (SQLException e) {
+                    LOG.log(Level.WARNING, "Could not write pending agent metrics", e);
+                }
+            }, "agent-metrics-drain"));
+            registerMBean();
+        }
+        return flusher;
+    }
+    
+    private void flushQuietly() {
+        flushQueued.set(false);
+        try {
+            flush();
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Agent metrics flush failed, will retry", e);
+        }
+    }
+    
+    private void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            LOG.warning("Could not register " + MBEAN_NAME + ": " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.helpdesk.service;
+
+/**
+ * JMX view of the AgentMetrics write-behind buffer, registered as com.helpdesk:type=AgentMetricsBuffer
+ */
+public interface AgentMetricsBufferMXBean {
+    
+    /**
+     * Ticket assignments counted in memory but not yet written to AgentMetrics
+     */
+    long getPendingAssignments();
+    
+    long getPendingResolutions();
+    
+    long getPendingHandleTimeMinutes();
+    
+    long getFlushCount();
+    
+    long getFailedFlushCount();
+    
+    /**
+     * Agent rows given up on after AgentMetricsBuffer.MAX_WRITE_ATTEMPTS rejected writes
+     */
+    long getDroppedRowCount();
+}
\ No newline at end of file
@@ -0,0 +1,275 @@
+package com.helpdesk.service;
+
+import com.helpdesk.dao.Page;
+import com.helpdesk.dao.PageCursor;
+import com.helpdesk.db.DatabaseConnection;
+import com.helpdesk.db.QueryContext;
+import com.helpdesk.model.Agent;
+import com.helpdesk.model.ConversationSearchHit;
+import com.helpdesk.model.Customer;
+import com.helpdesk.model.TicketConversation;
+import com.helpdesk.model.TicketHistoryEntry;
+import com.helpdesk.model.TicketSummary;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CompletableFuture facade over HelpDeskService for callers that must not block.
+ *
+ * Calls run on virtual threads when the JVM has them (Java 21+) and otherwise on a fixed
+ * pool with one thread per database connection. At most maxConcurrency calls use the
+ * database at once (by default RESERVED_CONNECTIONS fewer than the connection pool size, so
+ * the background writers and any nested borrow still find a connection); up to maxQueued
+ * more wait for a slot, and anything beyond that fails straight away with
+ * RejectedExecutionException so overload shows up at the caller instead of as a growing queue.
+ *
+ * Each call has a timeout (counted from submission). The returned future fails with a
+ * TimeoutException once it passes, the statements the call runs get a matching query
+ * timeout, and cancelling or timing out the future cancels the statement in progress.
+ */
+public class AsyncHelpDeskService implements AutoCloseable {
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+    private static final int DEFAULT_QUEUED_PER_CONNECTION = 10;
+    // Left to the history, metrics, SLA and outbox threads when the facade is saturated
+    private static final int RESERVED_CONNECTIONS = 2;
+    
+    private final HelpDeskService service;
+    private final ExecutorService executor;
+    private final ExecutorService cancelExecutor;
+    private final Semaphore inFlight;
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long defaultTimeoutMillis;
+    
+    /**
+     * A unit of work against the synchronous service
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+    
+    public AsyncHelpDeskService(HelpDeskService service) {
+        this(service, Math.max(1, DatabaseConnection.getDataSource().getConfig().getMaxSize() - RESERVED_CONNECTIONS),
+             DEFAULT_TIMEOUT_MILLIS);
+    }
+    
+    public AsyncHelpDeskService(HelpDeskService service, int maxConcurrency, long defaultTimeoutMillis) {
+        this(service, maxConcurrency, maxConcurrency * DEFAULT_QUEUED_PER_CONNECTION, defaultTimeoutMillis);
+    }
+    
+    public AsyncHelpDeskService(HelpDeskService service, int maxConcurrency, int maxQueued, long defaultTimeoutMillis) {
+        if (maxConcurrency < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Invalid limits: maxConcurrency=" + maxConcurrency + ", maxQueued=" + maxQueued);
+        }
+        this.service = service;
+        this.executor = newExecutor(maxConcurrency);
+        // Not the call executor: with a fixed pool its threads may all be running the statements to cancel
+        this.cancelExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "helpdesk-async-cancel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlight = new Semaphore(maxConcurrency, true);
+        this.maxPending = maxConcurrency + maxQueued;
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+    }
+    
+    /**
+     * Run a call with the default timeout
+     */
+    public <T> CompletableFuture<T> submit(SqlCall<T> call) {
+        return submit(defaultTimeoutMillis, call);
+    }
+    
+    /**
+     * Run a call with its own timeout; 0 or less means none
+     */
+    public <T> CompletableFuture<T> submit(long timeoutMillis, SqlCall<T> call) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Too many pending database calls (limit " + maxPending + ")"));
+        }
+        
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long deadlineNanos = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        try {
+            executor.execute(() -> run(call, future, deadlineNanos));
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (timeoutMillis > 0) {
+            future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+    
+    private <T> void run(SqlCall<T> call, CompletableFuture<T> future, long deadlineNanos) {
+        try {
+            // Cancelled or timed out while queued
+            if (future.isDone()) {
+                return;
+            }
+            long waitNanos = deadlineNanos == 0 ? Long.MAX_VALUE : deadlineNanos - System.nanoTime();
+            if (!inFlight.tryAcquire(waitNanos, TimeUnit.NANOSECONDS)) {
+                future.completeExceptionally(new TimeoutException("Timed out waiting for a database slot"));
+                return;
+            }
+            try {
+                execute(call, future, deadlineNanos);
+            } finally {
+                inFlight.release();
+            }
+        } catch (InterruptedException e) {
+            future.completeExceptionally(e);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+    
+    private <T> void execute(SqlCall<T> call, CompletableFuture<T> future, long deadlineNanos) {
+        long timeoutMillis = deadlineNanos == 0 ? 0
+                : Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+        QueryContext context = QueryContext.begin(timeoutMillis);
+        // Each call is its own request, so it must not inherit the previous call's read-your-writes window
+        DatabaseConnection.resetReadRouting();
+        // Statement.cancel() makes a round trip, so hand it off from the thread completing the future;
+        // after close() the cancel executor is shut down and the cancel runs on that thread instead
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                try {
+                    cancelExecutor.execute(context::cancel);
+                } catch (RejectedExecutionException e) {
+                    context.cancel();
+                }
+            }
+        });
+        try {
+            T result = call.call();
+            context.end();
+            future.complete(result);
+        } catch (Throwable t) {
+            context.end();
+            future.completeExceptionally(t);
+        }
+    }
+    
+    /**
+     * Stop accepting calls; calls already submitted still run, and are still cancelled if they time out
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        cancelExecutor.shutdown();
+    }
+    
+    public int getPendingCount() {
+        return pending.get();
+    }
+    
+    // Request path operations
+    public CompletableFuture<Integer> createTicketWithMessage(int customerId, int categoryId, int priorityId, String initialMessage) {
+        return submit(() -> service.createTicketWithMessage(customerId, categoryId, priorityId, initialMessage));
+    }
+    
+    public CompletableFuture<Boolean> assignTicketToAgent(int ticketId, int agentId) {
+        return submit(() -> service.assignTicketToAgent(ticketId, agentId));
+    }
+    
+    public CompletableFuture<Integer> autoAssignTicket(int ticketId) {
+        return submit(() -> service.autoAssignTicket(ticketId));
+    }
+    
+    public CompletableFuture<List<Integer>> claimTicketsForAgent(int agentId, int limit) {
+        return submit(() -> service.claimTicketsForAgent(agentId, limit));
+    }
+    
+    public CompletableFuture<Boolean> resolveTicket(int ticketId, String resolutionMessage, int agentId) {
+        return submit(() -> service.resolveTicket(ticketId, resolutionMessage, agentId));
+    }
+    
+    public CompletableFuture<Boolean> closeTicket(int ticketId) {
+        return submit(() -> service.closeTicket(ticketId));
+    }
+    
+    public CompletableFuture<Boolean> addMessageToTicket(int ticketId, String messageText, boolean isFromAgent, int senderId) {
+        return submit(() -> service.addMessageToTicket(ticketId, messageText, isFromAgent, senderId));
+    }
+    
+    public CompletableFuture<HelpDeskService.TicketDetails> getFullTicketDetails(int ticketId) {
+        return submit(() -> service.getFullTicketDetails(ticketId));
+    }
+    
+    public CompletableFuture<Map<Integer, HelpDeskService.TicketDetails>> getFullTicketDetails(Collection<Integer> ticketIds) {
+        return submit(() -> service.getFullTicketDetails(ticketIds));
+    }
+    
+    public CompletableFuture<Page<TicketSummary>> getAgentInbox(int agentId, PageCursor after, int pageSize) {
+        return submit(() -> service.getAgentInbox(agentId, after, pageSize));
+    }
+    
+    public CompletableFuture<List<ConversationSearchHit>> searchConversations(String query, Integer categoryId,
+                                                                           Integer statusId, int limit) {
+        return submit(() -> service.searchConversations(query, categoryId, statusId, limit));
+    }
+    
+    public CompletableFuture<List<TicketConversation>> getTicketConversation(int ticketId) {
+        return submit(() -> service.getTicketConversation(ticketId));
+    }
+    
+    public CompletableFuture<Page<TicketConversation>> getTicketConversationPage(int ticketId, PageCursor after, int pageSize) {
+        return submit(() -> service.getTicketConversationPage(ticketId, after, pageSize));
+    }
+    
+    public CompletableFuture<Page<TicketHistoryEntry>> getTicketHistoryPage(int ticketId, PageCursor after, int pageSize) {
+        return submit(() -> service.getTicketHistoryPage(ticketId, after, pageSize));
+    }
+    
+    public CompletableFuture<Integer> registerCustomer(String name, String email) {
+        return submit(() -> service.registerCustomer(name, email));
+    }
+    
+    public CompletableFuture<Customer> getCustomerById(int customerId) {
+        return submit(() -> service.getCustomerById(customerId));
+    }
+    
+    public CompletableFuture<Agent> getAgentById(int agentId) {
+        return submit(() -> service.getAgentById(agentId));
+    }
+    
+    /**
+     * Virtual-thread-per-task executor on Java 21+, else one platform thread per connection.
+     * Looked up reflectively so the same build runs on Java 11.
+     */
+    private static ExecutorService newExecutor(int maxConcurrency) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "helpdesk-async-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+}
\ No newline at end of file
@@ -1,13 +1,29 @@
 package com.helpdesk.service;
 
+import com.helpdesk.cache.CacheStats;
+import com.helpdesk.cache.ReferenceDataCache;
 import com.helpdesk.dao.TicketDAO;
 import com.helpdesk.dao.CustomerDAO;
 import com.helpdesk.dao.AgentDAO;
+import com.helpdesk.dao.OutboxDAO;
+import com.helpdesk.dao.TicketHistoryDAO;
+import com.helpdesk.dao.Page;
+import com.helpdesk.dao.PageCursor;
+import com.helpdesk.dao.RowCallback;
+import com.helpdesk.db.TransactionTemplate;
+import com.helpdesk.metrics.OperationStats;
+import com.helpdesk.metrics.QueryMetrics;
 import com.helpdesk.model.*;
+import com.helpdesk.outbox.TicketEvents;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service layer for Help Desk Platform business logic
@@ -17,76 +33,476 @@ public class HelpDeskService {
     private TicketDAO ticketDAO;
     private CustomerDAO customerDAO;
     private AgentDAO agentDAO;
+    private TicketHistoryDAO ticketHistoryDAO;
+    private OutboxDAO outboxDAO;
+    private TransactionTemplate transactionTemplate;
+    
+    // Tickets per transaction for bulk ingestion
+    private static final int BULK_CHUNK_SIZE = 500;
+    
+    // Shared so every service instance routes against the same agent loads
+    private static final TicketRouter ticketRouter = new TicketRouter(new AgentDAO());
+    
+    // Shared for the same reason; null unless an SlaScheduler has been installed
+    private static volatile SlaScheduler slaScheduler;
+    
+    // AgentMetrics counters are written behind, so a busy agent's row is not locked by every assignment
+    private static final AgentMetricsBuffer agentMetricsBuffer = AgentMetricsBuffer.fromSystemProperties();
+    
+    // Status, agent and priority changes go to the TicketHistory audit trail
+    private static final TicketHistoryWriter ticketHistory = TicketHistoryWriter.getDefault();
     
     public HelpDeskService() {
         this.ticketDAO = new TicketDAO();
         this.customerDAO = new CustomerDAO();
         this.agentDAO = new AgentDAO();
+        this.ticketHistoryDAO = new TicketHistoryDAO();
+        this.outboxDAO = new OutboxDAO();
+        this.transactionTemplate = new TransactionTemplate();
+    }
+    
+    // For tests that check the router's load accounting
+    static TicketRouter getTicketRouter() {
+        return ticketRouter;
+    }
+    
+    /**
+     * Keep the given SLA scheduler in step with ticket changes made through any service instance;
+     * null stops the updates
+     */
+    public static void setSlaScheduler(SlaScheduler scheduler) {
+        slaScheduler = scheduler;
+    }
+    
+    /**
+     * Write the buffered AgentMetrics counters now (they are otherwise written within about a second)
+     */
+    public static void flushAgentMetrics() throws SQLException {
+        agentMetricsBuffer.flush();
+    }
+    
+    /**
+     * Wait until queued ticket history has been written (a no-op in strict mode)
+     */
+    public static void flushTicketHistory() {
+        ticketHistory.flush();
     }
     
     /**
      * Create a new ticket with initial message
      */
     public int createTicketWithMessage(int customerId, int categoryId, int priorityId, String initialMessage) throws SQLException {
-        // Create ticket with status 1 (Open)
-        Ticket ticket = new Ticket(customerId, 1, categoryId, priorityId);
-        int ticketId = ticketDAO.createTicket(ticket);
+        SlaScheduler sla = slaScheduler;
+        List<TicketSummary> created = new ArrayList<>();
+        int createdTicketId = transactionTemplate.execute(conn -> {
+            created.clear();
+            // Create ticket with status 1 (Open)
+            Ticket ticket = new Ticket(customerId, 1, categoryId, priorityId);
+            int ticketId = ticketDAO.createTicket(conn, ticket);
+            
+            // Add initial message from customer
+            TicketConversation message = new TicketConversation(ticketId, initialMessage, false, customerId);
+            ticketDAO.addMessage(conn, message);
+            outboxDAO.appendEvent(conn, TicketEvents.created(ticketId, customerId, categoryId, priorityId, initialMessage));
+            
+            if (sla != null) {
+                // The SLA timers are timed from the created_at the database stamped
+                created.addAll(ticketDAO.getTicketSummariesByIds(conn, Collections.singletonList(ticketId), 1).values());
+            }
+            
+            // Last, so the shared rollup row is locked as briefly as possible
+            ticketDAO.addCreatedToDailyVolume(conn, ticketId);
+            
+            return ticketId;
+        });
         
-        // Add initial message from customer
-        TicketConversation message = new TicketConversation(ticketId, initialMessage, false, customerId);
-        ticketDAO.addMessage(message);
+        if (sla != null) {
+            sla.ticketsCreated(created);
+        }
+        return createdTicketId;
+    }
+    
+    /**
+     * Create many tickets with their initial messages (e.g. an email import burst).
+     * Each chunk of BULK_CHUNK_SIZE tickets is written in one transaction; a failing ticket
+     * or chunk is reported in the result instead of aborting the rest.
+     */
+    public BulkTicketResult createTicketsWithMessages(List<NewTicket> tickets) throws SQLException {
+        SlaScheduler sla = slaScheduler;
+        BulkTicketResult result = new BulkTicketResult(tickets.size());
+        List<TicketSummary> created = new ArrayList<>();
+        
+        for (int from = 0; from < tickets.size(); from += BULK_CHUNK_SIZE) {
+            int to = Math.min(from + BULK_CHUNK_SIZE, tickets.size());
+            List<NewTicket> chunk = tickets.subList(from, to);
+            List<TicketSummary> chunkCreated = new ArrayList<>();
+            try {
+                result.merge(from, transactionTemplate.execute(conn -> {
+                    chunkCreated.clear();
+                    BulkTicketResult chunkResult = ticketDAO.createTicketsWithMessages(conn, chunk);
+                    List<OutboxEvent> events = new ArrayList<>();
+                    List<Integer> createdIds = new ArrayList<>();
+                    for (int i = 0; i < chunk.size(); i++) {
+                        NewTicket ticket = chunk.get(i);
+                        if (chunkResult.getTicketId(i) != 0) {
+                            createdIds.add(chunkResult.getTicketId(i));
+                            events.add(TicketEvents.created(chunkResult.getTicketId(i), ticket.getCustomerId(),
+                                                            ticket.getCategoryId(), ticket.getPriorityId(), ticket.getInitialMessage()));
+                        }
+                    }
+                    outboxDAO.appendEvents(conn, events);
+                    if (sla != null) {
+                        // The SLA timers are timed from the created_at the database stamped
+                        chunkCreated.addAll(ticketDAO.getTicketSummariesByIds(conn, createdIds, BULK_CHUNK_SIZE).values());
+                    }
+                    ticketDAO.addCreatedToDailyVolume(conn, chunkResult.getTicketIds());
+                    return chunkResult;
+                }));
+                created.addAll(chunkCreated);
+            } catch (SQLException e) {
+                for (int i = from; i < to; i++) {
+                    result.addFailure(i, e);
+                }
+            }
+        }
         
-        return ticketId;
+        if (sla != null) {
+            sla.ticketsCreated(created);
+        }
+        return result;
     }
     
     /**
      * Assign ticket to best available agent
      */
     public boolean assignTicketToAgent(int ticketId, int agentId) throws SQLException {
-        // Assign ticket
-        boolean assigned = ticketDAO.assignTicket(ticketId, agentId);
+        Ticket[] before = new Ticket[1];
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        boolean assigned = transactionTemplate.execute(conn -> {
+            history.clear();
+            before[0] = ticketDAO.lockTicket(conn, ticketId);
+            if (before[0] == null || !ticketDAO.assignTicket(conn, ticketId, agentId)) {
+                return false;
+            }
+            addAssignmentHistory(history, ticketId, null, before[0].getAgentId(), before[0].getStatusId(), agentId);
+            ticketHistory.writeInTransaction(conn, history);
+            outboxDAO.appendEvent(conn, TicketEvents.assigned(ticketId, agentId));
+            return true;
+        });
         
         if (assigned) {
-            // Update agent metrics
-            agentDAO.updateAgentMetricsOnAssignment(agentId);
+            ticketHistory.committed(history);
+            agentMetricsBuffer.recordAssignment(agentId, 1);
+            // A reassigned open ticket moves from the previous agent's load to the new one's
+            Integer previousAgentId = isOpen(before[0]) ? before[0].getAgentId() : null;
+            if (previousAgentId == null || previousAgentId != agentId) {
+                ticketRouter.ticketAssigned(agentId);
+                if (previousAgentId != null) {
+                    ticketRouter.release(previousAgentId);
+                }
+            }
+            slaTicketAssigned(ticketId);
+            // Assigning a resolved or closed ticket reopens it, so it owes its resolution again
+            if (!isOpen(before[0])) {
+                SlaScheduler sla = slaScheduler;
+                if (sla != null) {
+                    sla.ticketReopened(ticketId, before[0].getCategoryId(), before[0].getCreatedAt());
+                }
+            }
         }
-        
         return assigned;
     }
     
     /**
-     * Resolve ticket and update metrics
+     * Assign a ticket to the least-loaded available agent skilled in its category.
+     * Returns the chosen agent ID, or -1 if no agent can take the ticket.
      */
-    public boolean resolveTicket(int ticketId, String resolutionMessage, int agentId) throws SQLException {
-        // Get ticket details for handle time calculation
+    public int autoAssignTicket(int ticketId) throws SQLException {
         Ticket ticket = ticketDAO.getTicketById(ticketId);
-        if (ticket == null || ticket.getAssignedAt() == null) {
-            return false;
+        if (ticket == null) {
+            return -1;
+        }
+        return autoAssignTicket(ticketId, ticket.getCategoryId());
+    }
+    
+    /**
+     * Auto-assign when the caller already knows the ticket's category (saves the ticket lookup)
+     */
+    public int autoAssignTicket(int ticketId, int categoryId) throws SQLException {
+        ticketRouter.reloadIfStale();
+        int agentId = ticketRouter.reserve(categoryId);
+        if (agentId < 0) {
+            return -1;
         }
         
-        // Add resolution message
-        TicketConversation message = new TicketConversation(ticketId, resolutionMessage, true, agentId);
-        ticketDAO.addMessage(message);
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        boolean assigned = false;
+        try {
+            // Guarded so a ticket already taken by another dispatcher is not reassigned
+            assigned = transactionTemplate.execute(conn -> {
+                history.clear();
+                if (!ticketDAO.claimTicket(conn, ticketId, agentId)) {
+                    return false;
+                }
+                addAssignmentHistory(history, ticketId, null, null, 1, agentId);
+                ticketHistory.writeInTransaction(conn, history);
+                outboxDAO.appendEvent(conn, TicketEvents.assigned(ticketId, agentId));
+                return true;
+            });
+        } finally {
+            if (!assigned) {
+                ticketRouter.release(agentId);
+            }
+        }
+        if (assigned) {
+            ticketHistory.committed(history);
+            agentMetricsBuffer.recordAssignment(agentId, 1);
+            slaTicketAssigned(ticketId);
+        }
+        return assigned ? agentId : -1;
+    }
+    
+    /**
+     * Route a batch of queued tickets to agents, highest priority and oldest first.
+     * Safe to run from several threads or nodes at once: each call locks its own batch
+     * with SKIP LOCKED. Tickets no agent can take stay queued. Returns the number assigned.
+     */
+    public int dispatchQueuedTickets(int batchSize) throws SQLException {
+        List<Integer> reserved = new ArrayList<>();
+        List<Integer> assignedTicketIds = new ArrayList<>();
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        // Refresh up front: a reload borrows its own connection, which must not happen
+        // while this transaction holds its SKIP LOCKED row locks
+        ticketRouter.reloadIfStale();
+        try {
+            int dispatched = transactionTemplate.execute(conn -> {
+                // A retried attempt starts over, so drop the previous attempt's reservations
+                releaseAll(reserved);
+                assignedTicketIds.clear();
+                history.clear();
+                List<OutboxEvent> events = new ArrayList<>();
+                
+                for (Ticket ticket : ticketDAO.lockQueuedTickets(conn, batchSize)) {
+                    int agentId = ticketRouter.reserve(ticket.getCategoryId());
+                    if (agentId < 0) {
+                        continue;
+                    }
+                    // A queued ticket was never resolved or closed, so it skips assignTicket's reopen bookkeeping
+                    if (!ticketDAO.claimTicket(conn, ticket.getTicketId(), agentId)) {
+                        ticketRouter.release(agentId);
+                        continue;
+                    }
+                    reserved.add(agentId);
+                    assignedTicketIds.add(ticket.getTicketId());
+                    addAssignmentHistory(history, ticket.getTicketId(), null, null, 1, agentId);
+                    events.add(TicketEvents.assigned(ticket.getTicketId(), agentId));
+                }
+                ticketHistory.writeInTransaction(conn, history);
+                outboxDAO.appendEvents(conn, events);
+                return reserved.size();
+            });
+            ticketHistory.committed(history);
+            for (int agentId : reserved) {
+                agentMetricsBuffer.recordAssignment(agentId, 1);
+            }
+            reserved.clear();
+            for (int ticketId : assignedTicketIds) {
+                slaTicketAssigned(ticketId);
+            }
+            return dispatched;
+        } finally {
+            releaseAll(reserved);
+        }
+    }
+    
+    /**
+     * Let an agent pull up to limit queued tickets, highest priority and oldest first.
+     * Returns the claimed ticket IDs.
+     */
+    public List<Integer> claimTicketsForAgent(int agentId, int limit) throws SQLException {
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        List<Integer> claimed = transactionTemplate.execute(conn -> {
+            history.clear();
+            List<Integer> ticketIds = ticketDAO.claimQueuedTickets(conn, agentId, limit);
+            List<OutboxEvent> events = new ArrayList<>();
+            for (int ticketId : ticketIds) {
+                addAssignmentHistory(history, ticketId, agentId, null, 1, agentId);
+                events.add(TicketEvents.assigned(ticketId, agentId));
+            }
+            ticketHistory.writeInTransaction(conn, history);
+            outboxDAO.appendEvents(conn, events);
+            return ticketIds;
+        });
         
-        // Update ticket status to resolved (status 3)
-        boolean resolved = ticketDAO.updateTicketStatus(ticketId, 3);
+        ticketHistory.committed(history);
+        if (!claimed.isEmpty()) {
+            agentMetricsBuffer.recordAssignment(agentId, claimed.size());
+        }
+        for (int ticketId : claimed) {
+            ticketRouter.ticketAssigned(agentId);
+            slaTicketAssigned(ticketId);
+        }
+        return claimed;
+    }
+    
+    private void slaTicketAssigned(int ticketId) {
+        SlaScheduler sla = slaScheduler;
+        if (sla != null) {
+            sla.ticketAssigned(ticketId);
+        }
+    }
+    
+    private void slaTicketFinished(int ticketId) {
+        SlaScheduler sla = slaScheduler;
+        if (sla != null) {
+            sla.ticketFinished(ticketId);
+        }
+    }
+    
+    // Assignment sets the agent and moves the ticket to In Progress (status 2)
+    private static void addAssignmentHistory(List<TicketHistoryEntry> history, int ticketId, Integer changedBy,
+                                             Integer oldAgentId, int oldStatusId, int agentId) {
+        if (oldAgentId == null || oldAgentId != agentId) {
+            history.add(new TicketHistoryEntry(ticketId, changedBy, TicketHistoryEntry.AGENT, oldAgentId, agentId));
+        }
+        if (oldStatusId != 2) {
+            history.add(new TicketHistoryEntry(ticketId, changedBy, TicketHistoryEntry.STATUS, oldStatusId, 2));
+        }
+    }
+    
+    // Open or In Progress: the ticket still counts against its agent's load
+    private static boolean isOpen(Ticket ticket) {
+        return ticket.getStatusId() == 1 || ticket.getStatusId() == 2;
+    }
+    
+    private void releaseAll(List<Integer> reservedAgentIds) {
+        for (int agentId : reservedAgentIds) {
+            ticketRouter.release(agentId);
+        }
+        reservedAgentIds.clear();
+    }
+    
+    /**
+     * Resolve ticket and update metrics
+     */
+    public boolean resolveTicket(int ticketId, String resolutionMessage, int agentId) throws SQLException {
+        long[] handleTime = new long[1];
+        Ticket[] before = new Ticket[1];
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        boolean resolved = transactionTemplate.execute(conn -> {
+            history.clear();
+            // Get ticket details for handle time calculation
+            Ticket ticket = ticketDAO.lockTicket(conn, ticketId);
+            before[0] = ticket;
+            if (ticket == null || ticket.getAssignedAt() == null) {
+                return false;
+            }
+            
+            // Add resolution message
+            TicketConversation message = new TicketConversation(ticketId, resolutionMessage, true, agentId);
+            ticketDAO.addMessage(conn, message);
+            
+            // Update ticket status to resolved (status 3); also counts the resolution in TicketDailyVolume
+            boolean updated = ticketDAO.updateTicketStatus(conn, ticketId, 3);
+            
+            if (updated) {
+                // Calculate handle time in minutes; agent metrics are updated after commit
+                handleTime[0] = (System.currentTimeMillis() - ticket.getAssignedAt().getTime()) / (1000 * 60);
+                
+                if (ticket.getStatusId() != 3) {
+                    history.add(new TicketHistoryEntry(ticketId, agentId, TicketHistoryEntry.STATUS, ticket.getStatusId(), 3));
+                    if (ticket.isEscalated()) {
+                        history.add(new TicketHistoryEntry(ticketId, agentId, TicketHistoryEntry.ESCALATED, 1, 0));
+                    }
+                    ticketHistory.writeInTransaction(conn, history);
+                    outboxDAO.appendEvent(conn, TicketEvents.resolved(ticketId, agentId, resolutionMessage));
+                } else {
+                    // Already resolved: only the message is new
+                    outboxDAO.appendEvent(conn, TicketEvents.messageAdded(ticketId, agentId, true, resolutionMessage));
+                }
+            }
+            
+            return updated;
+        });
         
         if (resolved) {
-            // Calculate handle time in minutes
-            long handleTime = (System.currentTimeMillis() - ticket.getAssignedAt().getTime()) / (1000 * 60);
-            
-            // Update agent metrics
-            agentDAO.updateAgentMetricsOnResolution(agentId, handleTime);
+            ticketHistory.committed(history);
+            // Only a ticket still being worked on counts as a resolution and frees its assignee
+            Ticket ticket = before[0];
+            if (isOpen(ticket)) {
+                agentMetricsBuffer.recordResolution(agentId, handleTime[0]);
+                if (ticket.getAgentId() != null) {
+                    ticketRouter.release(ticket.getAgentId());
+                }
+            }
+            slaTicketFinished(ticketId);
         }
-        
         return resolved;
     }
     
     /**
-     * Close ticket (customer or agent can close)
+     * Close ticket (customer or agent can close) and add it to the category metrics.
+     * Returns false if the ticket does not exist or is already closed.
      */
     public boolean closeTicket(int ticketId) throws SQLException {
-        return ticketDAO.updateTicketStatus(ticketId, 4); // Status 4 = Closed
+        Ticket[] before = new Ticket[1];
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        boolean closed = transactionTemplate.execute(conn -> {
+            history.clear();
+            before[0] = ticketDAO.lockTicket(conn, ticketId);
+            // Also counts the close in CategoryMetrics and TicketDailyVolume
+            if (before[0] == null || !ticketDAO.closeTicket(conn, ticketId)) {
+                return false;
+            }
+            if (before[0].getStatusId() != 4) {
+                history.add(new TicketHistoryEntry(ticketId, null, TicketHistoryEntry.STATUS, before[0].getStatusId(), 4));
+                if (before[0].isEscalated()) {
+                    history.add(new TicketHistoryEntry(ticketId, null, TicketHistoryEntry.ESCALATED, 1, 0));
+                }
+                ticketHistory.writeInTransaction(conn, history);
+            }
+            outboxDAO.appendEvent(conn, TicketEvents.closed(ticketId));
+            return true;
+        });
+        
+        if (!closed) {
+            return false;
+        }
+        ticketHistory.committed(history);
+        // Closing a ticket that was still being worked on frees up its agent
+        Ticket ticket = before[0];
+        if (ticket.getAgentId() != null && isOpen(ticket)) {
+            ticketRouter.release(ticket.getAgentId());
+        }
+        slaTicketFinished(ticketId);
+        return true;
+    }
+    
+    /**
+     * Change a ticket's priority; changedBy is the agent making the change, or null.
+     * Returns false if the ticket does not exist.
+     */
+    public boolean changeTicketPriority(int ticketId, int priorityId, Integer changedBy) throws SQLException {
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        boolean changed = transactionTemplate.execute(conn -> {
+            history.clear();
+            Ticket before = ticketDAO.lockTicket(conn, ticketId);
+            if (before == null) {
+                return false;
+            }
+            if (before.getPriorityId() != priorityId) {
+                ticketDAO.updateTicketPriority(conn, ticketId, priorityId);
+                history.add(new TicketHistoryEntry(ticketId, changedBy, TicketHistoryEntry.PRIORITY,
+                                                   before.getPriorityId(), priorityId));
+                ticketHistory.writeInTransaction(conn, history);
+            }
+            return true;
+        });
+        
+        if (changed) {
+            ticketHistory.committed(history);
+        }
+        return changed;
     }
     
     /**
@@ -94,20 +510,30 @@ public class HelpDeskService {
      */
     public boolean addMessageToTicket(int ticketId, String messageText, boolean isFromAgent, int senderId) throws SQLException {
         TicketConversation message = new TicketConversation(ticketId, messageText, isFromAgent, senderId);
-        return ticketDAO.addMessage(message);
+        return transactionTemplate.execute(conn -> {
+            // Locked so the event is ordered with the ticket's other events
+            ticketDAO.lockTicket(conn, ticketId);
+            if (!ticketDAO.addMessage(conn, message)) {
+                return false;
+            }
+            outboxDAO.appendEvent(conn, TicketEvents.messageAdded(ticketId, senderId, isFromAgent, messageText));
+            return true;
+        });
     }
     
     /**
      * Register new customer
      */
     public int registerCustomer(String name, String email) throws SQLException {
-        // Check if email already exists
-        if (customerDAO.emailExists(email)) {
-            throw new SQLException("Customer with this email already exists");
-        }
-        
-        Customer customer = new Customer(name, email);
-        return customerDAO.createCustomer(customer);
+        return transactionTemplate.execute(conn -> {
+            // Check if email already exists
+            if (customerDAO.emailExists(conn, email)) {
+                throw new SQLException("Customer with this email already exists");
+            }
+            
+            Customer customer = new Customer(name, email);
+            return customerDAO.createCustomer(conn, customer);
+        });
     }
     
     /**
@@ -115,14 +541,64 @@ public class HelpDeskService {
      */
     public int registerAgent(String name, String email, Timestamp availableFrom, Timestamp availableTo) throws SQLException {
         Agent agent = new Agent(name, email, availableFrom, availableTo);
-        return agentDAO.createAgent(agent);
+        int agentId = transactionTemplate.execute(conn -> agentDAO.createAgent(conn, agent));
+        ticketRouter.agentRegistered(agentId, availableFrom, availableTo);
+        return agentId;
+    }
+    
+    /**
+     * Update an agent's name, email and availability window
+     */
+    public boolean updateAgent(Agent agent) throws SQLException {
+        boolean updated = agentDAO.updateAgent(agent);
+        if (updated) {
+            ticketRouter.agentUpdated(agent.getAgentId(), agent.getAvailableFrom(), agent.getAvailableTo());
+        }
+        return updated;
+    }
+    
+    /**
+     * Delete an agent that has no tickets
+     */
+    public boolean deleteAgent(int agentId) throws SQLException {
+        boolean deleted = agentDAO.deleteAgent(agentId);
+        if (deleted) {
+            ticketRouter.agentDeleted(agentId);
+        }
+        return deleted;
     }
     
     /**
      * Add skill to agent
      */
     public boolean addSkillToAgent(int agentId, int categoryId) throws SQLException {
-        return agentDAO.addAgentSkill(agentId, categoryId);
+        boolean added = agentDAO.addAgentSkill(agentId, categoryId);
+        if (added) {
+            ticketRouter.skillAdded(agentId, categoryId);
+        }
+        return added;
+    }
+    
+    /**
+     * Remove skill from agent
+     */
+    public boolean removeSkillFromAgent(int agentId, int categoryId) throws SQLException {
+        boolean removed = agentDAO.removeAgentSkill(agentId, categoryId);
+        if (removed) {
+            ticketRouter.skillRemoved(agentId, categoryId);
+        }
+        return removed;
+    }
+    
+    /**
+     * Set whether an agent accepts new tickets
+     */
+    public boolean setAgentAvailability(int agentId, boolean isAvailable) throws SQLException {
+        boolean updated = agentDAO.setAgentAvailability(agentId, isAvailable);
+        if (updated) {
+            ticketRouter.availabilityChanged(agentId, isAvailable);
+        }
+        return updated;
     }
     
     /**
@@ -139,10 +615,26 @@ public class HelpDeskService {
         return new TicketDetails(ticket, conversations);
     }
     
+    /**
+     * Get full details of many tickets at once (e.g. an inbox page) with two queries per
+     * chunk instead of two per ticket. Tickets that do not exist are absent from the map.
+     */
+    public Map<Integer, TicketDetails> getFullTicketDetails(Collection<Integer> ticketIds) throws SQLException {
+        return newTicketDetailsLoader().loadMany(ticketIds);
+    }
+    
+    /**
+     * New request-scoped loader for callers that collect ticket IDs in several places before loading
+     */
+    public TicketDetailsLoader newTicketDetailsLoader() {
+        return new TicketDetailsLoader(ticketDAO);
+    }
+    
     /**
      * Get agents with highest resolution rate
      */
     public List<Object[]> getTopPerformingAgents() throws SQLException {
+        agentMetricsBuffer.flush();
         return agentDAO.getAgentsWithHighestResolutionRate();
     }
     
@@ -153,6 +645,20 @@ public class HelpDeskService {
         return ticketDAO.getAverageResolutionTimePerCategory();
     }
     
+    /**
+     * Rebuild the CategoryMetrics rollup from the Tickets table (backfill or reconcile)
+     */
+    public int rebuildCategoryMetrics() throws SQLException {
+        return transactionTemplate.execute(ticketDAO::rebuildCategoryMetrics);
+    }
+    
+    /**
+     * Stream average resolution time per category to the callback
+     */
+    public void streamCategoryPerformanceReport(RowCallback<Object[]> callback) throws SQLException {
+        ticketDAO.streamAverageResolutionTimePerCategory(callback);
+    }
+    
     /**
      * Generate monthly ticket volume report
      */
@@ -160,6 +666,27 @@ public class HelpDeskService {
         return ticketDAO.getMonthlyTicketVolumeReport(year, month);
     }
     
+    /**
+     * Stream the monthly ticket volume report to the callback
+     */
+    public void streamMonthlyVolumeReport(int year, int month, RowCallback<Object[]> callback) throws SQLException {
+        ticketDAO.streamMonthlyTicketVolumeReport(year, month, callback);
+    }
+    
+    /**
+     * Ticket volume per category (created, resolved, closed) for any date range, e.g. a week or quarter
+     */
+    public List<Object[]> getVolumeReport(LocalDate from, LocalDate toExclusive) throws SQLException {
+        return ticketDAO.getTicketVolumeByCategory(from, toExclusive);
+    }
+    
+    /**
+     * Rebuild the created and closed counts of the daily volume rollup from the Tickets table
+     */
+    public int rebuildDailyVolume() throws SQLException {
+        return transactionTemplate.execute(ticketDAO::rebuildDailyVolume);
+    }
+    
     /**
      * Get conversation history for a ticket
      */
@@ -167,6 +694,57 @@ public class HelpDeskService {
         return ticketDAO.getConversationHistory(ticketId);
     }
     
+    /**
+     * Get a page of a ticket's conversation history (pass null for the first page)
+     */
+    public Page<TicketConversation> getTicketConversationPage(int ticketId, PageCursor after, int pageSize) throws SQLException {
+        return ticketDAO.getConversationPage(ticketId, after, pageSize);
+    }
+    
+    /**
+     * Get a page of a ticket's change history, oldest first (pass null for the first page)
+     */
+    public Page<TicketHistoryEntry> getTicketHistoryPage(int ticketId, PageCursor after, int pageSize) throws SQLException {
+        return ticketHistoryDAO.getHistoryPage(ticketId, after, pageSize);
+    }
+    
+    /**
+     * Get a page of tickets, newest first (pass null for the first page)
+     */
+    public Page<Ticket> getTicketsPage(PageCursor after, int pageSize) throws SQLException {
+        return ticketDAO.getTicketsPage(after, pageSize);
+    }
+    
+    /**
+     * Search past conversations by message content, best match first. All words must match;
+     * "quoted text" matches a phrase and word* a prefix. Category and status filters are optional.
+     */
+    public List<ConversationSearchHit> searchConversations(String query, Integer categoryId, Integer statusId,
+                                                           int limit) throws SQLException {
+        return ticketDAO.searchConversations(query, categoryId, statusId, limit);
+    }
+    
+    /**
+     * An agent's inbox: their in-progress tickets, most urgent then oldest first
+     */
+    public Page<TicketSummary> getAgentInbox(int agentId, PageCursor after, int pageSize) throws SQLException {
+        return ticketDAO.getAgentTickets(agentId, 2, after, pageSize); // Status 2 = In Progress
+    }
+    
+    /**
+     * Open tickets of a category that nobody has picked up yet, most urgent then oldest first
+     */
+    public Page<TicketSummary> getUnassignedTickets(int categoryId, PageCursor after, int pageSize) throws SQLException {
+        return ticketDAO.getUnassignedTickets(categoryId, after, pageSize);
+    }
+    
+    /**
+     * Escalated tickets that are still open or in progress, most urgent then oldest first
+     */
+    public Page<TicketSummary> getEscalatedTickets(PageCursor after, int pageSize) throws SQLException {
+        return ticketDAO.getEscalatedTickets(after, pageSize);
+    }
+    
     /**
      * Get all customers
      */
@@ -174,6 +752,20 @@ public class HelpDeskService {
         return customerDAO.getAllCustomers();
     }
     
+    /**
+     * Stream all customers to the callback
+     */
+    public void forEachCustomer(RowCallback<Customer> callback) throws SQLException {
+        customerDAO.forEachCustomer(callback);
+    }
+    
+    /**
+     * Get a page of customers ordered by name (pass null for the first page)
+     */
+    public Page<Customer> getCustomersPage(PageCursor after, int pageSize) throws SQLException {
+        return customerDAO.getCustomersPage(after, pageSize);
+    }
+    
     /**
      * Get all agents
      */
@@ -181,6 +773,20 @@ public class HelpDeskService {
         return agentDAO.getAllAgents();
     }
     
+    /**
+     * Stream all agents to the callback
+     */
+    public void forEachAgent(RowCallback<Agent> callback) throws SQLException {
+        agentDAO.forEachAgent(callback);
+    }
+    
+    /**
+     * Get a page of agents ordered by name (pass null for the first page)
+     */
+    public Page<Agent> getAgentsPage(PageCursor after, int pageSize) throws SQLException {
+        return agentDAO.getAgentsPage(after, pageSize);
+    }
+    
     /**
      * Get customer by ID
      */
@@ -195,6 +801,34 @@ public class HelpDeskService {
         return agentDAO.getAgentById(agentId);
     }
     
+    /**
+     * Reload the cached statuses, priorities and categories after changing those tables
+     */
+    public void refreshReferenceData() throws SQLException {
+        ReferenceDataCache.refresh();
+    }
+    
+    /**
+     * Get hit/miss/eviction counters of the customer cache
+     */
+    public CacheStats getCustomerCacheStats() {
+        return customerDAO.getCacheStats();
+    }
+    
+    /**
+     * Get hit/miss/eviction counters of the agent cache
+     */
+    public CacheStats getAgentCacheStats() {
+        return agentDAO.getCacheStats();
+    }
+    
+    /**
+     * Get per-operation query latency and row counts, slowest p99 first
+     */
+    public List<OperationStats> getQueryMetrics() {
+        return QueryMetrics.getDefaultRegistry().getOperations();
+    }
+    
     /**
      * Inner class to hold ticket with conversation details
      */
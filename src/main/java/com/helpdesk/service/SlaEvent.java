@@ -0,0 +1,65 @@
+package com.helpdesk.service;
+
+import com.helpdesk.model.TicketSummary;
+
+import java.sql.Timestamp;
+
+/**
+ * A ticket that is close to (WARNING) or past (BREACH) its category's response or resolution target
+ */
+public class SlaEvent {
+    
+    public enum Target {
+        RESPONSE, RESOLUTION
+    }
+    
+    public enum Stage {
+        WARNING, BREACH
+    }
+    
+    private final TicketSummary ticket;
+    private final Target target;
+    private final Stage stage;
+    private final Timestamp deadline;
+    
+    public SlaEvent(TicketSummary ticket, Target target, Stage stage, Timestamp deadline) {
+        this.ticket = ticket;
+        this.target = target;
+        this.stage = stage;
+        this.deadline = deadline;
+    }
+    
+    // Getters
+    public TicketSummary getTicket() {
+        return ticket;
+    }
+    
+    public int getTicketId() {
+        return ticket.getTicketId();
+    }
+    
+    public Target getTarget() {
+        return target;
+    }
+    
+    public Stage getStage() {
+        return stage;
+    }
+    
+    /**
+     * When the target is (or was) missed: created_at plus the category's target minutes
+     */
+    public Timestamp getDeadline() {
+        return deadline;
+    }
+    
+    @Override
+    public String toString() {
+        return "SlaEvent{" +
+                "ticketId=" + ticket.getTicketId() +
+                ", target=" + target +
+                ", stage=" + stage +
+                ", deadline=" + deadline +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.helpdesk.service;
+
+/**
+ * Receives SLA warnings and breaches from SlaMonitor, after the sweep batch has committed
+ */
+@FunctionalInterface
+public interface SlaListener {
+    void onSlaEvent(SlaEvent event);
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.helpdesk.service;
+
+import com.helpdesk.cache.ReferenceData;
+import com.helpdesk.cache.ReferenceDataCache;
+import com.helpdesk.dao.PageCursor;
+import com.helpdesk.dao.SlaDAO;
+import com.helpdesk.dao.TicketDAO;
+import com.helpdesk.db.TransactionTemplate;
+import com.helpdesk.model.TicketHistoryEntry;
+import com.helpdesk.model.TicketSummary;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Finds tickets that are about to miss or have missed their category's SLA targets
+ * (TicketCategories.max_response_time and max_resolution_time).
+ *
+ * Each sweep runs four checks per category: response warning, response breach, resolution
+ * warning and resolution breach. A check becomes due for a ticket once created_at is older
+ * than the target (or warningFraction of it), so every check only has to scan the tickets
+ * created between its watermark in SlaWatermarks and the current cutoff, a range of
+ * idx_tickets_sla. Breaches set is_escalated; both stages are published to the listeners
+ * once the batch that found them has committed. Each ticket is reported at most once per check.
+ * A check without a watermark starts at now minus the category's longest target, so the first
+ * sweep after a deploy does not scan all of history; older tickets are not reported.
+ */
+public class SlaMonitor {
+    private static final Logger LOG = Logger.getLogger(SlaMonitor.class.getName());
+    
+    public static final double DEFAULT_WARNING_FRACTION = 0.8;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    
+    private final TicketDAO ticketDAO;
+    private final SlaDAO slaDAO;
+    private final TransactionTemplate transactionTemplate;
+    private final TicketHistoryWriter ticketHistory;
+    private final double warningFraction;
+    private final int batchSize;
+    private final List<SlaListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    
+    public SlaMonitor() {
+        this(DEFAULT_WARNING_FRACTION, DEFAULT_BATCH_SIZE);
+    }
+    
+    public SlaMonitor(double warningFraction, int batchSize) {
+        if (warningFraction <= 0 || warningFraction >= 1) {
+            throw new IllegalArgumentException("warningFraction must be between 0 and 1");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.ticketDAO = new TicketDAO();
+        this.slaDAO = new SlaDAO();
+        this.transactionTemplate = new TransactionTemplate();
+        this.ticketHistory = TicketHistoryWriter.getDefault();
+        this.warningFraction = warningFraction;
+        this.batchSize = batchSize;
+    }
+    
+    public void addListener(SlaListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(SlaListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Run a sweep every intervalMillis on a background thread until stop() is called
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            throw new IllegalStateException("SLA monitor is already running");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sla-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runSweep();
+            } catch (SQLException e) {
+                LOG.log(Level.WARNING, "SLA sweep failed", e);
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    /**
+     * Run every check for every category once; returns the number of events published
+     */
+    public int runSweep() throws SQLException {
+        // Compare against the database clock, which stamped created_at
+        return runSweep(transactionTemplate.execute(slaDAO::getDatabaseTime));
+    }
+    
+    synchronized int runSweep(LocalDateTime now) throws SQLException {
+        ReferenceData referenceData = ReferenceDataCache.get();
+        int published = 0;
+        for (int categoryId = 1; categoryId < referenceData.getCategoryIdLimit(); categoryId++) {
+            if (!referenceData.hasCategory(categoryId)) {
+                continue;
+            }
+            long responseMinutes = referenceData.getMaxResponseMinutes(categoryId);
+            long resolutionMinutes = referenceData.getMaxResolutionMinutes(categoryId);
+            long longestMinutes = Math.max(responseMinutes, resolutionMinutes);
+            PageCursor seed = new PageCursor(Timestamp.valueOf(now.minusMinutes(longestMinutes)), 0);
+            published += sweep(now, seed, categoryId, SlaEvent.Target.RESPONSE, SlaEvent.Stage.WARNING, responseMinutes);
+            published += sweep(now, seed, categoryId, SlaEvent.Target.RESPONSE, SlaEvent.Stage.BREACH, responseMinutes);
+            published += sweep(now, seed, categoryId, SlaEvent.Target.RESOLUTION, SlaEvent.Stage.WARNING, resolutionMinutes);
+            published += sweep(now, seed, categoryId, SlaEvent.Target.RESOLUTION, SlaEvent.Stage.BREACH, resolutionMinutes);
+        }
+        return published;
+    }
+    
+    /**
+     * Walk one check forward from its watermark (or the seed, before its first run) to the cutoff,
+     * batchSize tickets per transaction
+     */
+    private int sweep(LocalDateTime now, PageCursor seed, int categoryId, SlaEvent.Target target, SlaEvent.Stage stage,
+                      long targetMinutes) throws SQLException {
+        if (targetMinutes <= 0) {
+            return 0;
+        }
+        long targetSeconds = targetMinutes * 60;
+        long dueAfterSeconds = stage == SlaEvent.Stage.BREACH ? targetSeconds : Math.round(targetSeconds * warningFraction);
+        Timestamp cutoff = Timestamp.valueOf(now.minusSeconds(dueAfterSeconds));
+        String check = target + "_" + stage;
+        
+        int published = 0;
+        boolean more = true;
+        while (more) {
+            List<SlaEvent> events = new ArrayList<>();
+            List<TicketHistoryEntry> history = new ArrayList<>();
+            more = transactionTemplate.execute(conn -> {
+                events.clear();
+                history.clear();
+                PageCursor watermark = slaDAO.lockWatermark(conn, categoryId, check);
+                PageCursor after = watermark != null ? watermark : seed;
+                List<TicketSummary> batch = ticketDAO.findSlaCandidates(
+                        conn, categoryId, target == SlaEvent.Target.RESPONSE, after, cutoff, batchSize);
+                
+                if (stage == SlaEvent.Stage.BREACH && !batch.isEmpty()) {
+                    List<Integer> ticketIds = new ArrayList<>(batch.size());
+                    for (TicketSummary ticket : batch) {
+                        ticketIds.add(ticket.getTicketId());
+                    }
+                    // The candidates were read without locks; record only the escalations the update made
+                    for (int ticketId : ticketDAO.escalateTickets(conn, ticketIds, batchSize)) {
+                        history.add(new TicketHistoryEntry(ticketId, null, TicketHistoryEntry.ESCALATED, 0, 1));
+                    }
+                    ticketHistory.writeInTransaction(conn, history);
+                }
+                for (TicketSummary ticket : batch) {
+                    Timestamp deadline = new Timestamp(ticket.getCreatedAt().getTime() + targetSeconds * 1000);
+                    events.add(new SlaEvent(ticket, target, stage, deadline));
+                }
+                
+                boolean full = batch.size() == batchSize;
+                PageCursor next = full
+                        ? new PageCursor(batch.get(batch.size() - 1).getCreatedAt(), batch.get(batch.size() - 1).getTicketId())
+                        // Everything up to the cutoff has been seen
+                        : new PageCursor(cutoff, Integer.MAX_VALUE);
+                if (isAfter(next, after)) {
+                    slaDAO.saveWatermark(conn, categoryId, check, next);
+                }
+                return full;
+            });
+            ticketHistory.committed(history);
+            publish(events);
+            published += events.size();
+        }
+        return published;
+    }
+    
+    // A raised target moves the cutoff back; the watermark never does, so tickets are not reported twice
+    private static boolean isAfter(PageCursor position, PageCursor watermark) {
+        int byTime = ((Timestamp) position.getSortKey()).compareTo((Timestamp) watermark.getSortKey());
+        return byTime > 0 || (byTime == 0 && position.getId() > watermark.getId());
+    }
+    
+    private void publish(List<SlaEvent> events) {
+        for (SlaEvent event : events) {
+            for (SlaListener listener : listeners) {
+                try {
+                    listener.onSlaEvent(event);
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "SLA listener failed for ticket " + event.getTicketId(), e);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,347 @@
+package com.helpdesk.service;
+
+import com.helpdesk.cache.ReferenceData;
+import com.helpdesk.cache.ReferenceDataCache;
+import com.helpdesk.dao.SlaDAO;
+import com.helpdesk.dao.TicketDAO;
+import com.helpdesk.db.TransactionTemplate;
+import com.helpdesk.model.TicketHistoryEntry;
+import com.helpdesk.model.TicketSummary;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Escalates tickets at the moment they miss their category's response or resolution target.
+ *
+ * Every open ticket has up to two timers in a TimerWheel: one for its response deadline while it
+ * is unassigned and one for its resolution deadline until it is resolved or closed. rebuild()
+ * fills a new wheel from the open tickets, for example after a restart, and swaps it in. After that,
+ * HelpDeskService keeps it in step as tickets are created, assigned, resolved, closed and reopened; changes
+ * made while a rebuild is reading are replayed onto the new wheel. Deadlines always come from
+ * Tickets.created_at, so a timer set at creation matches the one a rebuild would set.
+ *
+ * When timers fire, the tickets are re-read in one batch. Only those that still owe the response
+ * or resolution are escalated and published as BREACH events, so a timer left behind by a change
+ * in another process does no harm. SlaMonitor can still run as a slower catch-up sweep and for warnings.
+ */
+public class SlaScheduler {
+    public static final long DEFAULT_TICK_MILLIS = 1000;
+    
+    private static final Logger LOG = Logger.getLogger(SlaScheduler.class.getName());
+    private static final int BATCH_SIZE = 500;
+    
+    private final TicketDAO ticketDAO;
+    private final SlaDAO slaDAO;
+    private final TransactionTemplate transactionTemplate;
+    private final TicketHistoryWriter ticketHistory;
+    private final long tickMillis;
+    private final List<SlaListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    
+    // Guarded by this; changesDuringRebuild is non-null while a rebuild is reading the database
+    private TimerWheel wheel;
+    private List<Consumer<TimerWheel>> changesDuringRebuild = null;
+    // Held by rebuild and fireDue, so timers do not fire from a wheel that is being replaced
+    private final Object rebuildLock = new Object();
+    
+    public SlaScheduler() {
+        this(DEFAULT_TICK_MILLIS);
+    }
+    
+    public SlaScheduler(long tickMillis) {
+        this.ticketDAO = new TicketDAO();
+        this.slaDAO = new SlaDAO();
+        this.transactionTemplate = new TransactionTemplate();
+        this.ticketHistory = TicketHistoryWriter.getDefault();
+        this.wheel = new TimerWheel(tickMillis, System.currentTimeMillis());
+        this.tickMillis = tickMillis;
+    }
+    
+    public void addListener(SlaListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(SlaListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Seed the wheel from the database, then fire due timers every tick on a background thread
+     */
+    public synchronized void start() throws SQLException {
+        if (scheduler != null) {
+            throw new IllegalStateException("SLA scheduler is already running");
+        }
+        rebuild();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sla-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                fireDue(System.currentTimeMillis());
+            } catch (SQLException e) {
+                LOG.log(Level.WARNING, "SLA escalation failed", e);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    /**
+     * Replace the pending timers with one per SLA target still owed by an open ticket.
+     * A target whose deadline has passed on a ticket that is already escalated was reported
+     * before the restart, so it is not scheduled again. Returns the number of timers scheduled.
+     */
+    public int rebuild() throws SQLException {
+        // Compare against the database clock, which stamped created_at
+        return rebuild(Timestamp.valueOf(transactionTemplate.execute(slaDAO::getDatabaseTime)).getTime());
+    }
+    
+    int rebuild(long nowMillis) throws SQLException {
+        synchronized (rebuildLock) {
+            ReferenceData referenceData = ReferenceDataCache.get();
+            TimerWheel fresh = new TimerWheel(tickMillis, System.currentTimeMillis());
+            synchronized (this) {
+                changesDuringRebuild = new ArrayList<>();
+            }
+            try {
+                // Stream outside the lock so ticket changes are not blocked on the database
+                ticketDAO.streamOpenTickets(ticket -> {
+                    if (ticket.getAgentId() == null && ticket.getStatusId() == 1) {
+                        scheduleUnlessReported(fresh, ticket, SlaEvent.Target.RESPONSE,
+                                               referenceData.getMaxResponseMinutes(ticket.getCategoryId()), nowMillis);
+                    }
+                    scheduleUnlessReported(fresh, ticket, SlaEvent.Target.RESOLUTION,
+                                           referenceData.getMaxResolutionMinutes(ticket.getCategoryId()), nowMillis);
+                });
+                synchronized (this) {
+                    for (Consumer<TimerWheel> change : changesDuringRebuild) {
+                        change.accept(fresh);
+                    }
+                    wheel = fresh;
+                }
+            } finally {
+                synchronized (this) {
+                    changesDuringRebuild = null;
+                }
+            }
+            return fresh.size();
+        }
+    }
+    
+    /**
+     * Schedule both targets for each new ticket, timed from the created_at read in its creating
+     * transaction. Called after commit, so a failure is logged rather than thrown; the next
+     * rebuild or SlaMonitor sweep covers a ticket whose timers were not set.
+     */
+    public void ticketsCreated(Collection<TicketSummary> tickets) {
+        if (tickets.isEmpty()) {
+            return;
+        }
+        try {
+            ReferenceData referenceData = ReferenceDataCache.get();
+            apply(timers -> {
+                for (TicketSummary ticket : tickets) {
+                    long createdAt = ticket.getCreatedAt().getTime();
+                    schedule(timers, ticket.getTicketId(), SlaEvent.Target.RESPONSE, createdAt,
+                             referenceData.getMaxResponseMinutes(ticket.getCategoryId()));
+                    schedule(timers, ticket.getTicketId(), SlaEvent.Target.RESOLUTION, createdAt,
+                             referenceData.getMaxResolutionMinutes(ticket.getCategoryId()));
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Could not schedule SLA timers for " + tickets.size() + " new tickets", e);
+        }
+    }
+    
+    /**
+     * An assigned ticket has had its response
+     */
+    public void ticketAssigned(int ticketId) {
+        apply(timers -> timers.cancel(keyOf(ticketId, SlaEvent.Target.RESPONSE)));
+    }
+    
+    /**
+     * A resolved or closed ticket that was reopened owes its resolution again, still timed from
+     * created_at. Like ticketsCreated, a failure is logged and left to the next rebuild.
+     */
+    public void ticketReopened(int ticketId, int categoryId, Timestamp createdAt) {
+        try {
+            long targetMinutes = ReferenceDataCache.get().getMaxResolutionMinutes(categoryId);
+            apply(timers -> schedule(timers, ticketId, SlaEvent.Target.RESOLUTION, createdAt.getTime(), targetMinutes));
+        } catch (SQLException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Could not schedule the SLA resolution timer for reopened ticket " + ticketId, e);
+        }
+    }
+    
+    /**
+     * A resolved or closed ticket owes nothing
+     */
+    public void ticketFinished(int ticketId) {
+        apply(timers -> {
+            timers.cancel(keyOf(ticketId, SlaEvent.Target.RESPONSE));
+            timers.cancel(keyOf(ticketId, SlaEvent.Target.RESOLUTION));
+        });
+    }
+    
+    /**
+     * Deadline of the pending timer, or -1 if none is pending
+     */
+    public synchronized long getDeadline(int ticketId, SlaEvent.Target target) {
+        return wheel.deadlineOf(keyOf(ticketId, target));
+    }
+    
+    public synchronized int getPendingCount() {
+        return wheel.size();
+    }
+    
+    // Apply a change to the current wheel, and again to the one a running rebuild is filling
+    private synchronized void apply(Consumer<TimerWheel> change) {
+        change.accept(wheel);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+    
+    /**
+     * Fire every timer due by nowMillis: escalate the tickets that still owe the target and publish
+     * a BREACH event for each. Returns the number of events published.
+     */
+    int fireDue(long nowMillis) throws SQLException {
+        synchronized (rebuildLock) {
+            return fire(nowMillis);
+        }
+    }
+    
+    private int fire(long nowMillis) throws SQLException {
+        List<long[]> due = new ArrayList<>();
+        TimerWheel current;
+        synchronized (this) {
+            current = wheel;
+        }
+        current.advance(nowMillis, (key, deadline) -> due.add(new long[] { key, deadline }));
+        
+        int published = 0;
+        for (int from = 0; from < due.size(); from += BATCH_SIZE) {
+            List<long[]> batch = due.subList(from, Math.min(from + BATCH_SIZE, due.size()));
+            List<SlaEvent> events;
+            try {
+                events = escalate(batch);
+            } catch (SQLException e) {
+                // Put the rest back so the next tick tries again
+                for (long[] timer : due.subList(from, due.size())) {
+                    current.schedule(timer[0], timer[1]);
+                }
+                throw e;
+            }
+            publish(events);
+            published += events.size();
+        }
+        return published;
+    }
+    
+    private List<SlaEvent> escalate(List<long[]> timers) throws SQLException {
+        Set<Integer> ticketIds = new LinkedHashSet<>();
+        for (long[] timer : timers) {
+            ticketIds.add(ticketIdOf(timer[0]));
+        }
+        
+        List<SlaEvent> events = new ArrayList<>();
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        transactionTemplate.execute(conn -> {
+            events.clear();
+            history.clear();
+            Map<Integer, TicketSummary> tickets = ticketDAO.getTicketSummariesByIds(conn, ticketIds, BATCH_SIZE);
+            
+            Set<Integer> breached = new LinkedHashSet<>();
+            for (long[] timer : timers) {
+                TicketSummary ticket = tickets.get(ticketIdOf(timer[0]));
+                SlaEvent.Target target = targetOf(timer[0]);
+                if (ticket != null && stillOwed(ticket, target)) {
+                    // Both targets can fire for one ticket; it is escalated once
+                    breached.add(ticket.getTicketId());
+                    events.add(new SlaEvent(ticket, target, SlaEvent.Stage.BREACH, new Timestamp(timer[1])));
+                }
+            }
+            if (!breached.isEmpty()) {
+                // The tickets were read without locks; record only the escalations the update made
+                for (int ticketId : ticketDAO.escalateTickets(conn, breached, BATCH_SIZE)) {
+                    history.add(new TicketHistoryEntry(ticketId, null, TicketHistoryEntry.ESCALATED, 0, 1));
+                }
+                ticketHistory.writeInTransaction(conn, history);
+            }
+            return null;
+        });
+        ticketHistory.committed(history);
+        return events;
+    }
+    
+    private static boolean stillOwed(TicketSummary ticket, SlaEvent.Target target) {
+        if (target == SlaEvent.Target.RESPONSE) {
+            return ticket.getAgentId() == null && ticket.getStatusId() == 1;
+        }
+        return ticket.getStatusId() == 1 || ticket.getStatusId() == 2;
+    }
+    
+    private static void schedule(TimerWheel wheel, int ticketId, SlaEvent.Target target, long createdAtMillis,
+                                 long targetMinutes) {
+        if (targetMinutes > 0) {
+            wheel.schedule(keyOf(ticketId, target), createdAtMillis + targetMinutes * 60 * 1000);
+        }
+    }
+    
+    private static void scheduleUnlessReported(TimerWheel wheel, TicketSummary ticket, SlaEvent.Target target,
+                                               long targetMinutes, long nowMillis) {
+        long createdAt = ticket.getCreatedAt().getTime();
+        if (ticket.isEscalated() && createdAt + targetMinutes * 60 * 1000 <= nowMillis) {
+            return;
+        }
+        schedule(wheel, ticket.getTicketId(), target, createdAt, targetMinutes);
+    }
+    
+    // One key per ticket and target: the ticket ID with the target in the low bit
+    private static long keyOf(int ticketId, SlaEvent.Target target) {
+        return ((long) ticketId << 1) | target.ordinal();
+    }
+    
+    private static int ticketIdOf(long key) {
+        return (int) (key >>> 1);
+    }
+    
+    private static SlaEvent.Target targetOf(long key) {
+        return SlaEvent.Target.values()[(int) (key & 1)];
+    }
+    
+    private void publish(List<SlaEvent> events) {
+        for (SlaEvent event : events) {
+            for (SlaListener listener : listeners) {
+                try {
+                    listener.onSlaEvent(event);
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "SLA listener failed for ticket " + event.getTicketId(), e);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
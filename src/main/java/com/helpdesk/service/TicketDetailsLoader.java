@@ -0,0 +1,113 @@
+package com.helpdesk.service;
+
+import com.helpdesk.dao.TicketDAO;
+import com.helpdesk.db.DatabaseConnection;
+import com.helpdesk.model.Ticket;
+import com.helpdesk.model.TicketConversation;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Request-scoped batch loader for ticket details (DataLoader style).
+ *
+ * Callers queue the ticket IDs they will need with load() and then call dispatch(), which
+ * fetches all queued tickets and their conversations with two IN queries per chunk on one
+ * connection, instead of two queries per ticket. IDs already loaded (or known not to exist)
+ * are not fetched again, so create one loader per request and let it go afterwards; it is
+ * not thread-safe and does not see changes made after a ticket was loaded.
+ */
+public class TicketDetailsLoader {
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    
+    private final TicketDAO ticketDAO;
+    private final int chunkSize;
+    private final Map<Integer, HelpDeskService.TicketDetails> loaded = new HashMap<>();
+    private final Set<Integer> notFound = new LinkedHashSet<>();
+    private final Set<Integer> queued = new LinkedHashSet<>();
+    
+    public TicketDetailsLoader(TicketDAO ticketDAO) {
+        this(ticketDAO, DEFAULT_CHUNK_SIZE);
+    }
+    
+    public TicketDetailsLoader(TicketDAO ticketDAO, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.ticketDAO = ticketDAO;
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * Queue a ticket for the next dispatch(); duplicates and already loaded tickets are ignored
+     */
+    public void load(int ticketId) {
+        if (!loaded.containsKey(ticketId) && !notFound.contains(ticketId)) {
+            queued.add(ticketId);
+        }
+    }
+    
+    /**
+     * Fetch every queued ticket with its conversation
+     */
+    public void dispatch() throws SQLException {
+        if (queued.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(queued);
+        
+        Map<Integer, Ticket> tickets;
+        Map<Integer, List<TicketConversation>> conversations;
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            tickets = ticketDAO.getTicketsByIds(conn, ids, chunkSize);
+            conversations = ticketDAO.getConversationHistories(conn, tickets.keySet(), chunkSize);
+        }
+        
+        for (Integer ticketId : ids) {
+            Ticket ticket = tickets.get(ticketId);
+            if (ticket == null) {
+                notFound.add(ticketId);
+            } else {
+                loaded.put(ticketId, new HelpDeskService.TicketDetails(ticket, conversations.get(ticketId)));
+            }
+        }
+        queued.clear();
+    }
+    
+    /**
+     * Queue, dispatch and return the details of the given tickets in the order given.
+     * Tickets that do not exist are absent from the map.
+     */
+    public Map<Integer, HelpDeskService.TicketDetails> loadMany(Collection<Integer> ticketIds) throws SQLException {
+        for (Integer ticketId : ticketIds) {
+            load(ticketId);
+        }
+        dispatch();
+        
+        Map<Integer, HelpDeskService.TicketDetails> result = new LinkedHashMap<>();
+        for (Integer ticketId : ticketIds) {
+            HelpDeskService.TicketDetails details = loaded.get(ticketId);
+            if (details != null) {
+                result.put(ticketId, details);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Details of one ticket, dispatching anything still queued first; null if it does not exist
+     */
+    public HelpDeskService.TicketDetails get(int ticketId) throws SQLException {
+        load(ticketId);
+        dispatch();
+        return loaded.get(ticketId);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,276 @@
+package com.helpdesk.service;
+
+import com.helpdesk.dao.TicketHistoryDAO;
+import com.helpdesk.db.TransactionTemplate;
+import com.helpdesk.model.TicketHistoryEntry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appends ticket changes to the TicketHistory audit trail.
+ *
+ * By default history is written asynchronously: changes are handed over after their transaction
+ * commits, queued in a bounded queue and inserted by a background thread in batches of up to
+ * batchSize rows, so audit writes add no statements to the request's transaction. A batch that
+ * fails is retried a few times and then dropped with an error. When the queue is full the caller
+ * writes its own changes in a separate transaction rather than blocking; that write is tried once,
+ * without retry backoff, so a struggling database cannot hold the request thread.
+ *
+ * In strict mode the rows are inserted inside the transaction that made the change, so a
+ * change and its history commit or roll back together; use it when no audit row may be lost.
+ *
+ * Callers collect the changes of one transaction, call writeInTransaction() before it commits
+ * and committed() after it has.
+ */
+public class TicketHistoryWriter {
+    private static final Logger LOG = Logger.getLogger(TicketHistoryWriter.class.getName());
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+    // How often an idle writer checks for close(), and how long close() waits for the queue to drain
+    private static final long POLL_MILLIS = 100;
+    private static final long CLOSE_TIMEOUT_MILLIS = 30000;
+    
+    private static final TicketHistoryWriter DEFAULT = fromSystemProperties();
+    
+    private final TicketHistoryDAO historyDAO;
+    private final TransactionTemplate transactionTemplate;
+    // Used on the caller's thread: a single attempt, no sleeping between retries
+    private final TransactionTemplate callerTransactionTemplate;
+    private final boolean strict;
+    private final int batchSize;
+    private final BlockingQueue<TicketHistoryEntry> queue;
+    
+    // Queued or being written; flush() waits for this to reach zero
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final Object idle = new Object();
+    private volatile ExecutorService writer;
+    private volatile boolean closed = false;
+    
+    public TicketHistoryWriter(boolean strict, int queueCapacity, int batchSize) {
+        if (queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("queueCapacity and batchSize must be at least 1");
+        }
+        this.historyDAO = new TicketHistoryDAO();
+        this.transactionTemplate = new TransactionTemplate();
+        this.callerTransactionTemplate = new TransactionTemplate(1, 0);
+        this.strict = strict;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+    
+    /**
+     * Asynchronous with a 10000-row queue and 500-row batches, overridden by -Dhelpdesk.history.strict,
+     * -Dhelpdesk.history.queueCapacity and -Dhelpdesk.history.batchSize
+     */
+    public static TicketHistoryWriter fromSystemProperties() {
+        return new TicketHistoryWriter(Boolean.getBoolean("helpdesk.history.strict"),
+                                       Integer.getInteger("helpdesk.history.queueCapacity", 10000),
+                                       Integer.getInteger("helpdesk.history.batchSize", 500));
+    }
+    
+    /**
+     * The writer shared by the service layer and the SLA escalators
+     */
+    public static TicketHistoryWriter getDefault() {
+        return DEFAULT;
+    }
+    
+    public boolean isStrict() {
+        return strict;
+    }
+    
+    /**
+     * Call inside the transaction that made the changes; writes them there in strict mode only
+     */
+    public void writeInTransaction(Connection conn, List<TicketHistoryEntry> entries) throws SQLException {
+        if (strict && !entries.isEmpty()) {
+            historyDAO.insertHistory(conn, entries);
+        }
+    }
+    
+    /**
+     * Call after the transaction has committed; queues the changes unless in strict mode.
+     * Never throws: the change itself is already durable.
+     */
+    public void committed(List<TicketHistoryEntry> entries) {
+        if (strict || entries.isEmpty()) {
+            return;
+        }
+        List<TicketHistoryEntry> overflow = null;
+        // Locked against close(), so nothing is queued after the writer has been told to finish
+        synchronized (this) {
+            if (!closed && (writer != null || startWriter() != null)) {
+                for (TicketHistoryEntry entry : entries) {
+                    pending.incrementAndGet();
+                    if (!queue.offer(entry)) {
+                        pending.decrementAndGet();
+                        if (overflow == null) {
+                            overflow = new ArrayList<>();
+                        }
+                        overflow.add(entry);
+                    }
+                }
+            } else {
+                overflow = new ArrayList<>(entries);
+            }
+        }
+        if (overflow != null) {
+            // The writer cannot keep up (or is closed): write on the caller's thread instead
+            overflowCount.addAndGet(overflow.size());
+            write(callerTransactionTemplate, overflow, 1);
+        }
+    }
+    
+    /**
+     * Wait until everything queued so far has been written (or given up on)
+     */
+    public void flush() {
+        synchronized (idle) {
+            while (pending.get() > 0 && writer != null) {
+                try {
+                    idle.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stop the background writer once it has written what is still queued
+     */
+    public void close() {
+        ExecutorService current;
+        synchronized (this) {
+            closed = true;
+            current = writer;
+        }
+        if (current != null) {
+            // Not interrupted: the writer empties the queue, finishing its batch and retries, then stops
+            current.shutdown();
+            try {
+                if (!current.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    LOG.warning("Ticket history writer still busy after " + CLOSE_TIMEOUT_MILLIS + " ms; writing the rest on close");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Left over only if the writer timed out; draining alongside it is safe
+        List<TicketHistoryEntry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+        writer = null;
+        synchronized (idle) {
+            idle.notifyAll();
+        }
+    }
+    
+    public long getPendingCount() {
+        return pending.get();
+    }
+    
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+    
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+    
+    /**
+     * Rows written on the caller's thread because the queue was full
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+    
+    // Started with the first queued change; once closed, callers write their own changes
+    private synchronized ExecutorService startWriter() {
+        if (writer == null && !closed) {
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "ticket-history-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            writer.execute(this::drain);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::close, "ticket-history-drain"));
+        }
+        return writer;
+    }
+    
+    // Runs until close() and an empty queue
+    private void drain() {
+        List<TicketHistoryEntry> batch = new ArrayList<>(batchSize);
+        while (true) {
+            TicketHistoryEntry first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+    
+    private void writeBatch(List<TicketHistoryEntry> batch) {
+        write(transactionTemplate, batch, MAX_ATTEMPTS);
+        if (pending.addAndGet(-batch.size()) <= 0) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+    
+    private void write(TransactionTemplate template, List<TicketHistoryEntry> batch, int maxAttempts) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                template.execute(conn -> {
+                    historyDAO.insertHistory(conn, batch);
+                    return null;
+                });
+                writtenCount.addAndGet(batch.size());
+                return;
+            } catch (SQLException e) {
+                if (attempt >= maxAttempts) {
+                    failedCount.addAndGet(batch.size());
+                    LOG.log(Level.WARNING, "Dropped " + batch.size() + " ticket history rows", e);
+                    return;
+                }
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+                } catch (InterruptedException ie) {
+                    // Make the last attempt now and let the caller see the interrupt
+                    Thread.currentThread().interrupt();
+                    attempt = maxAttempts - 1;
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
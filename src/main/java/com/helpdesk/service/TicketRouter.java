@@ -0,0 +1,281 @@
+package com.helpdesk.service;
+
+import com.helpdesk.dao.AgentDAO;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * In-memory index of which agents can take tickets of each category.
+ *
+ * For every category the router keeps the skilled, enabled agents in a set ordered by
+ * open-ticket load, so picking the least-loaded agent is a walk from the head of that set
+ * (skipping agents outside their availability window) instead of a join query per ticket.
+ * The index is loaded from AgentSkills, Agents and AgentMetrics, kept in step by
+ * HelpDeskService after each committed change, and reloaded every RELOAD_INTERVAL_MILLIS
+ * to pick up changes made by other processes. Changes made while a reload is querying are
+ * applied to the old state and replayed onto the new one, so none are lost.
+ */
+public class TicketRouter {
+    private static final long RELOAD_INTERVAL_MILLIS = 60 * 1000;
+    
+    private final AgentDAO agentDAO;
+    
+    private final Map<Integer, AgentState> agents = new HashMap<>();
+    private final Map<Integer, TreeSet<AgentState>> agentsByCategory = new HashMap<>();
+    private boolean loaded = false;
+    private long loadedAt = 0;
+    // Set while a reload is querying; changes made meanwhile are kept to replay on the new state
+    private List<Runnable> changesDuringReload = null;
+    private final Object reloadLock = new Object();
+    
+    private static final Comparator<AgentState> LEAST_LOADED_FIRST =
+            Comparator.<AgentState>comparingInt(agent -> agent.openTickets).thenComparingInt(agent -> agent.agentId);
+    
+    public TicketRouter(AgentDAO agentDAO) {
+        this.agentDAO = agentDAO;
+    }
+    
+    /**
+     * Rebuild the index from the database
+     */
+    public void reload() throws SQLException {
+        synchronized (reloadLock) {
+            synchronized (this) {
+                changesDuringReload = new ArrayList<>();
+            }
+            try {
+                // Query outside the routing lock so routing is not blocked on the database
+                install(agentDAO.getRoutingCandidates(), agentDAO.getAllAgentSkills());
+            } finally {
+                synchronized (this) {
+                    changesDuringReload = null;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reload if the index has never been loaded or is older than RELOAD_INTERVAL_MILLIS
+     */
+    public void reloadIfStale() throws SQLException {
+        if (needsReload()) {
+            synchronized (reloadLock) {
+                if (needsReload()) {
+                    reload();
+                }
+            }
+        }
+    }
+    
+    private synchronized void install(List<Object[]> candidates, List<int[]> skills) {
+        agents.clear();
+        agentsByCategory.clear();
+        for (Object[] row : candidates) {
+            AgentState agent = new AgentState((Integer) row[0]);
+            agent.availableFrom = toMillis((Timestamp) row[1], Long.MIN_VALUE);
+            agent.availableTo = toMillis((Timestamp) row[2], Long.MAX_VALUE);
+            agent.enabled = (Boolean) row[3];
+            agent.openTickets = (Integer) row[4];
+            agents.put(agent.agentId, agent);
+        }
+        for (int[] skill : skills) {
+            AgentState agent = agents.get(skill[0]);
+            if (agent != null) {
+                agent.skills.add(skill[1]);
+            }
+        }
+        for (AgentState agent : agents.values()) {
+            index(agent);
+        }
+        loaded = true;
+        loadedAt = System.currentTimeMillis();
+        for (Runnable change : changesDuringReload) {
+            change.run();
+        }
+    }
+    
+    /**
+     * Pick the least-loaded agent skilled in the category who is currently available,
+     * and count the ticket against them. Returns -1 if no agent can take it.
+     * Call release() if the assignment is not committed.
+     * Never touches the database, so it is safe inside a transaction; call
+     * reloadIfStale() beforehand to refresh the index.
+     */
+    public synchronized int reserve(int categoryId) {
+        TreeSet<AgentState> candidates = agentsByCategory.get(categoryId);
+        if (candidates == null) {
+            return -1;
+        }
+        long now = System.currentTimeMillis();
+        for (AgentState agent : candidates) {
+            if (agent.availableFrom <= now && now <= agent.availableTo) {
+                int agentId = agent.agentId;
+                apply(() -> adjustLoad(agentId, 1));
+                return agentId;
+            }
+        }
+        return -1;
+    }
+    
+    private synchronized boolean needsReload() {
+        return !loaded || System.currentTimeMillis() - loadedAt > RELOAD_INTERVAL_MILLIS;
+    }
+    
+    /**
+     * A ticket was assigned to the agent outside reserve()
+     */
+    public synchronized void ticketAssigned(int agentId) {
+        apply(() -> adjustLoad(agentId, 1));
+    }
+    
+    /**
+     * A ticket held by the agent was resolved, closed or reassigned, or a reservation was not used
+     */
+    public synchronized void release(int agentId) {
+        apply(() -> adjustLoad(agentId, -1));
+    }
+    
+    public synchronized void agentRegistered(int agentId, Timestamp availableFrom, Timestamp availableTo) {
+        if (!loaded) {
+            return;
+        }
+        apply(() -> {
+            remove(agentId);
+            AgentState agent = new AgentState(agentId);
+            agent.availableFrom = toMillis(availableFrom, Long.MIN_VALUE);
+            agent.availableTo = toMillis(availableTo, Long.MAX_VALUE);
+            agent.enabled = true;
+            agents.put(agentId, agent);
+        });
+    }
+    
+    /**
+     * The agent's availability window changed
+     */
+    public synchronized void agentUpdated(int agentId, Timestamp availableFrom, Timestamp availableTo) {
+        apply(() -> {
+            AgentState agent = agents.get(agentId);
+            if (agent != null) {
+                agent.availableFrom = toMillis(availableFrom, Long.MIN_VALUE);
+                agent.availableTo = toMillis(availableTo, Long.MAX_VALUE);
+            }
+        });
+    }
+    
+    public synchronized void agentDeleted(int agentId) {
+        apply(() -> remove(agentId));
+    }
+    
+    public synchronized void skillAdded(int agentId, int categoryId) {
+        apply(() -> {
+            AgentState agent = agents.get(agentId);
+            if (agent != null && agent.skills.add(categoryId) && agent.enabled) {
+                agentsByCategory.computeIfAbsent(categoryId, id -> new TreeSet<>(LEAST_LOADED_FIRST)).add(agent);
+            }
+        });
+    }
+    
+    public synchronized void skillRemoved(int agentId, int categoryId) {
+        apply(() -> {
+            AgentState agent = agents.get(agentId);
+            if (agent != null && agent.skills.remove(categoryId)) {
+                TreeSet<AgentState> candidates = agentsByCategory.get(categoryId);
+                if (candidates != null) {
+                    candidates.remove(agent);
+                }
+            }
+        });
+    }
+    
+    /**
+     * The agent's AgentMetrics.is_assigned flag (accepting new tickets) changed
+     */
+    public synchronized void availabilityChanged(int agentId, boolean enabled) {
+        apply(() -> {
+            AgentState agent = agents.get(agentId);
+            if (agent != null && agent.enabled != enabled) {
+                unindex(agent);
+                agent.enabled = enabled;
+                index(agent);
+            }
+        });
+    }
+    
+    /**
+     * Current open-ticket count the router holds for an agent, or -1 if unknown
+     */
+    public synchronized int getOpenTickets(int agentId) {
+        AgentState agent = agents.get(agentId);
+        return agent == null ? -1 : agent.openTickets;
+    }
+    
+    // Apply a change to the current state, and keep it to replay if a reload is querying
+    private void apply(Runnable change) {
+        change.run();
+        if (changesDuringReload != null) {
+            changesDuringReload.add(change);
+        }
+    }
+    
+    // The sets are ordered by load, so an agent must be taken out before its load changes
+    private void adjustLoad(int agentId, int delta) {
+        AgentState agent = agents.get(agentId);
+        if (agent == null || agent.openTickets + delta < 0) {
+            return;
+        }
+        unindex(agent);
+        agent.openTickets += delta;
+        index(agent);
+    }
+    
+    private void remove(int agentId) {
+        AgentState agent = agents.remove(agentId);
+        if (agent != null) {
+            unindex(agent);
+        }
+    }
+    
+    private void index(AgentState agent) {
+        if (!agent.enabled) {
+            return;
+        }
+        for (int categoryId : agent.skills) {
+            agentsByCategory.computeIfAbsent(categoryId, id -> new TreeSet<>(LEAST_LOADED_FIRST)).add(agent);
+        }
+    }
+    
+    private void unindex(AgentState agent) {
+        for (int categoryId : agent.skills) {
+            TreeSet<AgentState> candidates = agentsByCategory.get(categoryId);
+            if (candidates != null) {
+                candidates.remove(agent);
+            }
+        }
+    }
+    
+    private static long toMillis(Timestamp timestamp, long ifNull) {
+        return timestamp == null ? ifNull : timestamp.getTime();
+    }
+    
+    private static final class AgentState {
+        private final int agentId;
+        private final Set<Integer> skills = new HashSet<>();
+        private long availableFrom;
+        private long availableTo;
+        private boolean enabled;
+        private int openTickets;
+        
+        AgentState(int agentId) {
+            this.agentId = agentId;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,288 @@
+package com.helpdesk.service;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timer wheel holding deadlines keyed by long, in primitive arrays.
+ *
+ * Time advances in ticks of tickMillis. Level 0 has one slot per tick for the next 64 ticks,
+ * and each higher level has 64 slots that each cover 64 slots of the level below. A timer is
+ * linked into the slot of the lowest level that reaches its deadline. When a higher-level
+ * slot comes due, its timers cascade down a level. Scheduling and cancelling are O(1), and
+ * advancing is O(1) per tick plus the timers that fire or cascade.
+ *
+ * Timers live in parallel arrays and are linked through int indexes. An open-addressing
+ * index over the same arrays finds a timer by key. A pending timer costs about 36 bytes
+ * and there are no objects per timer. Five levels of 64 slots reach 64^5 ticks, which is
+ * about 34 years at one-second ticks. A timer fires on the first tick at or after its
+ * deadline, so it is never early and at most one tick late.
+ */
+public class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+    private static final int NONE = -1;
+    
+    /**
+     * Receives timers as they fire. Called while the wheel is locked: collect and return,
+     * and do not schedule or cancel timers from the callback.
+     */
+    @FunctionalInterface
+    public interface ExpiryHandler {
+        void onExpired(long key, long deadlineMillis);
+    }
+    
+    private final long tickMillis;
+    private long currentTick;
+    private final int[] heads = new int[LEVELS * SLOTS];
+    
+    // Timer entries; free entries are chained through next and have slot NONE
+    private long[] keys;
+    private long[] deadlines;
+    private int[] next;
+    private int[] prev;
+    private int[] slots;
+    private int freeHead = NONE;
+    private int allocated = 0;
+    private int size = 0;
+    
+    // Key -> entry, linear probing; kept at most half full. Its length is a power of two, so
+    // probes wrap with a mask, which is why the entry capacity is always a power of two as well
+    private int[] index;
+    
+    public TimerWheel(long tickMillis, long startMillis) {
+        this(tickMillis, startMillis, 1024);
+    }
+    
+    /**
+     * initialCapacity is rounded up to a power of two, at least 16
+     */
+    public TimerWheel(long tickMillis, long startMillis, int initialCapacity) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("tickMillis must be at least 1");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+        Arrays.fill(heads, NONE);
+        if (initialCapacity > 1 << 29) {
+            throw new IllegalArgumentException("initialCapacity must be at most " + (1 << 29));
+        }
+        allocate(Integer.highestOneBit(Math.max(16, initialCapacity) - 1) << 1);
+    }
+    
+    /**
+     * Schedule (or move) the timer for key
+     */
+    public synchronized void schedule(long key, long deadlineMillis) {
+        int entry = find(key);
+        if (entry == NONE) {
+            entry = newEntry(key);
+        } else {
+            unlink(entry);
+        }
+        deadlines[entry] = deadlineMillis;
+        // Already due: fire on the next tick, since the current one has been processed
+        place(entry, Math.max(tickOf(deadlineMillis), currentTick + 1));
+    }
+    
+    /**
+     * Cancel the timer for key; returns false if none was pending
+     */
+    public synchronized boolean cancel(long key) {
+        int entry = find(key);
+        if (entry == NONE) {
+            return false;
+        }
+        unlink(entry);
+        release(entry);
+        return true;
+    }
+    
+    /**
+     * Deadline of the pending timer for key, or -1 if there is none
+     */
+    public synchronized long deadlineOf(long key) {
+        int entry = find(key);
+        return entry == NONE ? -1 : deadlines[entry];
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    public synchronized void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(index, NONE);
+        freeHead = NONE;
+        allocated = 0;
+        size = 0;
+    }
+    
+    /**
+     * Move time forward to nowMillis, firing every timer whose deadline has been reached.
+     * Returns the number of timers fired.
+     */
+    public synchronized int advance(long nowMillis, ExpiryHandler handler) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return 0;
+        }
+        
+        int fired = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // At each multiple of 64^level the level's next slot moves down
+            for (int level = 1; level < LEVELS; level++) {
+                int shift = SLOT_BITS * level;
+                if ((currentTick & ((1L << shift) - 1)) != 0) {
+                    break;
+                }
+                cascade(level * SLOTS + (int) ((currentTick >>> shift) & SLOT_MASK));
+            }
+            
+            int slot = (int) (currentTick & SLOT_MASK);
+            int entry = heads[slot];
+            heads[slot] = NONE;
+            while (entry != NONE) {
+                int following = next[entry];
+                long key = keys[entry];
+                long deadline = deadlines[entry];
+                release(entry);
+                handler.onExpired(key, deadline);
+                fired++;
+                entry = following;
+            }
+        }
+        return fired;
+    }
+    
+    private long tickOf(long millis) {
+        return Math.floorDiv(millis + tickMillis - 1, tickMillis);
+    }
+    
+    private void place(int entry, long tick) {
+        long delta = Math.min(tick - currentTick, MAX_DELTA);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        long slotTick = currentTick + delta;
+        int slot = level * SLOTS + (int) ((slotTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        
+        slots[entry] = slot;
+        prev[entry] = NONE;
+        next[entry] = heads[slot];
+        if (heads[slot] != NONE) {
+            prev[heads[slot]] = entry;
+        }
+        heads[slot] = entry;
+    }
+    
+    private void unlink(int entry) {
+        if (prev[entry] == NONE) {
+            heads[slots[entry]] = next[entry];
+        } else {
+            next[prev[entry]] = next[entry];
+        }
+        if (next[entry] != NONE) {
+            prev[next[entry]] = prev[entry];
+        }
+    }
+    
+    private void cascade(int slot) {
+        int entry = heads[slot];
+        heads[slot] = NONE;
+        while (entry != NONE) {
+            int following = next[entry];
+            place(entry, Math.max(tickOf(deadlines[entry]), currentTick));
+            entry = following;
+        }
+    }
+    
+    private int newEntry(long key) {
+        int entry;
+        if (freeHead != NONE) {
+            entry = freeHead;
+            freeHead = next[entry];
+        } else {
+            if (allocated == keys.length) {
+                allocate(keys.length * 2);
+            }
+            entry = allocated++;
+        }
+        keys[entry] = key;
+        size++;
+        insertIndex(entry);
+        return entry;
+    }
+    
+    private void release(int entry) {
+        removeIndex(entry);
+        slots[entry] = NONE;
+        next[entry] = freeHead;
+        freeHead = entry;
+        size--;
+    }
+    
+    private void allocate(int capacity) {
+        int previous = keys == null ? 0 : keys.length;
+        keys = keys == null ? new long[capacity] : Arrays.copyOf(keys, capacity);
+        deadlines = deadlines == null ? new long[capacity] : Arrays.copyOf(deadlines, capacity);
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        prev = prev == null ? new int[capacity] : Arrays.copyOf(prev, capacity);
+        slots = slots == null ? new int[capacity] : Arrays.copyOf(slots, capacity);
+        Arrays.fill(slots, previous, capacity, NONE);
+        
+        index = new int[capacity * 2];
+        Arrays.fill(index, NONE);
+        for (int entry = 0; entry < allocated; entry++) {
+            if (slots[entry] != NONE) {
+                insertIndex(entry);
+            }
+        }
+    }
+    
+    private int home(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (index.length - 1);
+    }
+    
+    private int find(long key) {
+        int mask = index.length - 1;
+        for (int i = home(key); index[i] != NONE; i = (i + 1) & mask) {
+            if (keys[index[i]] == key) {
+                return index[i];
+            }
+        }
+        return NONE;
+    }
+    
+    private void insertIndex(int entry) {
+        int mask = index.length - 1;
+        int i = home(keys[entry]);
+        while (index[i] != NONE) {
+            i = (i + 1) & mask;
+        }
+        index[i] = entry;
+    }
+    
+    // Backward-shift deletion keeps every probe chain unbroken without tombstones
+    private void removeIndex(int entry) {
+        int mask = index.length - 1;
+        int hole = home(keys[entry]);
+        while (index[hole] != entry) {
+            hole = (hole + 1) & mask;
+        }
+        for (int i = (hole + 1) & mask; index[i] != NONE; i = (i + 1) & mask) {
+            int home = home(keys[index[i]]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                index[hole] = index[i];
+                hole = i;
+            }
+        }
+        index[hole] = NONE;
+    }
+}
\ No newline at end of file
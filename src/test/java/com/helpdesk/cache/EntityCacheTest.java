@@ -0,0 +1,91 @@
+package com.helpdesk.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for EntityCache
+ */
+public class EntityCacheTest {
+    
+    private long now;
+    private EntityCache<Integer, String> cache;
+    
+    @Before
+    public void setUp() {
+        now = 0;
+        cache = new EntityCache<>(2, 10, TimeUnit.SECONDS, String::length, () -> now);
+    }
+    
+    @Test
+    public void testHitAndMissCounters() {
+        assertNull("Empty cache should miss", cache.get(1));
+        cache.put(1, "one", cache.generation());
+        assertEquals("Cached value should be returned", "one", cache.get(1));
+        
+        CacheStats stats = cache.stats();
+        assertEquals("Should count one hit", 1, stats.getHits());
+        assertEquals("Should count one miss", 1, stats.getMisses());
+    }
+    
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        cache.put(1, "one", cache.generation());
+        cache.put(2, "two", cache.generation());
+        cache.get(1); // 2 is now least recently used
+        cache.put(3, "three", cache.generation());
+        
+        assertEquals("Recently used entry should stay", "one", cache.get(1));
+        assertNull("Least recently used entry should be evicted", cache.get(2));
+        assertEquals("Should count one eviction", 1, cache.stats().getEvictions());
+        assertEquals("Cache should stay at max size", 2, cache.size());
+    }
+    
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        cache.put(1, "one", cache.generation());
+        now += TimeUnit.SECONDS.toNanos(11);
+        
+        assertNull("Expired entry should miss", cache.get(1));
+        assertEquals("Should count one expiration", 1, cache.stats().getExpirations());
+    }
+    
+    @Test
+    public void testPutAfterInvalidationIsDropped() {
+        // A reader loads the value, then an update invalidates before the reader caches it
+        long generation = cache.generation();
+        cache.invalidate(1);
+        cache.put(1, "stale", generation);
+        
+        assertNull("Stale value should not be cached", cache.get(1));
+    }
+    
+    @Test
+    public void testInvalidateIndexedRemovesEntriesWithThatIndexKey() {
+        cache.put(1, "keep", cache.generation());
+        cache.put(2, "drop!", cache.generation());
+        cache.invalidateIndexed(5);
+        
+        assertEquals("Entry with another index key should stay", "keep", cache.get(1));
+        assertNull("Entry with the index key should be removed", cache.get(2));
+    }
+    
+    @Test
+    public void testIndexFollowsReplacedAndEvictedEntries() {
+        cache.put(1, "four", cache.generation());
+        cache.put(1, "three", cache.generation());
+        cache.invalidateIndexed(4);
+        assertEquals("Replaced value's old index key should no longer match", "three", cache.get(1));
+        
+        // Evicting 1 must drop it from the index, or invalidating 5 would remove the new entry for key 1
+        cache.put(2, "two", cache.generation());
+        cache.put(3, "six", cache.generation());
+        cache.put(1, "one", cache.generation());
+        cache.invalidateIndexed(5);
+        assertEquals("one", cache.get(1));
+        assertEquals("Unrelated entry should stay", 2, cache.size());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.helpdesk.dao;
+
+import com.helpdesk.db.DatabaseConnection;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * EXPLAIN checks for the hot queries: each must reach its main table through an index.
+ * The statements come from the DAOs themselves, so a query change is checked as soon as it is made.
+ * Note: These tests require a running MySQL database with the schema set up
+ */
+public class QueryPlanTest {
+    
+    private static final Timestamp MONTH_START = Timestamp.valueOf("2024-01-01 00:00:00");
+    private static final Timestamp NEXT_MONTH_START = Timestamp.valueOf("2024-02-01 00:00:00");
+    private static final Date MONTH_START_DATE = Date.valueOf("2024-01-01");
+    private static final Date NEXT_MONTH_START_DATE = Date.valueOf("2024-02-01");
+    
+    /**
+     * Run EXPLAIN and fail if the given table (or alias) is read with a full scan
+     */
+    private void assertIndexed(String sql, String table, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            
+            boolean found = false;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (!table.equals(rs.getString("table"))) {
+                        continue;
+                    }
+                    found = true;
+                    assertNotEquals("Full table scan on " + table + ": " + sql, "ALL", rs.getString("type"));
+                    assertNotNull("No index used on " + table + ": " + sql, rs.getString("key"));
+                }
+            }
+            assertTrue("Plan should read " + table + ": " + sql, found);
+        }
+    }
+    
+    /**
+     * Run EXPLAIN and fail unless the table is read only from one of the given indexes, in index order
+     */
+    private void assertCovered(String sql, String table, List<String> indexes, Object... params) throws SQLException {
+        assertPlan(sql, table, indexes, true, params);
+    }
+    
+    /**
+     * Run EXPLAIN and fail unless the table is read through one of the given indexes in index order, without a sort.
+     * The index need not cover the query: rows may still be fetched by primary key.
+     */
+    private void assertOrdered(String sql, String table, List<String> indexes, Object... params) throws SQLException {
+        assertPlan(sql, table, indexes, false, params);
+    }
+    
+    private void assertPlan(String sql, String table, List<String> indexes, boolean covered, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue("Plan should have a row: " + sql, rs.next());
+                assertEquals("Wrong table: " + sql, table, rs.getString("table"));
+                assertTrue("Wrong index " + rs.getString("key") + ": " + sql, indexes.contains(rs.getString("key")));
+                String extra = String.valueOf(rs.getString("Extra"));
+                if (covered) {
+                    assertTrue("Should be answered from the index alone (" + extra + "): " + sql, extra.contains("Using index"));
+                }
+                assertFalse("Should not sort (" + extra + "): " + sql, extra.contains("filesort"));
+            }
+        }
+    }
+    
+    @Test
+    public void testConversationHistoryUsesIndex() throws SQLException {
+        assertIndexed(TicketDAO.CONVERSATION_HISTORY_SQL, "tc", 1);
+    }
+    
+    @Test
+    public void testTicketHistoryPageUsesIndex() throws SQLException {
+        assertIndexed(TicketHistoryDAO.historyPageSql(true), "TicketHistory", 1, MONTH_START, MONTH_START, 0, 51);
+    }
+    
+    @Test
+    public void testBatchConversationLoadUsesIndex() throws SQLException {
+        assertIndexed(TicketDAO.conversationHistoriesSql(3), "tc", 1, 2, 3);
+    }
+    
+    @Test
+    public void testVolumeReportsUseIndex() throws SQLException {
+        assertIndexed(TicketDAO.MONTHLY_VOLUME_SQL, "v", MONTH_START_DATE, NEXT_MONTH_START_DATE);
+        assertIndexed(TicketDAO.VOLUME_BY_CATEGORY_SQL, "v", MONTH_START_DATE, NEXT_MONTH_START_DATE);
+    }
+    
+    @Test
+    public void testResolutionReportUsesIndex() throws SQLException {
+        assertIndexed(TicketDAO.AVERAGE_RESOLUTION_SQL, "tc");
+    }
+    
+    @Test
+    public void testDeleteChecksUseIndex() throws SQLException {
+        assertIndexed(AgentDAO.HAS_TICKETS_SQL, "Tickets", 1);
+        assertIndexed(CustomerDAO.HAS_TICKETS_SQL, "Tickets", 1);
+    }
+    
+    @Test
+    public void testTicketQueueUsesIndex() throws SQLException {
+        assertIndexed(TicketDAO.LOCK_QUEUED_TICKETS_SQL, "Tickets", 10);
+    }
+    
+    @Test
+    public void testInboxListsReadInIndexOrder() throws SQLException {
+        // The inbox indexes hold only sort keys, so the accepted plan is an ordered index range plus
+        // a primary key lookup per row on the page, not an index-only read
+        Timestamp createdAt = Timestamp.valueOf("2024-01-15 00:00:00");
+        for (boolean afterCursor : new boolean[] {false, true}) {
+            Object[] cursor = afterCursor ? new Object[] {2, 2, 2, createdAt, createdAt, 0} : new Object[0];
+            assertOrdered(TicketDAO.summaryPageSql("idx_tickets_inbox", TicketDAO.AGENT_INBOX_FILTER, afterCursor), "t",
+                          Arrays.asList("idx_tickets_inbox"), params(new Object[] {1, 2}, cursor, 51));
+            assertOrdered(TicketDAO.summaryPageSql("idx_tickets_unassigned", TicketDAO.UNASSIGNED_FILTER, afterCursor), "t",
+                          Arrays.asList("idx_tickets_unassigned"), params(new Object[] {1}, cursor, 51));
+            assertOrdered(TicketDAO.summaryPageSql("idx_tickets_escalated", TicketDAO.ESCALATED_FILTER, afterCursor), "t",
+                          Arrays.asList("idx_tickets_escalated"), params(new Object[0], cursor, 51));
+        }
+    }
+    
+    private static Object[] params(Object[] filter, Object[] cursor, int limit) {
+        Object[] params = Arrays.copyOf(filter, filter.length + cursor.length + 1);
+        System.arraycopy(cursor, 0, params, filter.length, cursor.length);
+        params[params.length - 1] = limit;
+        return params;
+    }
+    
+    @Test
+    public void testSlaSweepIsCovered() throws SQLException {
+        for (boolean awaitingResponse : new boolean[] {false, true}) {
+            assertCovered(TicketDAO.slaCandidatesSql(awaitingResponse, true), "t", Arrays.asList("idx_tickets_sla"),
+                          1, NEXT_MONTH_START, MONTH_START, MONTH_START, 0, 500);
+            assertCovered(TicketDAO.slaCandidatesSql(awaitingResponse, false), "t", Arrays.asList("idx_tickets_sla"),
+                          1, NEXT_MONTH_START, 500);
+        }
+    }
+    
+    @Test
+    public void testConversationSearchUsesFullTextIndex() throws SQLException {
+        String booleanQuery = "+printer*" + TicketDAO.scopeTerms(1, null);
+        assertIndexed(TicketDAO.searchSql(true, false), "tc", booleanQuery, booleanQuery, 1, 20);
+    }
+    
+    @Test
+    public void testSearchQueryIsSanitized() {
+        assertEquals("+printer +jam*", TicketDAO.toBooleanQuery("printer jam*"));
+        assertEquals("+\"paper tray\" +two", TicketDAO.toBooleanQuery("\"paper  tray\" two"));
+        assertEquals("+drop +table", TicketDAO.toBooleanQuery("-drop (table)~ *"));
+        assertEquals("", TicketDAO.toBooleanQuery("\"\" @ <>"));
+        // Stopwords and short words are not indexed, so requiring them would match nothing
+        assertEquals("+printer +jam* +\"out of paper\"", TicketDAO.toBooleanQuery("the printer on a jam* \"out of paper\""));
+        assertEquals("+ok*", TicketDAO.toBooleanQuery("ok* is OK"));
+        assertEquals(" +category_3 +status_done", TicketDAO.scopeTerms(3, 4));
+        assertEquals(" +status_open", TicketDAO.scopeTerms(null, 2));
+    }
+    
+    @Test
+    public void testAgentLoadCountUsesIndex() throws SQLException {
+        assertIndexed(AgentDAO.ROUTING_CANDIDATES_SQL, "Tickets");
+    }
+    
+    @Test
+    public void testAgentsBySkillUsesIndex() throws SQLException {
+        assertIndexed(AgentDAO.AGENTS_BY_SKILL_SQL, "as_skill", 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.helpdesk.db;
+
+import com.helpdesk.metrics.MetricsRegistry;
+import com.helpdesk.metrics.QueryMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for ConnectionPool
+ * These run against fake connections and do not need a database
+ */
+public class ConnectionPoolTest {
+    
+    private AtomicInteger opened;
+    private AtomicInteger closed;
+    private ConnectionPool pool;
+    
+    @Before
+    public void setUp() {
+        opened = new AtomicInteger();
+        closed = new AtomicInteger();
+    }
+    
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+    
+    private Connection fakeConnection() {
+        opened.incrementAndGet();
+        boolean[] isClosed = { false };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            isClosed[0] = true;
+                            closed.incrementAndGet();
+                            return null;
+                        case "isClosed":
+                            return isClosed[0];
+                        case "isValid":
+                        case "getAutoCommit":
+                            return !isClosed[0];
+                        case "isReadOnly":
+                            return false;
+                        case "prepareStatement":
+                            return fakeStatement();
+                        default:
+                            return null;
+                    }
+                });
+    }
+    
+    private PreparedStatement fakeStatement() {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    if ("executeUpdate".equals(method.getName())) {
+                        return 3;
+                    }
+                    return null;
+                });
+    }
+    
+    private PoolConfig config(int minIdle, int maxSize) {
+        PoolConfig config = new PoolConfig();
+        config.setMinIdle(minIdle);
+        config.setMaxSize(maxSize);
+        config.setBorrowTimeoutMillis(200);
+        return config;
+    }
+    
+    @Test
+    public void testClosingReturnsConnectionToPool() throws SQLException {
+        pool = new ConnectionPool("test", this::fakeConnection, config(0, 2));
+        
+        Connection first = pool.getConnection();
+        assertEquals("One connection should be borrowed", 1, pool.getActiveCount());
+        first.close();
+        assertEquals("Closing should return the connection", 0, pool.getActiveCount());
+        try (Connection conn = pool.getConnection()) {
+            assertFalse("Borrowed connection should be open", conn.isClosed());
+        }
+        
+        assertEquals("Physical connection should be reused", 1, opened.get());
+        assertEquals("Physical connection should stay open", 0, closed.get());
+        assertEquals("Connection should be idle again", 1, pool.getIdleCount());
+    }
+    
+    @Test
+    public void testPoolPrefillsMinIdle() {
+        pool = new ConnectionPool("test", this::fakeConnection, config(3, 5));
+        
+        assertEquals("Pool should open minIdle connections", 3, opened.get());
+        assertEquals("All prefilled connections should be idle", 3, pool.getIdleCount());
+    }
+    
+    @Test
+    public void testBorrowTimesOutWhenExhausted() throws SQLException {
+        pool = new ConnectionPool("test", this::fakeConnection, config(0, 1));
+        
+        try (Connection held = pool.getConnection()) {
+            try {
+                pool.getConnection();
+                fail("Borrowing from an exhausted pool should time out");
+            } catch (SQLTransientConnectionException expected) {
+                assertEquals("Pool should not grow past maxSize", 1, pool.getTotalCount());
+            }
+            assertFalse("The held connection should be unaffected", held.isClosed());
+        }
+    }
+    
+    @Test(expected = SQLException.class)
+    public void testClosedProxyCannotBeUsed() throws SQLException {
+        pool = new ConnectionPool("test", this::fakeConnection, config(0, 1));
+        
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.createStatement();
+    }
+    
+    @Test
+    public void testStatementsReportToMetricsRegistry() throws SQLException {
+        List<String> recorded = new ArrayList<>();
+        MetricsRegistry previous = QueryMetrics.getRegistry();
+        QueryMetrics.setRegistry(new MetricsRegistry() {
+            @Override
+            public void recordStatement(String operation, long elapsedNanos, boolean failed) {
+                recorded.add("statement " + operation);
+            }
+            
+            @Override
+            public void recordRows(String operation, long rows) {
+                recorded.add("rows " + rows);
+            }
+            
+            @Override
+            public void recordConnectionWait(String poolName, long waitNanos, boolean timedOut) {
+                recorded.add("wait " + poolName);
+            }
+        });
+        try {
+            pool = new ConnectionPool("test", this::fakeConnection, config(0, 1));
+            
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement("UPDATE Tickets SET status_id = 2")) {
+                assertSame("Statement should hand back the pooled proxy", conn, pstmt.getConnection());
+                pstmt.executeUpdate();
+            }
+        } finally {
+            QueryMetrics.setRegistry(previous);
+        }
+        
+        assertEquals(Arrays.asList(
+                "wait test",
+                "statement ConnectionPoolTest.testStatementsReportToMetricsRegistry",
+                "rows 3"), recorded);
+    }
+    
+    @Test
+    public void testShutdownClosesIdleConnections() throws SQLException {
+        pool = new ConnectionPool("test", this::fakeConnection, config(2, 2));
+        pool.shutdown();
+        
+        assertEquals("Idle connections should be closed on shutdown", 2, closed.get());
+        try {
+            pool.getConnection();
+            fail("Shut down pool should not hand out connections");
+        } catch (SQLException expected) {
+            assertTrue(pool.isShutdown());
+        }
+    }
+}
\ No newline at end of file
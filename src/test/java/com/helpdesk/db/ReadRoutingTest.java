@@ -0,0 +1,165 @@
+package com.helpdesk.db;
+
+import com.helpdesk.metrics.OperationStats;
+import com.helpdesk.metrics.QueryMetrics;
+import com.helpdesk.model.TicketConversation;
+import com.helpdesk.service.HelpDeskService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for read/write splitting in DatabaseConnection
+ * Note: These tests require a running MySQL database with the schema set up; the same
+ * database stands in for the replica, reached through its own read-only pool
+ */
+public class ReadRoutingTest {
+    
+    private static final String REPLICA = "replica-test";
+    private static final String URL = System.getProperty("helpdesk.db.url", "jdbc:mysql://localhost:3306/helpdesk_platform");
+    private static final String USERNAME = System.getProperty("helpdesk.db.user", "root");
+    private static final String PASSWORD = System.getProperty("helpdesk.db.password", "root");
+    
+    private final HelpDeskService helpDeskService = new HelpDeskService();
+    
+    @Before
+    public void setUp() {
+        DatabaseConnection.resetReadRouting();
+    }
+    
+    @After
+    public void tearDown() {
+        DatabaseConnection.removeReplica(REPLICA);
+        DatabaseConnection.resetReadRouting();
+    }
+    
+    @Test
+    public void testReadsGoToPrimaryWithoutReplicas() throws SQLException {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            assertEquals("PooledConnection[" + DatabaseConnection.PRIMARY + "]", conn.toString());
+        }
+    }
+    
+    @Test
+    public void testReadsGoToReplicaUntilThreadWrites() throws SQLException {
+        DatabaseConnection.addReplica(REPLICA, URL, USERNAME, PASSWORD);
+        assertTrue(DatabaseConnection.getReplicaNames().contains(REPLICA));
+        
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            assertEquals("PooledConnection[" + REPLICA + "]", conn.toString());
+            assertTrue("Replica connections should be read-only", conn.isReadOnly());
+        }
+        
+        // A write on this thread keeps its reads on the primary, so it sees what it wrote
+        int customerId = helpDeskService.registerCustomer("Routing Customer", "routing." + Long.toString(System.nanoTime(), 36) + "@example.com");
+        int ticketId = helpDeskService.createTicketWithMessage(customerId, 1, 2, "Read my write");
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            assertEquals("PooledConnection[" + DatabaseConnection.PRIMARY + "]", conn.toString());
+        }
+        List<TicketConversation> conversation = helpDeskService.getTicketConversation(ticketId);
+        assertEquals(1, conversation.size());
+        
+        // A new request on the same thread reads from the replica again
+        DatabaseConnection.resetReadRouting();
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            assertEquals("PooledConnection[" + REPLICA + "]", conn.toString());
+        }
+        assertEquals("Read my write", helpDeskService.getTicketConversation(ticketId).get(0).getMessageText());
+    }
+    
+    @Test
+    public void testReadsStayOnPrimaryWhileAPrimaryConnectionIsHeld() throws SQLException {
+        DatabaseConnection.addReplica(REPLICA, URL, USERNAME, PASSWORD);
+        
+        try (Connection primary = DatabaseConnection.getConnection()) {
+            // However long the transaction runs, reads cannot miss what it wrote
+            try (Connection conn = DatabaseConnection.getReadConnection()) {
+                assertEquals("PooledConnection[" + DatabaseConnection.PRIMARY + "]", conn.toString());
+            }
+        }
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            assertEquals("The window should start when the connection is returned",
+                         "PooledConnection[" + DatabaseConnection.PRIMARY + "]", conn.toString());
+        }
+        
+        // A read that failed back to the primary does not pin later reads to it
+        DatabaseConnection.resetReadRouting();
+        DatabaseConnection.removeReplica(REPLICA);
+        DatabaseConnection.getReadConnection().close();
+        DatabaseConnection.addReplica(REPLICA, URL, USERNAME, PASSWORD);
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            assertEquals("PooledConnection[" + REPLICA + "]", conn.toString());
+        }
+    }
+    
+    @Test
+    public void testPrimaryOnlyReadsDoNotPinLaterReads() throws SQLException {
+        int customerId = helpDeskService.registerCustomer("Details Customer",
+                "routingdetails." + Long.toString(System.nanoTime(), 36) + "@example.com");
+        int ticketId = helpDeskService.createTicketWithMessage(customerId, 1, 2, "Details from a replica");
+        DatabaseConnection.addReplica(REPLICA, URL, USERNAME, PASSWORD);
+        DatabaseConnection.resetReadRouting();
+        
+        // getTicketById reads the primary just before the conversation; only writes should pin
+        long before = replicaBorrows();
+        HelpDeskService.TicketDetails details = helpDeskService.getFullTicketDetails(ticketId);
+        assertEquals(ticketId, details.getTicket().getTicketId());
+        assertTrue("The conversation should be read from the replica", replicaBorrows() > before);
+        assertEquals(1, details.getConversations().size());
+    }
+    
+    @Test
+    public void testUnavailableReplicaFailsBackToPrimary() throws SQLException {
+        AtomicInteger attempts = new AtomicInteger();
+        DatabaseConnection.addReplica(REPLICA, () -> {
+            attempts.incrementAndGet();
+            throw new SQLException("replica down");
+        });
+        
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            assertEquals("PooledConnection[" + DatabaseConnection.PRIMARY + "]", conn.toString());
+        }
+        assertEquals(1, attempts.get());
+        
+        // The replica is skipped until its retry interval passes
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            assertEquals("PooledConnection[" + DatabaseConnection.PRIMARY + "]", conn.toString());
+        }
+        assertEquals("A down replica should not be retried straight away", 1, attempts.get());
+    }
+    
+    @Test
+    public void testNamedDataSources() throws SQLException {
+        DatabaseConnection.addReplica(REPLICA, URL, USERNAME, PASSWORD);
+        try (Connection conn = DatabaseConnection.getConnection(REPLICA)) {
+            assertEquals("PooledConnection[" + REPLICA + "]", conn.toString());
+        }
+        assertSame(DatabaseConnection.getDataSource(), DatabaseConnection.getDataSource(DatabaseConnection.PRIMARY));
+        assertNull(DatabaseConnection.getDataSource("missing"));
+        
+        try {
+            DatabaseConnection.addReplica(REPLICA, URL, USERNAME, PASSWORD);
+            fail("Duplicate names should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains(REPLICA));
+        }
+        
+        DatabaseConnection.removeReplica(REPLICA);
+        assertFalse(DatabaseConnection.getReplicaNames().contains(REPLICA));
+    }
+    
+    private long replicaBorrows() {
+        for (OperationStats stats : QueryMetrics.getDefaultRegistry().getConnectionWaits()) {
+            if (REPLICA.equals(stats.getOperation())) {
+                return stats.getExecutions();
+            }
+        }
+        return 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.helpdesk.metrics;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LatencyHistogram
+ */
+public class LatencyHistogramTest {
+    
+    @Test
+    public void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        
+        assertEquals("Should count every value", 1000, histogram.getCount());
+        assertEquals("Max should be exact", 1_000_000, histogram.getMax());
+        assertEquals("p50 should be within 3%", 500_000, histogram.getPercentile(50), 500_000 * 0.03);
+        assertEquals("p99 should be within 3%", 990_000, histogram.getPercentile(99), 990_000 * 0.03);
+        assertEquals("p100 should be the max", 1_000_000, histogram.getPercentile(100));
+    }
+    
+    @Test
+    public void testBucketBoundsContainValue() {
+        for (long value : new long[] { 0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, 1L << 40 }) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue("Upper bound should not be below " + value, LatencyHistogram.upperBoundOf(bucket) >= value);
+            assertTrue("Previous bucket should end below " + value,
+                    bucket == 0 || LatencyHistogram.upperBoundOf(bucket - 1) < value);
+        }
+    }
+    
+    @Test
+    public void testResetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000);
+        histogram.reset();
+        
+        assertEquals("Count should be cleared", 0, histogram.getCount());
+        assertEquals("Percentiles should be cleared", 0, histogram.getPercentile(99));
+        assertEquals("Mean should be cleared", 0, histogram.getMean(), 0);
+    }
+}
\ No newline at end of file
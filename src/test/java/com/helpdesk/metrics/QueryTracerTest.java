@@ -0,0 +1,143 @@
+package com.helpdesk.metrics;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the slow-query log and the sampled trace file, using fake statements
+ */
+public class QueryTracerTest {
+    private static final String SQL = "SELECT * FROM Tickets WHERE customer_id = ? AND status_id = ?";
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @After
+    public void tearDown() {
+        QueryTracer.configure(new TracerConfig());
+    }
+    
+    private PreparedStatement fakeStatement(long sleepMillis) {
+        PreparedStatement target = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    if ("executeUpdate".equals(method.getName())) {
+                        Thread.sleep(sleepMillis);
+                        return 1;
+                    }
+                    return null;
+                });
+        return (PreparedStatement) StatementInstrumentation.wrap(target, null, SQL, MetricsRegistry.NOOP);
+    }
+    
+    private TracerConfig config(long thresholdMillis, double sampleRate, File traceFile) {
+        TracerConfig config = new TracerConfig();
+        config.setSlowQueryThresholdMillis(thresholdMillis);
+        config.setSampleRate(sampleRate);
+        config.setTraceFile(traceFile.getPath());
+        return config;
+    }
+    
+    @Test
+    public void testSlowQueryCapturesParameters() throws SQLException {
+        QueryTracer.configure(config(5, 0, new File(folder.getRoot(), "trace.log")));
+        long before = QueryTracer.getSlowQueryCount();
+        
+        // Parameters are captured lazily: the first slow run only marks the operation as slow
+        PreparedStatement first = fakeStatement(20);
+        first.setInt(1, 7);
+        first.executeUpdate();
+        assertEquals("Slow statement should be counted", before + 1, QueryTracer.getSlowQueryCount());
+        assertEquals("Nothing should be captured before the operation was seen slow", 0, lastSlowQuery().getParameters().length);
+        
+        PreparedStatement statement = fakeStatement(20);
+        statement.setInt(1, 42);
+        statement.setNull(2, java.sql.Types.INTEGER);
+        statement.executeUpdate();
+        
+        assertEquals("Slow statement should be counted", before + 2, QueryTracer.getSlowQueryCount());
+        QueryTrace trace = lastSlowQuery();
+        assertEquals("SQL should be captured", SQL, trace.getSql());
+        assertArrayEquals("Bound parameters should be captured", new Object[] { 42, null }, trace.getParameters());
+        assertTrue("Elapsed time should be over the threshold", trace.getElapsedNanos() >= 5_000_000);
+        assertNotNull("Caller should be resolved", trace.getCaller());
+        assertTrue("Should be flagged slow", trace.isSlow());
+    }
+    
+    private QueryTrace lastSlowQuery() {
+        List<QueryTrace> recent = QueryTracer.getRecentSlowQueries();
+        return recent.get(recent.size() - 1);
+    }
+    
+    @Test
+    public void testFastQueryIsNotLogged() throws SQLException {
+        QueryTracer.configure(config(1000, 0, new File(folder.getRoot(), "trace.log")));
+        long before = QueryTracer.getSlowQueryCount();
+        
+        PreparedStatement statement = fakeStatement(0);
+        statement.setInt(1, 1);
+        statement.executeUpdate();
+        
+        assertEquals("Fast statement should not be logged", before, QueryTracer.getSlowQueryCount());
+    }
+    
+    @Test
+    public void testSampledStatementsAreWrittenToTraceFile() throws Exception {
+        File traceFile = new File(folder.getRoot(), "logs/trace.log");
+        QueryTracer.configure(config(0, 1.0, traceFile));
+        
+        PreparedStatement statement = fakeStatement(0);
+        statement.setString(1, "first");
+        statement.executeUpdate();
+        statement.clearParameters();
+        statement.setString(1, "second");
+        statement.executeUpdate();
+        
+        // Closing the writer flushes everything queued
+        QueryTracer.configure(new TracerConfig());
+        List<String> lines = Files.readAllLines(traceFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Every statement should be sampled", 2, lines.size());
+        assertTrue("Trace should include the parameters: " + lines.get(0), lines.get(0).contains("first"));
+        assertTrue("Trace should include the SQL", lines.get(1).contains(SQL));
+        assertTrue("Cleared parameters should not linger", lines.get(1).contains("second") && !lines.get(1).contains("first"));
+    }
+    
+    @Test
+    public void testTraceFileRotation() throws Exception {
+        File traceFile = new File(folder.getRoot(), "rotating.log");
+        TracerConfig config = config(0, 1.0, traceFile);
+        config.setMaxFileBytes(500);
+        config.setMaxFiles(2);
+        
+        try (TraceFileWriter writer = new TraceFileWriter(config)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue("Queue should accept the trace", writer.offer(new QueryTrace(System.currentTimeMillis(),
+                        "Test.op", "Test.caller", SQL, new Object[] { i }, 1000, false, false)));
+            }
+        }
+        
+        assertTrue("Current file should exist", traceFile.exists());
+        assertTrue("First rotated file should exist", new File(traceFile.getPath() + ".1").exists());
+        assertTrue("Second rotated file should exist", new File(traceFile.getPath() + ".2").exists());
+        assertFalse("Only maxFiles rotated files should be kept", new File(traceFile.getPath() + ".3").exists());
+    }
+    
+    @Test
+    public void testRotationCountsEncodedBytes() {
+        String text = "SELECT 'caf\u00e9 \u20ac \ud83d\ude00' FROM Tickets";
+        assertEquals(text.getBytes(StandardCharsets.UTF_8).length, TraceFileWriter.utf8Length(text));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.helpdesk.outbox;
+
+import com.helpdesk.dao.OutboxDAO;
+import com.helpdesk.db.DatabaseConnection;
+import com.helpdesk.model.OutboxEvent;
+import com.helpdesk.service.HelpDeskService;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for the ticket event outbox and its relay
+ * Note: These tests require a running MySQL database with the schema set up
+ */
+public class OutboxRelayTest {
+    
+    // The test database persists between runs, so emails get a per-run suffix
+    private static final String RUN = Long.toString(System.nanoTime(), 36);
+    
+    private final HelpDeskService helpDeskService = new HelpDeskService();
+    private final OutboxDAO outboxDAO = new OutboxDAO();
+    private String relayName;
+    
+    @Before
+    public void setUp() throws SQLException {
+        // Start each relay at the end of the outbox so earlier tests' events are not replayed
+        relayName = "test-" + System.nanoTime();
+        outboxDAO.advanceWatermark(relayName, outboxDAO.getLatestEventId());
+    }
+    
+    @Test
+    public void testLifecycleIsRelayedInOrder() throws Exception {
+        int customerId = helpDeskService.registerCustomer("Outbox Customer", "outbox." + RUN + "@example.com");
+        int agentId = registerAgent("Outbox Agent", "outboxagent." + RUN + "@company.com");
+        int ticketId = helpDeskService.createTicketWithMessage(customerId, 1, 2, "Printer \"jammed\"\nagain");
+        assertTrue(helpDeskService.assignTicketToAgent(ticketId, agentId));
+        assertTrue(helpDeskService.addMessageToTicket(ticketId, "Looking into it", true, agentId));
+        assertTrue(helpDeskService.resolveTicket(ticketId, "Fixed", agentId));
+        assertTrue(helpDeskService.closeTicket(ticketId));
+        
+        InMemoryOutboxSink sink = new InMemoryOutboxSink();
+        OutboxRelay relay = new OutboxRelay(relayName, sink, 2, 60000);
+        assertEquals("Every change should be relayed, two per batch", 5, relay.relayAvailable());
+        assertEquals(Arrays.asList(OutboxEvent.TICKET_CREATED, OutboxEvent.TICKET_ASSIGNED, OutboxEvent.MESSAGE_ADDED,
+                                   OutboxEvent.TICKET_RESOLVED, OutboxEvent.TICKET_CLOSED),
+                     typesOf(sink.getEvents(ticketId)));
+        assertEquals("{\"customerId\":" + customerId + ",\"categoryId\":1,\"priorityId\":2," +
+                     "\"message\":\"Printer \\\"jammed\\\"\\nagain\"}", sink.getEvents(ticketId).get(0).getPayload());
+        
+        OutboxRelay restarted = new OutboxRelay(relayName, new InMemoryOutboxSink(), 2, 60000);
+        assertEquals("The watermark should survive a restart", 0, restarted.relayAvailable());
+    }
+    
+    @Test
+    public void testFailedDeliveryIsRetried() throws Exception {
+        int customerId = helpDeskService.registerCustomer("Retry Customer", "outboxretry." + RUN + "@example.com");
+        int ticketId = helpDeskService.createTicketWithMessage(customerId, 1, 2, "Retry me");
+        
+        InMemoryOutboxSink delivered = new InMemoryOutboxSink();
+        boolean[] failNext = { true };
+        OutboxRelay relay = new OutboxRelay(relayName, events -> {
+            if (failNext[0]) {
+                failNext[0] = false;
+                throw new IOException("sink unavailable");
+            }
+            delivered.deliver(events);
+        }, 10, 60000);
+        
+        try {
+            relay.relayAvailable();
+            fail("The sink failure should be reported");
+        } catch (IOException e) {
+            assertEquals("sink unavailable", e.getMessage());
+        }
+        assertEquals(1, relay.getFailedCount());
+        assertEquals("The batch should be delivered on the next attempt", 1, relay.relayAvailable());
+        assertEquals(ticketId, delivered.getEvents().get(0).getTicketId());
+    }
+    
+    @Test
+    public void testRelayWaitsForUncommittedEvents() throws Exception {
+        int customerId = helpDeskService.registerCustomer("Gap Customer", "outboxgap." + RUN + "@example.com");
+        int ticketId = helpDeskService.createTicketWithMessage(customerId, 1, 2, "Gap test");
+        InMemoryOutboxSink sink = new InMemoryOutboxSink();
+        // No gap timeout: gaps are settled by watching open transactions (needs the PROCESS privilege)
+        OutboxRelay relay = new OutboxRelay(relayName, sink, 10, 0);
+        relay.relayAvailable();
+        sink.clear();
+        
+        // An event whose transaction is still open holds back everything after it
+        try (Connection open = DatabaseConnection.getConnection()) {
+            open.setAutoCommit(false);
+            outboxDAO.appendEvent(open, TicketEvents.messageAdded(ticketId, customerId, false, "first"));
+            helpDeskService.addMessageToTicket(ticketId, "second", false, customerId);
+            
+            assertEquals("Nothing should pass the open transaction", 0, relay.relayAvailable());
+            assertEquals("The gap should hold while its transaction is open", 0, relay.relayAvailable());
+            open.commit();
+            open.setAutoCommit(true);
+        }
+        assertEquals(2, relay.relayAvailable());
+        assertEquals(Arrays.asList("first", "second"), messagesOf(sink.getEvents()));
+        sink.clear();
+        
+        // A rolled-back event never appears; the gap is skipped once its transaction has ended
+        try (Connection rolledBack = DatabaseConnection.getConnection()) {
+            rolledBack.setAutoCommit(false);
+            outboxDAO.appendEvent(rolledBack, TicketEvents.messageAdded(ticketId, customerId, false, "lost"));
+            rolledBack.rollback();
+            rolledBack.setAutoCommit(true);
+        }
+        helpDeskService.addMessageToTicket(ticketId, "third", false, customerId);
+        assertEquals("The gap should hold the relay at first", 0, relay.relayAvailable());
+        assertEquals(1, relay.relayAvailable());
+        assertEquals(Arrays.asList("third"), messagesOf(sink.getEvents()));
+    }
+    
+    @Test
+    public void testFileSinkWritesJsonLines() throws Exception {
+        int customerId = helpDeskService.registerCustomer("File Customer", "outboxfile." + RUN + "@example.com");
+        int ticketId = helpDeskService.createTicketWithMessage(customerId, 1, 2, "To file");
+        helpDeskService.closeTicket(ticketId);
+        
+        Path file = Files.createTempFile("outbox", ".jsonl");
+        try (FileOutboxSink sink = new FileOutboxSink(file)) {
+            assertEquals(2, new OutboxRelay(relayName, sink, 10, 60000).relayAvailable());
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1), lines.get(1).matches(
+                "\\{\"eventId\":\\d+,\"ticketId\":" + ticketId + ",\"type\":\"ticket.closed\",\"createdAt\":\"[^\"]+\",\"data\":\\{}}"));
+        Files.delete(file);
+    }
+    
+    private int registerAgent(String name, String email) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+        return helpDeskService.registerAgent(name, email, now, later);
+    }
+    
+    private List<String> typesOf(List<OutboxEvent> events) {
+        List<String> types = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            types.add(event.getEventType());
+        }
+        return types;
+    }
+    
+    private List<String> messagesOf(List<OutboxEvent> events) {
+        List<String> messages = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            String payload = event.getPayload();
+            messages.add(payload.substring(payload.indexOf("\"message\":\"") + 11, payload.length() - 2));
+        }
+        return messages;
+    }
+}
\ No newline at end of file
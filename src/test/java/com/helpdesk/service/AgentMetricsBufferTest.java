@@ -0,0 +1,157 @@
+package com.helpdesk.service;
+
+import com.helpdesk.db.DatabaseConnection;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for the AgentMetrics write-behind buffer
+ * Note: These tests require a running MySQL database with the schema set up
+ */
+public class AgentMetricsBufferTest {
+    
+    // The test database persists between runs, so emails get a per-run suffix
+    private static final String RUN = Long.toString(System.nanoTime(), 36);
+    
+    private final HelpDeskService helpDeskService = new HelpDeskService();
+    
+    @Test
+    public void testConcurrentIncrementsAreCoalesced() throws Exception {
+        int agentId = registerAgent("Buffer Agent", "bufferagent@company.com");
+        long[] before = metricsOf(agentId);
+        // Long interval and threshold, so nothing is written until flush()
+        AgentMetricsBuffer buffer = new AgentMetricsBuffer(60 * 60 * 1000, Long.MAX_VALUE);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        buffer.recordAssignment(agentId, 1);
+                        buffer.recordResolution(agentId, 2);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        assertEquals("Unflushed assignments should be reported", 8000, buffer.getPendingAssignments());
+        assertEquals("Unflushed resolutions should be reported", 8000, buffer.getPendingResolutions());
+        assertEquals("Nothing should be written before the flush", before[0], metricsOf(agentId)[0]);
+        
+        assertEquals("One agent row should be written", 1, buffer.flush());
+        long[] after = metricsOf(agentId);
+        assertEquals(before[0] + 8000, after[0]);
+        assertEquals(before[1] + 8000, after[1]);
+        assertEquals(before[2] + 16000, after[2]);
+        assertEquals("Nothing should be left pending", 0, buffer.getPendingAssignments());
+        assertEquals(0, buffer.flush());
+        buffer.close();
+    }
+    
+    @Test
+    public void testThresholdTriggersFlushAndCloseDrains() throws Exception {
+        int agentId = registerAgent("Threshold Agent", "thresholdagent@company.com");
+        long assignedBefore = metricsOf(agentId)[0];
+        AgentMetricsBuffer buffer = new AgentMetricsBuffer(60 * 60 * 1000, 10);
+        
+        buffer.recordAssignment(agentId, 10);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (buffer.getPendingAssignments() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("Reaching the threshold should flush in the background", 0, buffer.getPendingAssignments());
+        assertEquals(assignedBefore + 10, metricsOf(agentId)[0]);
+        
+        buffer.recordAssignment(agentId, 3);
+        buffer.close();
+        assertEquals("Close should write what is left", assignedBefore + 13, metricsOf(agentId)[0]);
+    }
+    
+    @Test
+    public void testRejectedRowDoesNotBlockOthers() throws SQLException {
+        int agentId = registerAgent("Healthy Agent", "healthyagent@company.com");
+        int deletedId = registerAgent("Deleted Agent", "deletedagent@company.com");
+        assertTrue(helpDeskService.deleteAgent(deletedId));
+        long assignedBefore = metricsOf(agentId)[0];
+        AgentMetricsBuffer buffer = new AgentMetricsBuffer(60 * 60 * 1000, Long.MAX_VALUE);
+        
+        buffer.recordAssignment(agentId, 2);
+        buffer.recordAssignment(deletedId, 5);
+        assertEquals("The healthy row should still be written", 1, buffer.flush());
+        assertEquals(assignedBefore + 2, metricsOf(agentId)[0]);
+        assertEquals("The rejected row should wait for the next flush", 5, buffer.getPendingAssignments());
+        
+        buffer.recordAssignment(agentId, 1);
+        for (int attempt = 2; attempt <= AgentMetricsBuffer.MAX_WRITE_ATTEMPTS; attempt++) {
+            buffer.flush();
+        }
+        assertEquals(assignedBefore + 3, metricsOf(agentId)[0]);
+        assertEquals("The rejected row should be dropped", 0, buffer.getPendingAssignments());
+        assertEquals(1, buffer.getDroppedRowCount());
+        assertEquals(0, buffer.flush());
+        buffer.close();
+    }
+    
+    @Test
+    public void testRecreatedRowIsNotRoutable() throws SQLException {
+        int agentId = registerAgent("Unrouted Agent", "unroutedagent@company.com");
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM AgentMetrics WHERE agent_id = ?")) {
+            
+            pstmt.setInt(1, agentId);
+            pstmt.executeUpdate();
+        }
+        AgentMetricsBuffer buffer = new AgentMetricsBuffer(60 * 60 * 1000, Long.MAX_VALUE);
+        buffer.recordAssignment(agentId, 1);
+        assertEquals(1, buffer.flush());
+        buffer.close();
+        
+        assertEquals(1, metricsOf(agentId)[0]);
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT is_assigned FROM AgentMetrics WHERE agent_id = ?")) {
+            
+            pstmt.setInt(1, agentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+                assertFalse("A row created by a flush should not opt the agent into routing", rs.getBoolean(1));
+            }
+        }
+    }
+    
+    private int registerAgent(String name, String email) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+        return helpDeskService.registerAgent(name, email.replace("@", "." + RUN + "@"), now, later);
+    }
+    
+    // total_tickets_assigned, total_resolutions, total_handle_time
+    private long[] metricsOf(int agentId) throws SQLException {
+        String sql = "SELECT total_tickets_assigned, total_resolutions, total_handle_time FROM AgentMetrics WHERE agent_id = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, agentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue("Agent should have a metrics row", rs.next());
+                return new long[] { rs.getLong(1), rs.getLong(2), rs.getLong(3) };
+            }
+        }
+    }
+}
\ No newline at end of file
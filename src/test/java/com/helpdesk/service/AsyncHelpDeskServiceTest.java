@@ -0,0 +1,136 @@
+package com.helpdesk.service;
+
+import com.helpdesk.db.DatabaseConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for AsyncHelpDeskService
+ * Note: These tests require a running MySQL database with the schema set up
+ */
+public class AsyncHelpDeskServiceTest {
+    
+    private AsyncHelpDeskService asyncService;
+    
+    @Before
+    public void setUp() {
+        asyncService = new AsyncHelpDeskService(new HelpDeskService(), 2, 1, 10_000);
+    }
+    
+    @After
+    public void tearDown() {
+        asyncService.close();
+    }
+    
+    @Test
+    public void testAsyncTicketRoundTrip() throws Exception {
+        // The test database persists between runs, so the email gets a per-run suffix
+        String email = "async." + Long.toString(System.nanoTime(), 36) + "@example.com";
+        int customerId = asyncService.registerCustomer("Async Customer", email).get(10, TimeUnit.SECONDS);
+        int ticketId = asyncService.createTicketWithMessage(customerId, 1, 2, "Async message")
+                .get(10, TimeUnit.SECONDS);
+        
+        HelpDeskService.TicketDetails details = asyncService.getFullTicketDetails(ticketId).get(10, TimeUnit.SECONDS);
+        assertEquals("Ticket should belong to the customer", customerId, details.getTicket().getCustomerId());
+        assertEquals("Initial message should be returned", 1, details.getConversations().size());
+    }
+    
+    @Test
+    public void testRejectsBeyondQueueLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncHelpDeskService.SqlCall<Boolean> blocked = () -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+        };
+        
+        // Two running plus one queued fill the limits
+        CompletableFuture<Boolean> first = asyncService.submit(blocked);
+        CompletableFuture<Boolean> second = asyncService.submit(blocked);
+        CompletableFuture<Boolean> queued = asyncService.submit(blocked);
+        CompletableFuture<Boolean> rejected = asyncService.submit(blocked);
+        
+        try {
+            rejected.get(1, TimeUnit.SECONDS);
+            fail("Call beyond the queue limit should be rejected");
+        } catch (ExecutionException e) {
+            assertTrue("Should fail with RejectedExecutionException", e.getCause() instanceof RejectedExecutionException);
+        }
+        
+        release.countDown();
+        assertTrue("Running calls should complete", first.get(10, TimeUnit.SECONDS) && second.get(10, TimeUnit.SECONDS));
+        assertTrue("Queued call should complete", queued.get(10, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testTimeoutCancelsRunningStatement() throws Exception {
+        CountDownLatch statementReturned = new CountDownLatch(1);
+        long start = System.nanoTime();
+        
+        CompletableFuture<Integer> sleeping = asyncService.submit(1000, () -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT SLEEP(20)")) {
+                rs.next();
+                return rs.getInt(1);
+            } finally {
+                statementReturned.countDown();
+            }
+        });
+        
+        try {
+            sleeping.get(10, TimeUnit.SECONDS);
+            fail("Call should time out");
+        } catch (ExecutionException e) {
+            assertTrue("Should fail with TimeoutException", e.getCause() instanceof TimeoutException);
+        }
+        assertTrue("Statement should be stopped well before SLEEP(20) ends",
+                statementReturned.await(10, TimeUnit.SECONDS));
+        assertTrue("Statement should stop promptly", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+    
+    @Test
+    public void testCancelAfterCloseStillStopsStatement() throws Exception {
+        CountDownLatch statementStarted = new CountDownLatch(1);
+        CountDownLatch statementReturned = new CountDownLatch(1);
+        
+        // No timeout, so only the cancel can stop the statement early
+        CompletableFuture<Integer> sleeping = asyncService.submit(0, () -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                statementStarted.countDown();
+                try (ResultSet rs = stmt.executeQuery("SELECT SLEEP(20)")) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            } finally {
+                statementReturned.countDown();
+            }
+        });
+        assertTrue(statementStarted.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        
+        asyncService.close();
+        long start = System.nanoTime();
+        assertTrue(sleeping.cancel(true));
+        assertTrue("Statement should be stopped well before SLEEP(20) ends",
+                statementReturned.await(10, TimeUnit.SECONDS));
+        assertTrue("Statement should stop promptly", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+}
\ No newline at end of file
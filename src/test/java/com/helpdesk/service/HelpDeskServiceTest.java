@@ -1,13 +1,35 @@
 package com.helpdesk.service;
 
+import com.helpdesk.dao.Page;
+import com.helpdesk.dao.PageCursor;
+import com.helpdesk.dao.AgentDAO;
+import com.helpdesk.dao.TicketDAO;
+import com.helpdesk.db.DatabaseConnection;
+import com.helpdesk.metrics.OperationStats;
 import com.helpdesk.model.Customer;
 import com.helpdesk.model.Agent;
+import com.helpdesk.model.BulkTicketResult;
+import com.helpdesk.model.ConversationSearchHit;
+import com.helpdesk.model.NewTicket;
+import com.helpdesk.model.TicketConversation;
+import com.helpdesk.model.TicketHistoryEntry;
+import com.helpdesk.model.TicketSummary;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Basic unit tests for HelpDeskService
@@ -80,6 +102,12 @@ public class HelpDeskServiceTest {
             assertEquals("Should have one message", 1, conversations.size());
             assertEquals("Message text should match", "Test ticket message", conversations.get(0).getMessageText());
             
+            // Verify display names resolved from the reference data cache
+            HelpDeskService.TicketDetails details = helpDeskService.getFullTicketDetails(ticketId);
+            assertEquals("Status name should match", "Open", details.getTicket().getStatusName());
+            assertEquals("Category name should match", "Technical Support", details.getTicket().getCategoryName());
+            assertEquals("Priority name should match", "Medium", details.getTicket().getPriorityName());
+            
         } catch (SQLException e) {
             fail("SQLException occurred: " + e.getMessage());
         }
@@ -109,6 +137,126 @@ public class HelpDeskServiceTest {
         }
     }
     
+    @Test
+    public void testAutoAssignment() {
+        try {
+            int customerId = helpDeskService.registerCustomer("Routing Test Customer", uniqueEmail("routingtest@example.com"));
+            
+            Timestamp now = new Timestamp(System.currentTimeMillis() - 60 * 1000);
+            Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+            int agentId = helpDeskService.registerAgent("Routing Test Agent", uniqueEmail("routingagent@company.com"), now, later);
+            helpDeskService.addSkillToAgent(agentId, 4);
+            
+            int ticketId = helpDeskService.createTicketWithMessage(customerId, 4, 2, "Routing test message");
+            
+            // Only the new agent is skilled in category 4
+            int assignedTo = helpDeskService.autoAssignTicket(ticketId);
+            assertEquals("Ticket should go to the skilled agent", agentId, assignedTo);
+            
+            HelpDeskService.TicketDetails details = helpDeskService.getFullTicketDetails(ticketId);
+            assertEquals("Ticket should record the agent", Integer.valueOf(agentId), details.getTicket().getAgentId());
+            
+            // Without the skill there is nobody left to route to
+            helpDeskService.removeSkillFromAgent(agentId, 4);
+            int otherTicketId = helpDeskService.createTicketWithMessage(customerId, 4, 2, "Unroutable message");
+            assertEquals("Ticket should stay unassigned", -1, helpDeskService.autoAssignTicket(otherTicketId));
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testRouterLoadFollowsAssignments() throws SQLException {
+        TicketRouter router = HelpDeskService.getTicketRouter();
+        router.reload();
+        
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+        int firstAgentId = helpDeskService.registerAgent("Load Agent 1", uniqueEmail("loadagent1@company.com"), now, later);
+        int secondAgentId = helpDeskService.registerAgent("Load Agent 2", uniqueEmail("loadagent2@company.com"), now, later);
+        int customerId = helpDeskService.registerCustomer("Load Test Customer", uniqueEmail("loadtest@example.com"));
+        int ticketId = helpDeskService.createTicketWithMessage(customerId, 1, 2, "Load test message");
+        
+        assertTrue(helpDeskService.assignTicketToAgent(ticketId, firstAgentId));
+        assertEquals(1, router.getOpenTickets(firstAgentId));
+        
+        // Reassignment moves the load, and assigning to the current holder changes nothing
+        assertTrue(helpDeskService.assignTicketToAgent(ticketId, secondAgentId));
+        assertTrue(helpDeskService.assignTicketToAgent(ticketId, secondAgentId));
+        assertEquals(0, router.getOpenTickets(firstAgentId));
+        assertEquals(1, router.getOpenTickets(secondAgentId));
+        
+        // Resolving frees the assignee, whoever resolves it, and only the first time
+        assertTrue(helpDeskService.resolveTicket(ticketId, "Done", firstAgentId));
+        assertTrue(helpDeskService.resolveTicket(ticketId, "Done again", firstAgentId));
+        assertEquals(0, router.getOpenTickets(firstAgentId));
+        assertEquals(0, router.getOpenTickets(secondAgentId));
+        
+        int idleAgentId = helpDeskService.registerAgent("Load Agent 3", uniqueEmail("loadagent3@company.com"), now, later);
+        assertEquals(0, router.getOpenTickets(idleAgentId));
+        assertTrue(helpDeskService.deleteAgent(idleAgentId));
+        assertEquals("Deleted agents should leave the router", -1, router.getOpenTickets(idleAgentId));
+    }
+    
+    @Test
+    public void testConcurrentClaimsAreDisjoint() throws Exception {
+        int customerId = helpDeskService.registerCustomer("Claim Test Customer", uniqueEmail("claimtest@example.com"));
+        
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+        int firstAgentId = helpDeskService.registerAgent("Claim Agent 1", uniqueEmail("claimagent1@company.com"), now, later);
+        int secondAgentId = helpDeskService.registerAgent("Claim Agent 2", uniqueEmail("claimagent2@company.com"), now, later);
+        
+        for (int i = 0; i < 6; i++) {
+            helpDeskService.createTicketWithMessage(customerId, 1, 1 + i % 4, "Claim test message " + i);
+        }
+        
+        // Both agents pull from the queue at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<Integer>> first = executor.submit(() -> helpDeskService.claimTicketsForAgent(firstAgentId, 3));
+            Future<List<Integer>> second = executor.submit(() -> helpDeskService.claimTicketsForAgent(secondAgentId, 3));
+            
+            List<Integer> firstClaimed = first.get();
+            List<Integer> secondClaimed = second.get();
+            assertFalse("Each agent should claim something", firstClaimed.isEmpty() || secondClaimed.isEmpty());
+            for (int ticketId : firstClaimed) {
+                assertFalse("A ticket should be claimed only once", secondClaimed.contains(ticketId));
+                assertEquals("Ticket should belong to the claiming agent", Integer.valueOf(firstAgentId),
+                        helpDeskService.getFullTicketDetails(ticketId).getTicket().getAgentId());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void testBulkTicketCreation() {
+        try {
+            int customerId = helpDeskService.registerCustomer("Bulk Test Customer", uniqueEmail("bulktest@example.com"));
+            
+            // The middle ticket references a customer that does not exist
+            BulkTicketResult result = helpDeskService.createTicketsWithMessages(Arrays.asList(
+                new NewTicket(customerId, 1, 2, "Bulk message 1"),
+                new NewTicket(-1, 1, 2, "Bulk message 2"),
+                new NewTicket(customerId, 2, 3, "Bulk message 3")
+            ));
+            
+            assertEquals("Two tickets should be created", 2, result.getCreatedCount());
+            assertTrue("Bad ticket should be reported", result.getFailures().containsKey(1));
+            assertTrue("First ticket should have an ID", result.getTicketId(0) > 0);
+            assertTrue("Third ticket should have an ID", result.getTicketId(2) > 0);
+            
+            List<TicketConversation> conversations = helpDeskService.getTicketConversation(result.getTicketId(2));
+            assertEquals("Should have one message", 1, conversations.size());
+            assertEquals("Message should be linked to its ticket", "Bulk message 3", conversations.get(0).getMessageText());
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
     @Test(expected = SQLException.class)
     public void testDuplicateCustomerEmail() throws SQLException {
         // This should pass for the first customer
@@ -137,6 +285,397 @@ public class HelpDeskServiceTest {
         }
     }
     
+    @Test
+    public void testCustomerKeysetPaging() {
+        try {
+            // Same name for all three so the ID tie-breaker is exercised
+            helpDeskService.registerCustomer("Paging Customer", uniqueEmail("paging1@example.com"));
+            helpDeskService.registerCustomer("Paging Customer", uniqueEmail("paging2@example.com"));
+            helpDeskService.registerCustomer("Paging Customer", uniqueEmail("paging3@example.com"));
+            
+            // Walk every page of size 2
+            List<Integer> pagedIds = new ArrayList<>();
+            PageCursor cursor = null;
+            do {
+                Page<Customer> page = helpDeskService.getCustomersPage(cursor, 2);
+                assertTrue("Page should not exceed page size", page.getItems().size() <= 2);
+                for (Customer customer : page.getItems()) {
+                    pagedIds.add(customer.getCustomerId());
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            
+            List<Integer> allIds = new ArrayList<>();
+            for (Customer customer : helpDeskService.getAllCustomers()) {
+                allIds.add(customer.getCustomerId());
+            }
+            assertEquals("Paging should visit every customer exactly once", allIds.size(), pagedIds.size());
+            assertTrue("Paging should visit every customer exactly once", pagedIds.containsAll(allIds));
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testQueryMetricsAreRecorded() {
+        try {
+            int customerId = helpDeskService.registerCustomer("Metrics Test Customer", uniqueEmail("metricstest@example.com"));
+            int ticketId = helpDeskService.createTicketWithMessage(customerId, 1, 2, "Metrics test message");
+            helpDeskService.getTicketConversation(ticketId);
+            
+            OperationStats conversation = null;
+            for (OperationStats stats : helpDeskService.getQueryMetrics()) {
+                if ("TicketDAO.getConversationHistory".equals(stats.getOperation())) {
+                    conversation = stats;
+                }
+            }
+            assertNotNull("Conversation query should be recorded under its DAO method", conversation);
+            assertTrue("Execution should be counted", conversation.getExecutions() > 0);
+            assertTrue("Returned rows should be counted", conversation.getRows() > 0);
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testQueriesAreNamedByTheirDaoEntryPoint() throws SQLException {
+        // Both lookups run through the same private helper; each should be credited to its public method
+        AgentDAO agentDAO = new AgentDAO();
+        assertNull(agentDAO.getAgentByEmail(uniqueEmail("nobody@company.com")));
+        assertNull(agentDAO.getAgentById(-1 - (int) (System.nanoTime() & 0xffffff)));
+        
+        assertNotNull("Email lookup should be named after getAgentByEmail", queryStats("AgentDAO.getAgentByEmail"));
+        assertNotNull("ID lookup should be named after getAgentById", queryStats("AgentDAO.getAgentById"));
+        assertNull("The shared helper should not take the credit", queryStats("AgentDAO.loadAgent"));
+    }
+    
+    @Test
+    public void testCategoryMetricsMaintainedOnClose() {
+        try {
+            int customerId = helpDeskService.registerCustomer("Metrics Customer", uniqueEmail("metrics@example.com"));
+            int first = helpDeskService.createTicketWithMessage(customerId, 3, 2, "First");
+            int second = helpDeskService.createTicketWithMessage(customerId, 3, 2, "Second");
+            
+            assertTrue("First close should succeed", helpDeskService.closeTicket(first));
+            assertTrue("Second close should succeed", helpDeskService.closeTicket(second));
+            assertFalse("Closing again should not count twice", helpDeskService.closeTicket(first));
+            assertFalse("Closing through the status API should not count twice either",
+                    new TicketDAO().updateTicketStatus(first, 4));
+            
+            List<Object[]> incremental = helpDeskService.getCategoryPerformanceReport();
+            assertFalse("Closed category should be reported", incremental.isEmpty());
+            
+            assertTrue("Rebuild should write the closed categories", helpDeskService.rebuildCategoryMetrics() > 0);
+            List<Object[]> rebuilt = helpDeskService.getCategoryPerformanceReport();
+            assertTrue("Rebuilt rollup should match the incremental one",
+                    Arrays.deepEquals(incremental.toArray(), rebuilt.toArray()));
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testReopenedTicketIsCountedOnceWhenClosedAgain() throws SQLException {
+        LocalDate today = LocalDate.now();
+        int customerId = helpDeskService.registerCustomer("Reopen Customer", uniqueEmail("reopen@example.com"));
+        int agentId = helpDeskService.registerAgent("Reopen Agent", uniqueEmail("reopenagent@company.com"),
+                new Timestamp(System.currentTimeMillis()), new Timestamp(System.currentTimeMillis() + 8 * 3600 * 1000));
+        int viaAssign = helpDeskService.createTicketWithMessage(customerId, 3, 2, "Reopened by assignment");
+        int viaStatus = helpDeskService.createTicketWithMessage(customerId, 3, 2, "Reopened by status");
+        assertTrue(helpDeskService.closeTicket(viaAssign));
+        assertTrue(helpDeskService.closeTicket(viaStatus));
+        
+        // Reopening clears closed_at; closing again must succeed and count once
+        assertTrue(helpDeskService.assignTicketToAgent(viaAssign, agentId));
+        assertTrue(new TicketDAO().updateTicketStatus(viaStatus, 2));
+        assertNull(new TicketDAO().getTicketById(viaAssign).getClosedAt());
+        assertNull(new TicketDAO().getTicketById(viaStatus).getClosedAt());
+        assertTrue("A reopened ticket should close again", helpDeskService.closeTicket(viaAssign));
+        assertTrue("Status 4 should close through closeTicket", new TicketDAO().updateTicketStatus(viaStatus, 4));
+        assertNotNull(new TicketDAO().getTicketById(viaStatus).getClosedAt());
+        
+        List<Object[]> incremental = helpDeskService.getCategoryPerformanceReport();
+        int[] volume = volumeFor("Account Management", today);
+        helpDeskService.rebuildCategoryMetrics();
+        helpDeskService.rebuildDailyVolume();
+        assertTrue("Rebuilt CategoryMetrics should match the incremental one",
+                Arrays.deepEquals(incremental.toArray(), helpDeskService.getCategoryPerformanceReport().toArray()));
+        assertArrayEquals("Rebuilt TicketDailyVolume should match the incremental one",
+                volume, volumeFor("Account Management", today));
+    }
+    
+    @Test
+    public void testDailyVolumeRollup() {
+        try {
+            LocalDate today = LocalDate.now();
+            int[] before = volumeFor("Billing Issues", today);
+            
+            int customerId = helpDeskService.registerCustomer("Volume Customer", uniqueEmail("volume@example.com"));
+            int first = helpDeskService.createTicketWithMessage(customerId, 2, 2, "First");
+            helpDeskService.createTicketsWithMessages(Arrays.asList(
+                    new NewTicket(customerId, 2, 1, "Bulk one"),
+                    new NewTicket(customerId, 2, 1, "Bulk two")));
+            assertTrue("Close should succeed", helpDeskService.closeTicket(first));
+            
+            int[] after = volumeFor("Billing Issues", today);
+            assertEquals("Created tickets should be counted", before[0] + 3, after[0]);
+            assertEquals("Closed ticket should be counted", before[2] + 1, after[2]);
+            
+            // The tickets land on different shards of today's row; the report sums them
+            Integer reportedToday = null;
+            for (Object[] row : helpDeskService.getMonthlyVolumeReport(today.getYear(), today.getMonthValue())) {
+                if (java.sql.Date.valueOf(today).equals(row[0]) && "Billing Issues".equals(row[2])) {
+                    assertNull("One report row per day and category", reportedToday);
+                    reportedToday = (Integer) row[1];
+                }
+            }
+            assertEquals("Monthly report should count today's tickets", Integer.valueOf(after[0]), reportedToday);
+            
+            assertTrue("Rebuild should leave rows in the rollup", helpDeskService.rebuildDailyVolume() > 0);
+            assertArrayEquals("Rebuild should agree with the incremental counts", after, volumeFor("Billing Issues", today));
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
+    private int[] volumeFor(String categoryName, LocalDate day) throws SQLException {
+        for (Object[] row : helpDeskService.getVolumeReport(day, day.plusDays(1))) {
+            if (categoryName.equals(row[0])) {
+                return new int[] { (Integer) row[1], (Integer) row[2], (Integer) row[3] };
+            }
+        }
+        return new int[3];
+    }
+    
+    @Test
+    public void testBatchTicketDetails() {
+        try {
+            int customerId = helpDeskService.registerCustomer("Batch Customer", uniqueEmail("batch@example.com"));
+            int first = helpDeskService.createTicketWithMessage(customerId, 1, 1, "First ticket");
+            int second = helpDeskService.createTicketWithMessage(customerId, 2, 1, "Second ticket");
+            helpDeskService.addMessageToTicket(second, "Follow-up", false, customerId);
+            
+            OperationStats before = queryStats("TicketDAO.getTicketsByIds");
+            Map<Integer, HelpDeskService.TicketDetails> details =
+                    helpDeskService.getFullTicketDetails(Arrays.asList(second, first, second, -1));
+            OperationStats after = queryStats("TicketDAO.getTicketsByIds");
+            
+            assertEquals("Duplicates and missing tickets should be dropped", Arrays.asList(second, first),
+                    new ArrayList<>(details.keySet()));
+            assertEquals("First ticket should have its message", 1, details.get(first).getConversations().size());
+            assertEquals("Second ticket messages should be in order", "Follow-up",
+                    details.get(second).getConversations().get(1).getMessageText());
+            assertEquals("Tickets should be loaded with one query", 1,
+                    after.getExecutions() - (before == null ? 0 : before.getExecutions()));
+            
+            // A chunk size of 1 still returns everything
+            TicketDetailsLoader loader = new TicketDetailsLoader(new TicketDAO(), 1);
+            assertEquals("Chunked load should return both tickets", 2, loader.loadMany(Arrays.asList(first, second)).size());
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
+    private OperationStats queryStats(String operation) {
+        for (OperationStats stats : helpDeskService.getQueryMetrics()) {
+            if (stats.getOperation().equals(operation)) {
+                return stats;
+            }
+        }
+        return null;
+    }
+    
+    @Test
+    public void testAgentInboxOrderAndPaging() {
+        try {
+            int customerId = helpDeskService.registerCustomer("Inbox Customer", uniqueEmail("inbox@example.com"));
+            int agentId = helpDeskService.registerAgent("Inbox Agent", uniqueEmail("inbox-agent@company.com"), null, null);
+            
+            int low = helpDeskService.createTicketWithMessage(customerId, 1, 1, "Low");
+            int critical = helpDeskService.createTicketWithMessage(customerId, 1, 4, "Critical");
+            int lowLater = helpDeskService.createTicketWithMessage(customerId, 1, 1, "Low, later");
+            for (int ticketId : new int[] { low, critical, lowLater }) {
+                assertTrue("Assignment should succeed", helpDeskService.assignTicketToAgent(ticketId, agentId));
+            }
+            
+            Page<TicketSummary> first = helpDeskService.getAgentInbox(agentId, null, 2);
+            assertEquals("Most urgent first, then oldest", Arrays.asList(critical, low), ticketIds(first.getItems()));
+            assertEquals("Priority name should be resolved", "Critical", first.getItems().get(0).getPriorityName());
+            assertTrue("Should have another page", first.hasMore());
+            
+            Page<TicketSummary> second = helpDeskService.getAgentInbox(agentId, first.getNextCursor(), 2);
+            assertEquals("Second page should continue after the cursor", Arrays.asList(lowLater), ticketIds(second.getItems()));
+            assertFalse("Should be the last page", second.hasMore());
+            
+            Page<TicketSummary> unassigned = helpDeskService.getUnassignedTickets(1, null, 50);
+            for (TicketSummary summary : unassigned.getItems()) {
+                assertNull("Unassigned list should only hold unassigned tickets", summary.getAgentId());
+                assertEquals("Unassigned list should be filtered by category", 1, summary.getCategoryId());
+            }
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testResolvingClearsEscalation() throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+        int customerId = helpDeskService.registerCustomer("Escalation Customer", uniqueEmail("escalation@example.com"));
+        int agentId = helpDeskService.registerAgent("Escalation Agent", uniqueEmail("escalation@company.com"), now, later);
+        int resolved = helpDeskService.createTicketWithMessage(customerId, 1, 4, "Resolve me");
+        int closed = helpDeskService.createTicketWithMessage(customerId, 1, 4, "Close me");
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            assertEquals(Arrays.asList(resolved, closed),
+                         new TicketDAO().escalateTickets(conn, Arrays.asList(resolved, closed), 10));
+            assertEquals("Escalated tickets should not be reported as escalated again",
+                         Collections.emptyList(), new TicketDAO().escalateTickets(conn, Arrays.asList(resolved), 10));
+        }
+        List<Integer> escalated = escalatedTicketIds();
+        assertTrue(escalated.contains(resolved));
+        assertTrue(escalated.contains(closed));
+        
+        assertTrue(helpDeskService.assignTicketToAgent(resolved, agentId));
+        assertTrue(helpDeskService.resolveTicket(resolved, "Done", agentId));
+        assertTrue(helpDeskService.closeTicket(closed));
+        HelpDeskService.flushTicketHistory();
+        
+        assertFalse(helpDeskService.getFullTicketDetails(resolved).getTicket().isEscalated());
+        assertFalse(helpDeskService.getFullTicketDetails(closed).getTicket().isEscalated());
+        escalated = escalatedTicketIds();
+        assertFalse("Resolved tickets should leave the escalated list", escalated.contains(resolved));
+        assertFalse("Closed tickets should leave the escalated list", escalated.contains(closed));
+        assertTrue(describe(helpDeskService.getTicketHistoryPage(resolved, null, 10).getItems())
+                       .contains("is_escalated:1>0 by " + agentId));
+        assertTrue(describe(helpDeskService.getTicketHistoryPage(closed, null, 10).getItems())
+                       .contains("is_escalated:1>0 by null"));
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            assertEquals("Finished tickets should not be escalated again",
+                         Collections.emptyList(), new TicketDAO().escalateTickets(conn, Arrays.asList(resolved, closed), 10));
+        }
+    }
+    
+    // Other tests leave escalated tickets open, so walk every page
+    private List<Integer> escalatedTicketIds() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            Page<TicketSummary> page = helpDeskService.getEscalatedTickets(cursor, 100);
+            ids.addAll(ticketIds(page.getItems()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+    
+    private List<Integer> ticketIds(List<TicketSummary> summaries) {
+        List<Integer> ids = new ArrayList<>();
+        for (TicketSummary summary : summaries) {
+            ids.add(summary.getTicketId());
+        }
+        return ids;
+    }
+    
+    @Test
+    public void testSearchConversations() {
+        try {
+            String token = "frob" + Long.toString(System.nanoTime(), 36);
+            int customerId = helpDeskService.registerCustomer("Search Customer", uniqueEmail("search@example.com"));
+            int printer = helpDeskService.createTicketWithMessage(customerId, 1, 2, "Printer " + token + " jammed on tray two");
+            int invoice = helpDeskService.createTicketWithMessage(customerId, 2, 2, "Invoice " + token + " printer charge");
+            
+            assertEquals("Every message with the word should match",
+                         Arrays.asList(invoice, printer), sortedTicketIds(helpDeskService.searchConversations(token, null, null, 10)));
+            assertEquals("A phrase should match only in order",
+                         Arrays.asList(printer), sortedTicketIds(helpDeskService.searchConversations("\"printer " + token + "\"", null, null, 10)));
+            assertEquals("A prefix should match the whole word",
+                         Arrays.asList(invoice, printer), sortedTicketIds(helpDeskService.searchConversations(token.substring(0, 8) + "*", null, null, 10)));
+            assertEquals("All words must match",
+                         Arrays.asList(printer), sortedTicketIds(helpDeskService.searchConversations(token + " jammed", null, null, 10)));
+            assertEquals("Category filter should apply",
+                         Arrays.asList(invoice), sortedTicketIds(helpDeskService.searchConversations(token, 2, null, 10)));
+            assertTrue("Status filter should apply", helpDeskService.searchConversations(token, null, 4, 10).isEmpty());
+            assertEquals("Stopwords and short words should not stop a match",
+                         Arrays.asList(printer), sortedTicketIds(helpDeskService.searchConversations("the " + token + " on tray", null, null, 10)));
+            
+            // Closing moves the ticket's messages, including ones added later, into the finished scope
+            assertTrue(helpDeskService.closeTicket(printer));
+            assertTrue(helpDeskService.addMessageToTicket(printer, "Closed " + token + " follow-up", false, customerId));
+            assertEquals("Closed tickets should match a closed status filter",
+                         Arrays.asList(printer, printer), sortedTicketIds(helpDeskService.searchConversations(token, 1, 4, 10)));
+            assertEquals("Open tickets should match an open status filter",
+                         Arrays.asList(invoice), sortedTicketIds(helpDeskService.searchConversations(token, null, 1, 10)));
+            assertTrue("Operators alone should not fail", helpDeskService.searchConversations("+-()<>~@", null, null, 10).isEmpty());
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
+    private List<Integer> sortedTicketIds(List<ConversationSearchHit> hits) {
+        List<Integer> ids = new ArrayList<>();
+        for (ConversationSearchHit hit : hits) {
+            ids.add(hit.getTicketId());
+        }
+        ids.sort(Collections.reverseOrder());
+        return ids;
+    }
+    
+    @Test
+    public void testTicketHistory() {
+        try {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+            int customerId = helpDeskService.registerCustomer("History Customer", uniqueEmail("history@example.com"));
+            int agentId = helpDeskService.registerAgent("History Agent", uniqueEmail("historyagent@company.com"), now, later);
+            int ticketId = helpDeskService.createTicketWithMessage(customerId, 1, 2, "Audit me");
+            
+            assertTrue(helpDeskService.assignTicketToAgent(ticketId, agentId));
+            assertTrue(helpDeskService.changeTicketPriority(ticketId, 4, agentId));
+            assertTrue("Unchanged priority should not be recorded", helpDeskService.changeTicketPriority(ticketId, 4, agentId));
+            assertTrue(helpDeskService.resolveTicket(ticketId, "Done", agentId));
+            assertTrue(helpDeskService.closeTicket(ticketId));
+            HelpDeskService.flushTicketHistory();
+            
+            List<TicketHistoryEntry> history = new ArrayList<>();
+            PageCursor cursor = null;
+            int pages = 0;
+            do {
+                Page<TicketHistoryEntry> page = helpDeskService.getTicketHistoryPage(ticketId, cursor, 2);
+                assertTrue("Pages should not exceed the page size", page.getItems().size() <= 2);
+                history.addAll(page.getItems());
+                cursor = page.getNextCursor();
+                pages++;
+            } while (cursor != null);
+            
+            assertEquals("Five changes should be paged in three pages", 3, pages);
+            assertEquals(Arrays.asList("agent_id:null>" + agentId + " by null",
+                                       "status_id:1>2 by null",
+                                       "priority_id:2>4 by " + agentId,
+                                       "status_id:2>3 by " + agentId,
+                                       "status_id:3>4 by null"),
+                         describe(history));
+            
+        } catch (SQLException e) {
+            fail("SQLException occurred: " + e.getMessage());
+        }
+    }
+    
+    private List<String> describe(List<TicketHistoryEntry> history) {
+        List<String> changes = new ArrayList<>();
+        for (TicketHistoryEntry entry : history) {
+            changes.add(entry.getChangedFieldName() + ":" + entry.getOldValueId() + ">" + entry.getNewValueId() +
+                        " by " + entry.getChangedBy());
+        }
+        return changes;
+    }
+    
     @Test
     public void testPerformanceReports() {
         try {
@@ -154,4 +693,10 @@ public class HelpDeskServiceTest {
             fail("SQLException occurred: " + e.getMessage());
         }
     }
+    
+    // The test database persists between runs, so registered emails get a per-run suffix
+    private static String uniqueEmail(String email) {
+        int at = email.indexOf('@');
+        return email.substring(0, at) + "." + Long.toString(System.nanoTime(), 36) + email.substring(at);
+    }
 }
\ No newline at end of file
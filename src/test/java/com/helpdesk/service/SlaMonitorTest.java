@@ -0,0 +1,123 @@
+package com.helpdesk.service;
+
+import com.helpdesk.db.DatabaseConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests for SlaMonitor sweeps
+ * Note: These tests require a running MySQL database with the schema set up
+ */
+public class SlaMonitorTest {
+    
+    // Billing Issues: 30 minute response, 240 minute resolution target
+    private static final int CATEGORY_ID = 2;
+    
+    // The test database persists between runs, so emails get a per-run suffix
+    private static final String RUN = Long.toString(System.nanoTime(), 36);
+    
+    private HelpDeskService helpDeskService;
+    
+    @Before
+    public void setUp() throws SQLException {
+        helpDeskService = new HelpDeskService();
+        clearWatermarks();
+    }
+    
+    // The sweeps below run with a clock ahead of real time; do not leave their watermarks in the future
+    @After
+    public void tearDown() throws SQLException {
+        clearWatermarks();
+    }
+    
+    @Test
+    public void testSweepReportsEachTicketOnce() throws SQLException {
+        int customerId = helpDeskService.registerCustomer("SLA Customer", "sla." + RUN + "@example.com");
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+        int agentId = helpDeskService.registerAgent("SLA Agent", "slaagent." + RUN + "@company.com", now, later);
+        
+        int waiting = helpDeskService.createTicketWithMessage(customerId, CATEGORY_ID, 2, "Still waiting");
+        int alsoWaiting = helpDeskService.createTicketWithMessage(customerId, CATEGORY_ID, 3, "Also waiting");
+        int answered = helpDeskService.createTicketWithMessage(customerId, CATEGORY_ID, 2, "Picked up");
+        assertTrue("Assignment should succeed", helpDeskService.assignTicketToAgent(answered, agentId));
+        
+        List<SlaEvent> events = new ArrayList<>();
+        // Batches of one so the watermark has to advance between batches
+        SlaMonitor monitor = new SlaMonitor(0.8, 1);
+        monitor.addListener(events::add);
+        monitor.runSweep();
+        assertTrue("Nothing is due yet", checksFor(events, waiting).isEmpty());
+        
+        // 200 minutes on: past the response target and the 80% resolution warning, short of the resolution target
+        LocalDateTime sweepTime = LocalDateTime.now().plusMinutes(200);
+        monitor.runSweep(sweepTime);
+        
+        Set<String> expected = new HashSet<>(Arrays.asList("RESPONSE_WARNING", "RESPONSE_BREACH", "RESOLUTION_WARNING"));
+        assertEquals("Unanswered ticket should get each due check once", expected, checksFor(events, waiting));
+        assertEquals("Every unanswered ticket should be reported", expected, checksFor(events, alsoWaiting));
+        assertEquals("An assigned ticket only owes a resolution",
+                     new HashSet<>(Arrays.asList("RESOLUTION_WARNING")), checksFor(events, answered));
+        
+        assertTrue("Response breach should escalate the ticket",
+                   helpDeskService.getFullTicketDetails(waiting).getTicket().isEscalated());
+        assertFalse("A warning alone should not escalate the ticket",
+                    helpDeskService.getFullTicketDetails(answered).getTicket().isEscalated());
+        
+        events.clear();
+        monitor.runSweep(sweepTime.plusMinutes(1));
+        assertTrue("A second sweep should not report the ticket again", checksFor(events, waiting).isEmpty());
+    }
+    
+    @Test
+    public void testFirstSweepStartsAtLongestTarget() throws SQLException {
+        int customerId = helpDeskService.registerCustomer("SLA Seed Customer", "slaseed." + RUN + "@example.com");
+        int waiting = helpDeskService.createTicketWithMessage(customerId, CATEGORY_ID, 2, "Waiting since before the deploy");
+        
+        List<SlaEvent> events = new ArrayList<>();
+        SlaMonitor monitor = new SlaMonitor();
+        monitor.addListener(events::add);
+        
+        // 300 minutes on the ticket is older than the 240 minute resolution target, so a first sweep skips it
+        monitor.runSweep(LocalDateTime.now().plusMinutes(300));
+        assertTrue("The first sweep should not reach back past the longest target", checksFor(events, waiting).isEmpty());
+        
+        clearWatermarks();
+        monitor.runSweep(LocalDateTime.now().plusMinutes(200));
+        assertEquals("A ticket within the longest target should be checked",
+                     new HashSet<>(Arrays.asList("RESPONSE_WARNING", "RESPONSE_BREACH", "RESOLUTION_WARNING")),
+                     checksFor(events, waiting));
+    }
+    
+    private Set<String> checksFor(List<SlaEvent> events, int ticketId) {
+        Set<String> checks = new HashSet<>();
+        for (SlaEvent event : events) {
+            if (event.getTicketId() == ticketId) {
+                assertTrue("Each check should fire once per ticket", checks.add(event.getTarget() + "_" + event.getStage()));
+            }
+        }
+        return checks;
+    }
+    
+    private void clearWatermarks() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM SlaWatermarks WHERE category_id = ?")) {
+            
+            pstmt.setInt(1, CATEGORY_ID);
+            pstmt.executeUpdate();
+        }
+    }
+}
\ No newline at end of file
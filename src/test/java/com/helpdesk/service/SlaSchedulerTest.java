@@ -0,0 +1,128 @@
+package com.helpdesk.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for SlaScheduler and its updates from HelpDeskService
+ * Note: These tests require a running MySQL database with the schema set up
+ */
+public class SlaSchedulerTest {
+    
+    // Billing Issues: 30 minute response, 240 minute resolution target
+    private static final int CATEGORY_ID = 2;
+    private static final long MINUTE = 60 * 1000;
+    // The test database persists between runs, so emails get a per-run suffix
+    private static final String RUN = Long.toString(System.nanoTime(), 36);
+    
+    private HelpDeskService helpDeskService;
+    private SlaScheduler scheduler;
+    
+    @Before
+    public void setUp() {
+        helpDeskService = new HelpDeskService();
+        scheduler = new SlaScheduler();
+        HelpDeskService.setSlaScheduler(scheduler);
+    }
+    
+    @After
+    public void tearDown() {
+        HelpDeskService.setSlaScheduler(null);
+    }
+    
+    @Test
+    public void testTimersFollowTicketChanges() throws SQLException {
+        int customerId = helpDeskService.registerCustomer("Timer Customer", "timer." + RUN + "@example.com");
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+        int agentId = helpDeskService.registerAgent("Timer Agent", "timeragent." + RUN + "@company.com", now, later);
+        
+        // created_at is stored to the second
+        long before = System.currentTimeMillis() - 1000;
+        int waiting = helpDeskService.createTicketWithMessage(customerId, CATEGORY_ID, 2, "Waiting");
+        int answered = helpDeskService.createTicketWithMessage(customerId, CATEGORY_ID, 2, "Answered");
+        int closed = helpDeskService.createTicketWithMessage(customerId, CATEGORY_ID, 2, "Closed");
+        assertTrue(helpDeskService.assignTicketToAgent(answered, agentId));
+        assertTrue(helpDeskService.closeTicket(closed));
+        
+        long responseDeadline = scheduler.getDeadline(waiting, SlaEvent.Target.RESPONSE);
+        assertTrue("New ticket should owe a response in 30 minutes",
+                   responseDeadline >= before + 30 * MINUTE && responseDeadline <= System.currentTimeMillis() + 30 * MINUTE);
+        assertEquals("Assignment should cancel the response timer", -1, scheduler.getDeadline(answered, SlaEvent.Target.RESPONSE));
+        assertTrue("Assigned ticket still owes a resolution", scheduler.getDeadline(answered, SlaEvent.Target.RESOLUTION) > 0);
+        assertEquals("Closing should cancel every timer", -1, scheduler.getDeadline(closed, SlaEvent.Target.RESOLUTION));
+        
+        List<SlaEvent> events = new ArrayList<>();
+        scheduler.addListener(events::add);
+        assertEquals("Nothing is due yet", 0, scheduler.fireDue(System.currentTimeMillis()));
+        
+        scheduler.fireDue(System.currentTimeMillis() + 31 * MINUTE);
+        assertEquals("Only the unanswered ticket should breach", 1, events.size());
+        assertEquals(waiting, events.get(0).getTicketId());
+        assertEquals(SlaEvent.Target.RESPONSE, events.get(0).getTarget());
+        assertEquals(SlaEvent.Stage.BREACH, events.get(0).getStage());
+        assertTrue("Breach should escalate the ticket",
+                   helpDeskService.getFullTicketDetails(waiting).getTicket().isEscalated());
+        assertFalse(helpDeskService.getFullTicketDetails(answered).getTicket().isEscalated());
+        
+        assertTrue("Rebuild should find the open tickets", scheduler.rebuild() >= 2);
+        assertTrue("Rebuild should restore the resolution timer", scheduler.getDeadline(waiting, SlaEvent.Target.RESOLUTION) > 0);
+        assertEquals("Rebuild should skip answered tickets' response", -1, scheduler.getDeadline(answered, SlaEvent.Target.RESPONSE));
+        assertEquals("Rebuild should skip closed tickets", -1, scheduler.getDeadline(closed, SlaEvent.Target.RESOLUTION));
+        
+        // After a restart past the response deadline, the escalated ticket's breach is not reported again
+        scheduler.rebuild(System.currentTimeMillis() + 31 * MINUTE);
+        assertEquals("Reported breach should not be rescheduled", -1, scheduler.getDeadline(waiting, SlaEvent.Target.RESPONSE));
+        assertTrue("The resolution is still ahead", scheduler.getDeadline(waiting, SlaEvent.Target.RESOLUTION) > 0);
+        events.clear();
+        scheduler.fireDue(System.currentTimeMillis() + 32 * MINUTE);
+        for (SlaEvent event : events) {
+            assertNotEquals("Rebuild should not publish the breach twice", waiting, event.getTicketId());
+        }
+    }
+    
+    @Test
+    public void testReopenedTicketOwesItsResolutionAgain() throws SQLException {
+        int customerId = helpDeskService.registerCustomer("Reopen Customer", "timerreopen." + RUN + "@example.com");
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp later = new Timestamp(System.currentTimeMillis() + (8 * 60 * 60 * 1000));
+        int agentId = helpDeskService.registerAgent("Reopen Agent", "timerreopenagent." + RUN + "@company.com", now, later);
+        
+        int resolved = helpDeskService.createTicketWithMessage(customerId, CATEGORY_ID, 2, "Resolved then reopened");
+        int closed = helpDeskService.createTicketWithMessage(customerId, CATEGORY_ID, 2, "Closed then reopened");
+        long resolutionDeadline = scheduler.getDeadline(resolved, SlaEvent.Target.RESOLUTION);
+        assertTrue(helpDeskService.assignTicketToAgent(resolved, agentId));
+        assertTrue(helpDeskService.resolveTicket(resolved, "Done", agentId));
+        assertTrue(helpDeskService.closeTicket(closed));
+        assertEquals(-1, scheduler.getDeadline(resolved, SlaEvent.Target.RESOLUTION));
+        assertEquals(-1, scheduler.getDeadline(closed, SlaEvent.Target.RESOLUTION));
+        
+        assertTrue(helpDeskService.assignTicketToAgent(resolved, agentId));
+        assertTrue(helpDeskService.assignTicketToAgent(closed, agentId));
+        assertEquals("The resolution timer should come back with its original deadline",
+                     resolutionDeadline, scheduler.getDeadline(resolved, SlaEvent.Target.RESOLUTION));
+        assertTrue("A reopened closed ticket should owe a resolution",
+                   scheduler.getDeadline(closed, SlaEvent.Target.RESOLUTION) > 0);
+        assertEquals("A reopened ticket has already had its response",
+                     -1, scheduler.getDeadline(closed, SlaEvent.Target.RESPONSE));
+        
+        List<SlaEvent> events = new ArrayList<>();
+        scheduler.addListener(events::add);
+        scheduler.fireDue(System.currentTimeMillis() + 241 * MINUTE);
+        List<Integer> breached = new ArrayList<>();
+        for (SlaEvent event : events) {
+            if (event.getTarget() == SlaEvent.Target.RESOLUTION) {
+                breached.add(event.getTicketId());
+            }
+        }
+        assertTrue("The reopened tickets should breach their resolution",
+                   breached.contains(resolved) && breached.contains(closed));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.helpdesk.service;
+
+import com.helpdesk.dao.TicketHistoryDAO;
+import com.helpdesk.db.TransactionTemplate;
+import com.helpdesk.model.TicketHistoryEntry;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the TicketHistory audit trail writer
+ * Note: These tests require a running MySQL database with the schema set up
+ */
+public class TicketHistoryWriterTest {
+    
+    // The test database persists between runs, so emails get a per-run suffix
+    private static final String RUN = Long.toString(System.nanoTime(), 36);
+    
+    private final HelpDeskService helpDeskService = new HelpDeskService();
+    private final TicketHistoryDAO historyDAO = new TicketHistoryDAO();
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate();
+    
+    @Test
+    public void testStrictModeWritesWithTheTransaction() throws Exception {
+        int ticketId = createTicket("historystrict@example.com");
+        TicketHistoryWriter writer = new TicketHistoryWriter(true, 10, 10);
+        List<TicketHistoryEntry> history = Collections.singletonList(
+                new TicketHistoryEntry(ticketId, null, TicketHistoryEntry.PRIORITY, 2, 3));
+        
+        try {
+            transactionTemplate.execute(conn -> {
+                writer.writeInTransaction(conn, history);
+                throw new SQLException("rolled back");
+            });
+            fail("The transaction should have failed");
+        } catch (SQLException e) {
+            assertEquals("rolled back", e.getMessage());
+        }
+        assertEquals("A rolled back change should leave no history", 0, historyCount(ticketId));
+        
+        transactionTemplate.execute(conn -> {
+            writer.writeInTransaction(conn, history);
+            return null;
+        });
+        writer.committed(history);
+        assertEquals("Strict mode should write exactly once, in the transaction", 1, historyCount(ticketId));
+        assertEquals("Nothing should be queued in strict mode", 0, writer.getPendingCount());
+    }
+    
+    @Test
+    public void testAsyncModeBatchesAndOverflows() throws Exception {
+        int ticketId = createTicket("historyasync@example.com");
+        TicketHistoryWriter writer = new TicketHistoryWriter(false, 5, 3);
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        for (int priority = 1; priority <= 20; priority++) {
+            history.add(new TicketHistoryEntry(ticketId, null, TicketHistoryEntry.PRIORITY, priority, priority + 1));
+        }
+        
+        transactionTemplate.execute(conn -> {
+            writer.writeInTransaction(conn, history);
+            return null;
+        });
+        assertEquals("Async mode should not write in the transaction", 0, historyCount(ticketId));
+        
+        writer.committed(history);
+        writer.flush();
+        assertEquals("Every change should be written", 20, historyCount(ticketId));
+        assertEquals(20, writer.getWrittenCount());
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(0, writer.getFailedCount());
+        assertTrue("Twenty rows cannot fit a five-row queue at once", writer.getOverflowCount() > 0);
+        
+        writer.close();
+        writer.committed(history.subList(0, 1));
+        assertEquals("After close callers should write their own changes", 21, historyCount(ticketId));
+    }
+    
+    @Test
+    public void testCloseWritesEverythingQueued() throws Exception {
+        int ticketId = createTicket("historyclose@example.com");
+        TicketHistoryWriter writer = new TicketHistoryWriter(false, 100, 10);
+        List<TicketHistoryEntry> history = new ArrayList<>();
+        for (int priority = 1; priority <= 50; priority++) {
+            history.add(new TicketHistoryEntry(ticketId, null, TicketHistoryEntry.PRIORITY, priority, priority + 1));
+        }
+        
+        writer.committed(history);
+        writer.close();
+        assertEquals("Closing should not lose queued or in-flight changes", 50, historyCount(ticketId));
+        assertEquals(50, writer.getWrittenCount());
+        assertEquals(0, writer.getFailedCount());
+        assertEquals(0, writer.getOverflowCount());
+    }
+    
+    private int createTicket(String email) throws SQLException {
+        int customerId = helpDeskService.registerCustomer("History Writer Customer", email.replace("@", "." + RUN + "@"));
+        return helpDeskService.createTicketWithMessage(customerId, 1, 2, "History writer test");
+    }
+    
+    private int historyCount(int ticketId) throws SQLException {
+        return historyDAO.getHistoryPage(ticketId, null, 100).getItems().size();
+    }
+}
\ No newline at end of file
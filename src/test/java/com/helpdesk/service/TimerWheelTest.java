@@ -0,0 +1,104 @@
+package com.helpdesk.service;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for TimerWheel
+ */
+public class TimerWheelTest {
+    
+    @Test
+    public void testFiresOnDeadlineTickAcrossLevels() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        // One deadline per level, plus level boundaries
+        long[] deadlines = { 1, 5, 63, 64, 65, 4095, 4096, 100_000, 262_144, 300_001 };
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        
+        Map<Long, Long> firedAt = new HashMap<>();
+        for (long now = 1; now <= 300_001; now++) {
+            long tick = now;
+            wheel.advance(now, (key, deadline) -> assertNull("Should fire once", firedAt.put(key, tick)));
+        }
+        
+        for (long deadline : deadlines) {
+            assertEquals("Should fire exactly at " + deadline, Long.valueOf(deadline), firedAt.get(deadline));
+        }
+        assertEquals("Nothing should be left", 0, wheel.size());
+    }
+    
+    @Test
+    public void testCancelRescheduleAndPastDeadlines() {
+        TimerWheel wheel = new TimerWheel(1000, 10_000);
+        wheel.schedule(1, 15_000);
+        wheel.schedule(2, 15_000);
+        wheel.schedule(3, 5_000);
+        assertTrue("Pending timer should cancel", wheel.cancel(2));
+        assertFalse("Cancelled timer is gone", wheel.cancel(2));
+        wheel.schedule(1, 20_500);
+        assertEquals("Reschedule should move the deadline", 20_500, wheel.deadlineOf(1));
+        assertEquals(2, wheel.size());
+        
+        Map<Long, Long> fired = new HashMap<>();
+        assertEquals("A past deadline fires on the next tick", 1, wheel.advance(11_000, (key, deadline) -> fired.put(key, deadline)));
+        assertEquals(Long.valueOf(5_000), fired.get(3L));
+        assertEquals("Should not fire before the deadline", 0, wheel.advance(20_999, (key, deadline) -> fired.put(key, deadline)));
+        assertEquals("Should fire on the first tick after the deadline", 1, wheel.advance(21_000, (key, deadline) -> fired.put(key, deadline)));
+        assertEquals(Long.valueOf(20_500), fired.get(1L));
+        assertEquals(-1, wheel.deadlineOf(1));
+    }
+    
+    @Test
+    public void testManyTimersWithChurn() {
+        TimerWheel wheel = new TimerWheel(1, 0, 16);
+        Random random = new Random(42);
+        Map<Long, Long> expected = new HashMap<>();
+        for (long key = 0; key < 200_000; key++) {
+            long deadline = 1 + random.nextInt(500_000);
+            wheel.schedule(key, deadline);
+            expected.put(key, deadline);
+        }
+        for (long key = 0; key < 200_000; key += 3) {
+            assertTrue(wheel.cancel(key));
+            expected.remove(key);
+        }
+        assertEquals(expected.size(), wheel.size());
+        
+        Map<Long, Long> fired = new HashMap<>();
+        long[] now = new long[1];
+        for (now[0] = 0; now[0] <= 500_000; now[0] += 997) {
+            wheel.advance(now[0], (key, deadline) -> {
+                assertTrue("Should not fire early", deadline <= now[0]);
+                assertTrue("Should fire within a step of the deadline", now[0] - deadline < 997);
+                assertNull("Should fire once", fired.put(key, deadline));
+            });
+        }
+        wheel.advance(500_000, (key, deadline) -> fired.put(key, deadline));
+        
+        assertEquals("Every pending timer should fire with its deadline", expected, fired);
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    public void testCapacityThatIsNotAPowerOfTwo() {
+        TimerWheel wheel = new TimerWheel(1, 0, 1000);
+        for (long key = 0; key < 3000; key++) {
+            wheel.schedule(key, 10 + key);
+        }
+        for (long key = 0; key < 3000; key++) {
+            assertEquals("Every key should be found", 10 + key, wheel.deadlineOf(key));
+        }
+        for (long key = 0; key < 3000; key += 2) {
+            assertTrue(wheel.cancel(key));
+        }
+        assertEquals(1500, wheel.size());
+        assertEquals(-1, wheel.deadlineOf(0));
+        assertEquals(11, wheel.deadlineOf(1));
+    }
+}
\ No newline at end of file